@@ -0,0 +1,68 @@
+package com.digitalglobe.util.maven.plugin;
+
+import software.amazon.awssdk.auth.credentials.AwsCredentialsProvider;
+import software.amazon.awssdk.services.cloudformation.CloudFormationAsyncClient;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.ssm.SsmClient;
+import software.amazon.awssdk.services.sts.StsClient;
+
+/**
+ * Use this interface to supply the AWS clients used by the plugin.  The plugin uses the DefaultAwsClientFactory unless
+ * the clientFactory setting names another implementation.  An implementation must have a public constructor without
+ * arguments.  It is configured with the clientSettings of the plugin before the first client is created and closed at
+ * the end of the execution.
+ *
+ * For each method, a null region means the region of the default region provider chain and null credentials mean the
+ * default credentials provider chain.
+ */
+public interface AwsClientFactory extends AutoCloseable {
+
+    /**
+     * Configure the factory.
+     *
+     * @param settings are the endpoint overrides, HTTP settings and timeouts from the plugin configuration.
+     */
+    default void configure(AwsClientSettings settings) {}
+
+    /**
+     * Create a Security Token Service client.
+     *
+     * @param region is the region of the client.
+     * @param credentials are the credentials of the client.
+     * @return the client.
+     */
+    StsClient createStsClient(String region, AwsCredentialsProvider credentials);
+
+    /**
+     * Create a S3 client.
+     *
+     * @param region is the region of the client.
+     * @param credentials are the credentials of the client.
+     * @return the client.
+     */
+    S3Client createS3Client(String region, AwsCredentialsProvider credentials);
+
+    /**
+     * Create a CloudFormation client.
+     *
+     * @param region is the region of the client.
+     * @param credentials are the credentials of the client.
+     * @return the client.
+     */
+    CloudFormationAsyncClient createCloudFormationClient(String region, AwsCredentialsProvider credentials);
+
+    /**
+     * Create a Systems Manager client.
+     *
+     * @param region is the region of the client.
+     * @param credentials are the credentials of the client.
+     * @return the client.
+     */
+    SsmClient createSsmClient(String region, AwsCredentialsProvider credentials);
+
+    /**
+     * Release the resources shared by the clients of the factory.
+     */
+    @Override
+    default void close() {}
+}
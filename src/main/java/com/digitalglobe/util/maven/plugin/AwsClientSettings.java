@@ -0,0 +1,190 @@
+package com.digitalglobe.util.maven.plugin;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * This class holds the settings of the AWS clients.  It is configured with the clientSettings element of the plugin.
+ *
+ * Example:
+ *   &lt;clientSettings&gt;
+ *     &lt;endpointOverrides&gt;
+ *       &lt;cloudformation&gt;https://vpce-0123-abcd.cloudformation.us-east-1.vpce.amazonaws.com&lt;/cloudformation&gt;
+ *       &lt;s3&gt;http://localhost:4566&lt;/s3&gt;
+ *     &lt;/endpointOverrides&gt;
+ *     &lt;apiCallTimeout&gt;120&lt;/apiCallTimeout&gt;
+ *     &lt;rateLimitDirectory&gt;/var/tmp/cloudformation-rate&lt;/rateLimitDirectory&gt;
+ *   &lt;/clientSettings&gt;
+ */
+public class AwsClientSettings {
+
+    /**
+     * The endpoints to use instead of the public endpoints of the services.  The keys are the names of the services:
+     * sts, s3, cloudformation and ssm.
+     *
+     * @parameter endpointOverrides maps the names of services to their endpoints.
+     */
+    private Map<String, String> endpointOverrides = new HashMap<>();
+
+    /**
+     * Addresses S3 buckets in the path instead of the host name.  It is usually needed by local stand-ins of S3.
+     *
+     * @parameter s3PathStyleAccess is a flag to use path style access for S3.
+     */
+    private boolean s3PathStyleAccess = false;
+
+    /**
+     * The number of seconds an API call may take including retries.  It is 0 when there isn't a limit.
+     *
+     * @parameter apiCallTimeout is the number of seconds an API call may take.
+     */
+    private int apiCallTimeout = 0;
+
+    /**
+     * The number of seconds a single attempt of an API call may take.  It is 0 when there isn't a limit.
+     *
+     * @parameter apiCallAttemptTimeout is the number of seconds an attempt of an API call may take.
+     */
+    private int apiCallAttemptTimeout = 0;
+
+    /**
+     * The number of seconds to wait for a connection to be established.  It is 0 for the SDK default.
+     *
+     * @parameter connectionTimeout is the number of seconds to wait for a connection.
+     */
+    private int connectionTimeout = 0;
+
+    /**
+     * The number of seconds to wait for data on an open connection.  It is 0 for the SDK default.
+     *
+     * @parameter socketTimeout is the number of seconds to wait for data.
+     */
+    private int socketTimeout = 0;
+
+    /**
+     * The maximum number of open connections of the HTTP client shared by the STS, S3 and SSM clients.  The default
+     * is 50.
+     *
+     * @parameter maxConnections is the connection pool size of the shared synchronous HTTP client.
+     */
+    private int maxConnections = 50;
+
+    /**
+     * The number of event loop threads of the HTTP client shared by the CloudFormation clients.  When it is 0, the SDK
+     * default (twice the number of processors) is used.  The default is 0.
+     *
+     * @parameter asyncThreads is the number of threads of the shared asynchronous HTTP client.
+     */
+    private int asyncThreads = 0;
+
+    /**
+     * The maximum number of open connections of the HTTP client shared by the CloudFormation clients.  The default is
+     * 50.
+     *
+     * @parameter asyncMaxConnections is the connection pool size of the shared asynchronous HTTP client.
+     */
+    private int asyncMaxConnections = 50;
+
+    /**
+     * The number of seconds an idle connection of the shared HTTP clients is kept alive for reuse.  The default is 60.
+     *
+     * @parameter connectionMaxIdleTime is the keep alive time of idle connections.
+     */
+    private int connectionMaxIdleTime = 60;
+
+    /**
+     * A directory shared by the plugin processes on the host that paces their CloudFormation and SSM calls.  Each
+     * process takes tokens from buckets kept in files of the directory, so builds running at the same time against
+     * the same region stay under the request rates together.  When it is null, the calls aren't paced.
+     *
+     * @parameter rateLimitDirectory is the directory of the shared rate limit buckets.
+     */
+    private String rateLimitDirectory = null;
+
+    /**
+     * The number of CloudFormation calls per second allowed for each region across the processes sharing the rate
+     * limit directory.  The default is 5.
+     *
+     * @parameter cloudFormationRequestRate is the shared rate of CloudFormation calls.
+     */
+    private double cloudFormationRequestRate = 5;
+
+    /**
+     * The number of SSM calls per second allowed for each region across the processes sharing the rate limit
+     * directory.  The default is 10.
+     *
+     * @parameter ssmRequestRate is the shared rate of SSM calls.
+     */
+    private double ssmRequestRate = 10;
+
+    /**
+     * Get the endpoint to use for a service.
+     *
+     * @param service is the name of the service (sts, s3, cloudformation or ssm).
+     * @return the endpoint or null to use the public endpoint.
+     */
+    public String getEndpointOverride(String service) {
+
+        return endpointOverrides == null ? null : endpointOverrides.get(service);
+    }
+
+    public boolean isS3PathStyleAccess() {
+
+        return s3PathStyleAccess;
+    }
+
+    public int getApiCallTimeout() {
+
+        return apiCallTimeout;
+    }
+
+    public int getApiCallAttemptTimeout() {
+
+        return apiCallAttemptTimeout;
+    }
+
+    public int getConnectionTimeout() {
+
+        return connectionTimeout;
+    }
+
+    public int getSocketTimeout() {
+
+        return socketTimeout;
+    }
+
+    public int getMaxConnections() {
+
+        return maxConnections;
+    }
+
+    public int getAsyncThreads() {
+
+        return asyncThreads;
+    }
+
+    public int getAsyncMaxConnections() {
+
+        return asyncMaxConnections;
+    }
+
+    public int getConnectionMaxIdleTime() {
+
+        return connectionMaxIdleTime;
+    }
+
+    public String getRateLimitDirectory() {
+
+        return rateLimitDirectory;
+    }
+
+    public double getCloudFormationRequestRate() {
+
+        return cloudFormationRequestRate;
+    }
+
+    public double getSsmRequestRate() {
+
+        return ssmRequestRate;
+    }
+}
@@ -0,0 +1,20 @@
+package com.digitalglobe.util.maven.plugin;
+
+/**
+ * Goal which applies a plan.  It executes the change sets written by the plan goal in the order they were planned and
+ * skips the stacks without changes.  It refuses to run when the plan was made from a different configuration, is older
+ * than the planMaximumAge or a change set can no longer be executed.  It takes the same configuration as the deploy
+ * goal.
+ *
+ * @goal apply
+ *
+ * @phase deploy
+ */
+@SuppressWarnings({"JavaDoc", "unused"})
+public class CloudFormationApplyMavenPlugin extends CloudFormationDeployMavenPlugin {
+
+    public CloudFormationApplyMavenPlugin() {
+
+        super(Goal.APPLY);
+    }
+}
@@ -4,15 +4,16 @@ import software.amazon.awssdk.auth.credentials.AwsCredentialsProvider;
 import software.amazon.awssdk.auth.credentials.AwsSessionCredentials;
 import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
 import software.amazon.awssdk.core.sync.RequestBody;
-import software.amazon.awssdk.regions.providers.DefaultAwsRegionProviderChain;
 import software.amazon.awssdk.regions.Region;
+import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.digitalglobe.utils.ClientBuilder;
 import org.apache.maven.plugin.AbstractMojo;
 import org.apache.maven.plugin.MojoExecutionException;
 import software.amazon.awssdk.services.cloudformation.CloudFormationAsyncClient;
 import software.amazon.awssdk.services.cloudformation.model.*;
 import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
 import software.amazon.awssdk.services.s3.model.PutObjectRequest;
 import software.amazon.awssdk.services.ssm.SsmClient;
 import software.amazon.awssdk.services.ssm.model.GetParameterRequest;
@@ -22,7 +23,6 @@ import software.amazon.awssdk.services.ssm.model.PutParameterRequest;
 import software.amazon.awssdk.services.sts.StsClient;
 import software.amazon.awssdk.services.sts.model.AssumeRoleRequest;
 import software.amazon.awssdk.services.sts.model.Credentials;
-import software.amazon.awssdk.services.sts.model.GetCallerIdentityRequest;
 import software.amazon.awssdk.services.sts.model.GetCallerIdentityResponse;
 
 import javax.swing.plaf.basic.BasicInternalFrameTitlePane;
@@ -34,9 +34,17 @@ import java.time.LocalDateTime;
 import java.time.ZoneOffset;
 import java.time.ZonedDateTime;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
 import java.util.function.Predicate;
-import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
@@ -50,10 +58,6 @@ import java.util.stream.Collectors;
 @SuppressWarnings({"JavaDoc", "MismatchedReadAndWriteOfArray", "CanBeFinal", "unused"})
 public class CloudFormationDeployMavenPlugin extends AbstractMojo {
 
-    static Class stsBuilder = StsClient.class;
-    static Class s3Builder = S3Client.class;
-    static Class cfAsyncBuilder = CloudFormationAsyncClient.class;
-    static private final Class ssmBuilder = SsmClient.class;
 
     static public class StackParameter {
         String parameterKey;
@@ -170,6 +174,15 @@ public class CloudFormationDeployMavenPlugin extends AbstractMojo {
          */
         String parameterStoreFieldName = null;
 
+        /**
+         * The name of a CloudFormation export to use as the input value.  The exports of the region are listed once
+         * per execution, so a value published by another stack is read without reading the stack.  Like a parameter
+         * store field name, it may be used with a parameter value that acts as a default if the export isn't found.
+         *
+         * @parameter exportName contains the name of the export to pull the input value from.
+         */
+        String exportName = null;
+
         /**
          * Sets the parameter name.
          *
@@ -196,6 +209,19 @@ public class CloudFormationDeployMavenPlugin extends AbstractMojo {
             return this;
         }
 
+        /**
+         * Sets the export name.
+         *
+         * @param exportName is the name of the export to fill the input parameter.
+         * @return this instance for initialization chaining.
+         */
+        StackInputParameter withExportName(String exportName) {
+
+            this.exportName = exportName;
+
+            return this;
+        }
+
     }
 
     @SuppressWarnings("unused")
@@ -484,6 +510,23 @@ public class CloudFormationDeployMavenPlugin extends AbstractMojo {
          */
         Map<String, StackOutputParameterMapping> parameters = null;
 
+        /**
+         * The number of seconds the output of the command may be reused from the cache in the output directory.
+         * Within a single execution the output of a command is always reused until a stack is created or updated.
+         * When this value is null, the output isn't cached between executions.
+         *
+         * @parameter cacheTimeToLive is the number of seconds to reuse the cached output of the command.
+         */
+        Integer cacheTimeToLive = null;
+
+        /**
+         * The number of seconds to wait for the command to finish.  When this value is null, the cliCommandTimeout
+         * setting is used.
+         *
+         * @parameter commandTimeout is the number of seconds to wait for the command.
+         */
+        Integer commandTimeout = null;
+
         /**
          * Set the description of the mapping.
          *
@@ -805,6 +848,17 @@ public class CloudFormationDeployMavenPlugin extends AbstractMojo {
         }
     }
 
+    /**
+     * This enumeration describes what an execution does with the change sets of the stacks.  DEPLOY creates and
+     * executes them, PLAN creates them and writes a plan file and APPLY executes the change sets of a plan file.
+     */
+    enum Goal {
+
+        DEPLOY,
+        PLAN,
+        APPLY
+    }
+
     /**
      * This enumeration describes how artifacts are copied.  If they are copied before the stack is run or after
      * the stack is run.
@@ -1061,6 +1115,208 @@ public class CloudFormationDeployMavenPlugin extends AbstractMojo {
      */
     private StackGroup[] secondaryStackGroups = null;
 
+    /**
+     * The maximum number of CLI commands from the cli command output parameter mappings of a stack to execute at the
+     * same time.  Only mappings that don't read the outputs of each other are executed together.  The default is 4.
+     * Set it to 1 to execute the commands one after another.
+     *
+     * @parameter cliCommandConcurrency is the maximum number of concurrent CLI commands.
+     */
+    private int cliCommandConcurrency = 4;
+
+    /**
+     * The number of bytes of the standard output or standard error of a CLI command to hold in memory.  Output beyond
+     * the limit is spilled to a temporary file.  The default is 4 MB.
+     *
+     * @parameter cliCommandMaximumOutputSize is the in memory limit of each CLI command output.
+     */
+    private long cliCommandMaximumOutputSize = StreamHandler.DEFAULT_MAXIMUM_MEMORY_SIZE;
+
+    /**
+     * The number of seconds to wait for a CLI command to finish.  A command that doesn't finish in time is killed
+     * along with the processes it started and the deployment fails.  Set it to 0 to wait forever.  The default is 600.
+     *
+     * @parameter cliCommandTimeout is the number of seconds to wait for a CLI command.
+     */
+    private int cliCommandTimeout = 600;
+
+    /**
+     * Uploads the artifact of every stack group concurrently at the start of the execution when the copyAction is
+     * BEFORE.  Each group waits only for its own artifact instead of uploading it when its turn comes.  The default is
+     * false.
+     *
+     * @parameter uploadArtifactsUpfront is a flag to upload the artifacts of all groups at the start.
+     */
+    private boolean uploadArtifactsUpfront = false;
+
+    /**
+     * Skips the stacks whose template, resolved input parameters and deployment artifact didn't change since they
+     * were last deployed and that weren't updated since then.  Their outputs are taken as they are.  The state of the
+     * stacks is always recorded in cloudformation-state.json in the output directory.  The default is false.
+     *
+     * @parameter incrementalDeploy is a flag to skip the stacks whose inputs didn't change.
+     */
+    private boolean incrementalDeploy = false;
+
+    /**
+     * An optional key in the templateS3Bucket to keep the state of the stacks in instead of the output directory, so
+     * that it is shared by the builds that deploy the stacks.
+     *
+     * @parameter deploymentStateS3Key is the S3 key of the state of the stacks.
+     */
+    private String deploymentStateS3Key = null;
+
+    /**
+     * Continues a failed deployment from the stack that failed.  The stacks that finished before it are recorded in
+     * cloudformation-checkpoint.json in the output directory.  They are skipped and their output parameters are read
+     * from the stacks again.  The finished stacks are checked for updates since the checkpoint first; when one was
+     * updated, or the templates or parameter files changed, every stack is deployed.  The default is false.
+     *
+     * @parameter resume is a flag to continue a failed deployment from its checkpoint.
+     */
+    private boolean resume = false;
+
+    /**
+     * The prefix of the Maven properties the output parameters are exposed as once a stack is done.  The properties
+     * are set on the project and on the session, so that the modules built after this one can use them.  The output
+     * parameters mapped to a SecureString field of the Parameter Store aren't exposed.  When it is null, the output
+     * parameters aren't exposed.  The default is null.
+     *
+     * @parameter outputPropertyPrefix is the prefix of the properties of the output parameters.
+     */
+    private String outputPropertyPrefix = null;
+
+    /**
+     * Describes every read only stack of the deployment concurrently when the execution starts, including the stacks
+     * that are read only because of regionConditionElseStackReadOnly.  The outputs are added to the output parameters
+     * when the stack's turn comes, in the same order as before.  Stacks whose condition is false aren't described, and
+     * stacks with a role and a check condition are described at their turn.  The default is false.
+     *
+     * @parameter harvestReadOnlyStacks is a flag to describe the read only stacks when the execution starts.
+     */
+    private boolean harvestReadOnlyStacks = false;
+
+    /**
+     * The properties of the project.
+     *
+     * @parameter default-value="${project.properties}"
+     * @readonly
+     */
+    private Properties projectProperties = null;
+
+    /**
+     * The user properties of the session, which are shared by the modules of the build.
+     *
+     * @parameter default-value="${session.userProperties}"
+     * @readonly
+     */
+    private Properties sessionProperties = null;
+
+    /**
+     * Prepares the next stack of a stack group while the current stack deploys.  Its template is uploaded and its
+     * input parameters are read from the parameter file and the Parameter Store when they don't match output
+     * parameters of earlier stacks.  The default is false.
+     *
+     * @parameter prefetchStacks is a flag to prepare the next stack while the current stack deploys.
+     */
+    private boolean prefetchStacks = false;
+
+    /**
+     * Creates the change set of the next stack of a stack group while the current stack deploys, so that only the
+     * execute step remains when its turn comes.  It applies to existing stacks whose input parameters only match
+     * output parameters that are known before the current stack deploys, like the outputs of the master stack.  When
+     * one of those output parameters changes, the change set is deleted and created again.  It implies
+     * prefetchStacks.  The default is false.
+     *
+     * @parameter eagerChangeSets is a flag to create the change set of the next stack while the current stack deploys.
+     */
+    private boolean eagerChangeSets = false;
+
+    /**
+     * The name of a class implementing AwsClientFactory that creates the AWS clients.  The class must be on the class
+     * path of the plugin, for example as a dependency of the plugin.  When it is null, the DefaultAwsClientFactory is
+     * used.
+     *
+     * @parameter clientFactory is the name of the class that creates the AWS clients.
+     */
+    private String clientFactory = null;
+
+    /**
+     * The endpoint overrides, HTTP settings and timeouts of the AWS clients.
+     *
+     * @parameter clientSettings contains the settings of the AWS clients.
+     */
+    private AwsClientSettings clientSettings = new AwsClientSettings();
+
+    /**
+     * The number of stack create and update operations that may be in flight in an account and region before any
+     * responses are seen.  The limit grows while CloudFormation accepts the operations and is halved when requests are
+     * throttled or an account limit is exceeded.  The default is 5.
+     *
+     * @parameter stackOperationConcurrency is the initial limit of stack operations in flight.
+     */
+    private int stackOperationConcurrency = 5;
+
+    /**
+     * The largest number of stack create and update operations that may be in flight in an account and region.  The
+     * default is 20.
+     *
+     * @parameter maximumStackOperationConcurrency is the largest limit of stack operations in flight.
+     */
+    private int maximumStackOperationConcurrency = 20;
+
+    /**
+     * Limits the stack operations in flight for each account and region during the execution.
+     */
+    private OperationGovernor operationGovernor = null;
+
+    /**
+     * Paces the CloudFormation calls with the other plugin processes on the host.  It is null when the rateLimitDirectory
+     * of the client settings isn't set.
+     */
+    private SharedRateLimiter rateLimiter = null;
+
+    /**
+     * Creates the AWS clients during the execution.
+     */
+    private AwsClientFactory clients = null;
+
+    /**
+     * The client used to assume roles and get the caller identity during the execution.
+     */
+    private StsClient stsClient = null;
+
+    /**
+     * The output parameters set when a deployment artifact is stored.
+     */
+    static private final Set<String> ARTIFACT_PARAMETERS =
+            new HashSet<>(Arrays.asList("ArtifactS3Bucket", "ArtifactS3Key", "CodeSHA256"));
+
+    /**
+     * Runs the steps of the stack pipelines that block, like reading files, the parameter store or CLI commands.
+     */
+    private ExecutorService pipelineExecutor = null;
+
+    /**
+     * Reads and writes JSON documents.
+     */
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    /**
+     * Caches the output of CLI commands during the execution and optionally between executions.
+     */
+    private CommandOutputCache commandOutputCache = null;
+
+    /**
+     * Holds the default region and caller identity looked up during the execution.
+     */
+    private SessionContext sessionContext = new SessionContext(this::getStsClient);
+
+    /**
+     * The roles that assumed credentials were created for.  It is used to identify cached CLI command outputs.
+     */
+    private final Map<AwsCredentialsProvider, String> credentialRoles = Collections.synchronizedMap(new IdentityHashMap<>());
+
     /**
      * The audit log file.  It is created at the start of the maven plugin execution and filled in during the
      * execution of the plugin.
@@ -1074,6 +1330,111 @@ public class CloudFormationDeployMavenPlugin extends AbstractMojo {
      */
     private String region = null;
 
+    /**
+     * The number of minutes after which a plan is stale and is refused by the apply goal.  The default is 1440.
+     *
+     * @parameter planMaximumAge is the number of minutes a plan may be applied after it is made.
+     */
+    private int planMaximumAge = 1440;
+
+    /**
+     * What the execution does with the change sets of the stacks.
+     */
+    private final Goal goal;
+
+    /**
+     * The plan made or applied by the execution.  It is null for the deploy goal.
+     */
+    private DeploymentPlan deploymentPlan = null;
+
+    /**
+     * The state of the stacks left by earlier deployments and updated by the execution.  It is null for the plan and
+     * apply goals.
+     */
+    private DeploymentState deploymentState = null;
+
+    /**
+     * The file the state of the stacks is written to as each stack is recorded.
+     */
+    private File deploymentStateFile = null;
+
+    /**
+     * The credentials used to write the state of the stacks to S3.
+     */
+    private AwsCredentialsProvider deploymentStateCredentials = null;
+
+    /**
+     * The client used to read and write the state of the stacks in S3.  It is created on first use and shared for the
+     * execution.
+     */
+    private S3Client deploymentStateClient = null;
+
+    /**
+     * The hashes of the uploaded templates by URL.
+     */
+    private final Map<String, String> templateHashes = new ConcurrentHashMap<>();
+
+    /**
+     * The time each stack described by the execution was last updated by name.
+     */
+    private final Map<String, Long> stackUpdateTimes = new ConcurrentHashMap<>();
+
+    /**
+     * The ID of each stack described by the execution by name.
+     */
+    private final Map<String, String> stackIds = new ConcurrentHashMap<>();
+
+    /**
+     * The descriptions of the stacks that finished before the checkpoint of a resumed deployment.
+     */
+    private final Map<DeploymentCheckpoint.Entry, DescribeStacksResponse> resumedStacks = new IdentityHashMap<>();
+
+    /**
+     * A flag set while the outputs of the stacks that finished before the checkpoint are read again.  They were
+     * already written to the Parameter Store.
+     */
+    private boolean resumingOutputs = false;
+
+    /**
+     * The Parameter Store fields written during the execution in order.  Input parameters read before a write of
+     * their field are stale.
+     */
+    private final List<String> parameterStoreWrites = Collections.synchronizedList(new ArrayList<>());
+
+    /**
+     * The names of the output parameters mapped to a SecureString field of the Parameter Store.  They aren't exposed
+     * as properties.
+     */
+    private final Set<String> secureOutputNames = Collections.synchronizedSet(new HashSet<>());
+
+    /**
+     * The CloudFormation exports by name, listed once per role and region.
+     */
+    private final Map<String, CompletableFuture<Map<String, String>>> exportIndexes = new ConcurrentHashMap<>();
+
+    /**
+     * The outputs of the stacks described by this and earlier executions.
+     */
+    private OutputSnapshot outputSnapshot = new OutputSnapshot();
+
+    /**
+     * This constructor initializes the deploy goal.
+     */
+    public CloudFormationDeployMavenPlugin() {
+
+        this(Goal.DEPLOY);
+    }
+
+    /**
+     * This constructor initializes the goal of a plugin that shares the configuration of the deploy goal.
+     *
+     * @param goal is what the execution does with the change sets of the stacks.
+     */
+    CloudFormationDeployMavenPlugin(Goal goal) {
+
+        this.goal = goal;
+    }
+
     /**
      * Use this method to create or update a CloudFormation Stack based on specified input parameters.
      *
@@ -1103,6 +1464,18 @@ public class CloudFormationDeployMavenPlugin extends AbstractMojo {
             audit = new FileWriter( touch );
             audit.flush();
 
+            commandOutputCache = new CommandOutputCache(new File(f, "cli-cache"));
+            sessionContext = new SessionContext(this::getStsClient);
+            operationGovernor = new OperationGovernor(stackOperationConcurrency, maximumStackOperationConcurrency);
+            rateLimiter = clientSettings.getRateLimitDirectory() == null ? null :
+                    new SharedRateLimiter(new File(clientSettings.getRateLimitDirectory()));
+            pipelineExecutor = Executors.newCachedThreadPool(runnable -> {
+
+                Thread thread = new Thread(runnable, "stack-pipeline");
+                thread.setDaemon(true);
+                return thread;
+            });
+
             // Make sure array match length
             int stackParameterFileCount = stackParameterFilePaths.length;
             int secondaryStackGroupCount = secondaryStackGroups == null ? 0 : secondaryStackGroups.length;
@@ -1148,14 +1521,84 @@ public class CloudFormationDeployMavenPlugin extends AbstractMojo {
                 if (jars == null) throw new Exception("No artifacts found to deploy");
             }
 
+            // A plan is made from the configuration it is applied with.
+            File planFile = new File(f, DeploymentPlan.FILE_NAME);
+            if(goal == Goal.PLAN) {
+
+                // The change sets of the plan being replaced won't be applied.
+                if(planFile.exists()) discardPlan(DeploymentPlan.read(planFile));
+                deploymentPlan = new DeploymentPlan(planFingerprint(jars));
+            }
+
+            if(goal == Goal.APPLY) {
+
+                deploymentPlan = DeploymentPlan.read(planFile);
+                audit.write("Applying the plan: " + planFile.getPath() + "\n");
+
+                if(!planFingerprint(jars).equals(deploymentPlan.getFingerprint()))
+                    throw new MojoExecutionException("The plan is stale: the templates, parameters or artifacts " +
+                            "changed.");
+
+                if(System.currentTimeMillis() - deploymentPlan.getCreated() > planMaximumAge * 60000L)
+                    throw new MojoExecutionException("The plan is stale: it is older than " + planMaximumAge +
+                            " minutes.");
+            }
+
+            // The state of the stacks is carried from one deployment to the next.
+            deploymentStateFile = new File(f, DeploymentState.FILE_NAME);
+            deploymentStateCredentials = sessionCredentials;
+            if(goal == Goal.DEPLOY) deploymentState = readDeploymentState(deploymentStateFile);
+
+            // The outputs of the stacks are kept for the modules and tools that run after the deployment.
+            File snapshotFile = new File(f, OutputSnapshot.FILE_NAME);
+            outputSnapshot = OutputSnapshot.read(snapshotFile);
+            if(harvestReadOnlyStacks) harvestReadOnlyStacks(sessionCredentials);
+
+            // A failed deployment continues after the last stack that finished when those stacks didn't change.
+            File checkpointFile = new File(f, DeploymentCheckpoint.FILE_NAME);
+            DeploymentCheckpoint resumed = (goal == Goal.DEPLOY) && resume ? resumeCheckpoint(checkpointFile) : null;
+            DeploymentCheckpoint checkpoint = goal != Goal.DEPLOY ? null :
+                    resumed != null ? resumed : new DeploymentCheckpoint(planFingerprint(null));
+
+            // Start uploading the artifact of every group so that each group only waits for its own artifact.  The
+            // audit lines of an upload are written when its group's turn comes.
+            Map<String, CompletableFuture<Map<String, String>>> artifactUploads = new HashMap<>();
+            Map<String, StringWriter> artifactAudits = new HashMap<>();
+            if(artifacts && (copyAction == ArtifactCopyAction.BEFORE) && uploadArtifactsUpfront) {
+
+                S3Client uploadClient = getClients().createS3Client(effectiveRegion().toString(), sessionCredentials);
+                File[] groupJars = jars;
+
+                for(int itemCount = 0; itemCount < stackParameterFileCount; itemCount++) {
+
+                    String filter = (secondaryStackGroups == null) ?
+                            null : secondaryStackGroups[itemCount].repositoryFilter;
+
+                    if(!artifactUploads.containsKey(filter)) {
+
+                        StringWriter log = new StringWriter();
+                        artifactAudits.put(filter, log);
+                        artifactUploads.put(filter, CloudFormationOperations.supply(() -> {
+
+                            Map<String, String> artifactParameters = new HashMap<>();
+                            storeArtifact(uploadClient, groupJars, filter, artifactParameters, log);
+                            return artifactParameters;
+
+                        }, pipelineExecutor));
+                    }
+                }
+            }
+
             // Process stack and secondary stack files
             for(int itemCount = 0; itemCount < stackParameterFileCount; itemCount++) {
 
+                // Skip the groups that finished before the checkpoint.
+                if((resumed != null) && resumed.isCompleted(itemCount, Integer.MAX_VALUE)) continue;
+                boolean primaryCompleted = (resumed != null) && resumed.isCompleted(itemCount, 0);
+
                 // Renew S3 client
                 String currentRegion = effectiveRegion().toString();
-                S3Client s3Client = (sessionCredentials != null) ?
-                        new ClientBuilder<S3Client>().withRegion(currentRegion).build(s3Builder, sessionCredentials) :
-                        new ClientBuilder<S3Client>().withRegion(currentRegion).build(s3Builder);
+                S3Client s3Client = getClients().createS3Client(currentRegion, sessionCredentials);
 
                 Map<String,String> masterOutputParameters = new HashMap<>();
                 if(artifacts && (copyAction == ArtifactCopyAction.BEFORE)) {
@@ -1163,7 +1606,12 @@ public class CloudFormationDeployMavenPlugin extends AbstractMojo {
                     String filter = (secondaryStackGroups == null) ?
                             null : secondaryStackGroups[itemCount].repositoryFilter;
 
-                    storeArtifact(s3Client, jars, filter, masterOutputParameters);
+                    if(artifactUploads.containsKey(filter)) {
+
+                        masterOutputParameters.putAll(CloudFormationOperations.await(artifactUploads.get(filter)));
+                        audit.write(artifactAudits.get(filter).toString());
+
+                    } else storeArtifact(s3Client, jars, filter, masterOutputParameters, audit);
                 }
 
                 File templateFile = new File(stackPath);
@@ -1173,9 +1621,14 @@ public class CloudFormationDeployMavenPlugin extends AbstractMojo {
 
                 String templateUrl = "https://s3.amazonaws.com/" + templateS3Bucket + "/" + templateName;
                 audit.write("Template URL: " + templateUrl + "\n");
+                templateHashes.put(templateUrl, DeploymentState.hash(Files.readAllBytes(templateFile.toPath())));
 
-                PutObjectRequest templateRequest = PutObjectRequest.builder().bucket(templateS3Bucket).key(templateName).build();
-                s3Client.putObject(templateRequest, RequestBody.fromFile(templateFile));
+                // The change sets of a plan already refer to their templates.
+                if((goal != Goal.APPLY) && !primaryCompleted) {
+
+                    PutObjectRequest templateRequest = PutObjectRequest.builder().bucket(templateS3Bucket).key(templateName).build();
+                    s3Client.putObject(templateRequest, RequestBody.fromFile(templateFile));
+                }
 
                 CloudFormationAsyncClient cfAsyncClient;
                 boolean testedRegionCondition = testRegionCondition(regionCondition, regionConditionExclude);
@@ -1188,34 +1641,51 @@ public class CloudFormationDeployMavenPlugin extends AbstractMojo {
                 }
 
                 System.out.println("Region: " + (region == null ? "Default" : region));
-                if(sessionCredentials != null) cfAsyncClient = (region == null) ?
-                        new ClientBuilder<CloudFormationAsyncClient>().build(cfAsyncBuilder, sessionCredentials) :
-                        new ClientBuilder<CloudFormationAsyncClient>().withRegion(region).build(cfAsyncBuilder, sessionCredentials);
-
-                else cfAsyncClient = (region == null) ?
-                        new ClientBuilder<CloudFormationAsyncClient>().build(cfAsyncBuilder) :
-                        new ClientBuilder<CloudFormationAsyncClient>().withRegion(region).build(cfAsyncBuilder);
+                cfAsyncClient = getClients().createCloudFormationClient(region, sessionCredentials);
 
                 // Read in the cloud formation template.
                 audit.write("Stack Parameter Path: " + stackParameterFilePaths[itemCount] + "\n");
 
-                if(testedRegionCondition || regionConditionElseStackReadOnly) {
+                String effectiveRegion = (region == null) && (deploymentRegionOverride != null) ? deploymentRegionOverride : region;
+                if(primaryCompleted) {
 
-                    if(!testedRegionCondition && regionConditionElseStackReadOnly) stackReadOnly = true;
-                    String effectiveRegion = (region == null) && (deploymentRegionOverride != null) ? deploymentRegionOverride : region;
+                    audit.write(stackName + " finished before the checkpoint.\n");
+                    System.out.println(stackName + " finished before the checkpoint.");
+                    resumeOutputs(resumed.getStack(itemCount, 0), masterOutputParameters, outputParameterMappings,
+                            cliCommandOutputParameterMappings);
 
-                    ExecuteTemplate(stackReadOnly, templateUrl, stackParameterFilePaths[itemCount], cfAsyncClient, s3Client,
-                            stackName, null, null, sessionCredentials, inputParameters,
-                            masterOutputParameters, outputParameterMappings, cliCommandOutputParameterMappings,
-                            null, effectiveRegion);
-                }
+                    if(artifacts && (copyAction == ArtifactCopyAction.AFTER)) {
 
-                if(artifacts && (copyAction == ArtifactCopyAction.AFTER)) {
+                        String filter = (secondaryStackGroups == null) ?
+                                null : secondaryStackGroups[itemCount].repositoryFilter;
 
-                    String filter = (secondaryStackGroups == null) ?
-                            null : secondaryStackGroups[itemCount].repositoryFilter;
+                        storeArtifact(s3Client, jars, filter, masterOutputParameters, audit);
+                    }
+
+                } else {
+
+                    if(testedRegionCondition || regionConditionElseStackReadOnly) {
 
-                    storeArtifact(s3Client, jars, filter, masterOutputParameters);
+                        if(!testedRegionCondition && regionConditionElseStackReadOnly) stackReadOnly = true;
+
+                        ExecuteTemplate(stackReadOnly, templateUrl, stackParameterFilePaths[itemCount], cfAsyncClient,
+                                s3Client, stackName, null, null, sessionCredentials, inputParameters,
+                                masterOutputParameters, outputParameterMappings, cliCommandOutputParameterMappings,
+                                null, effectiveRegion, null);
+                    }
+
+                    if(artifacts && (copyAction == ArtifactCopyAction.AFTER)) {
+
+                        String filter = (secondaryStackGroups == null) ?
+                                null : secondaryStackGroups[itemCount].repositoryFilter;
+
+                        storeArtifact(s3Client, jars, filter, masterOutputParameters, audit);
+                    }
+
+                    if(checkpoint != null)
+                        checkpoint.advance(new DeploymentCheckpoint.Entry(itemCount, 0, stackName,
+                                stackIds.get(stackName), effectiveRegion, roleArn, stackUpdateTimes.get(stackName)))
+                                .write(checkpointFile);
                 }
 
                 if(secondaryStackGroupCount > 0) {
@@ -1230,26 +1700,28 @@ public class CloudFormationDeployMavenPlugin extends AbstractMojo {
                     Map<String,String> outputParameters = new HashMap<>(masterOutputParameters);
 
                     // Process each stack in the stack group.
-                    for(SecondaryStack stack : secondaryStackGroups[itemCount].stacks) {
+                    SecondaryStack[] stacks = secondaryStackGroups[itemCount].stacks;
+                    Map<SecondaryStack, StagedStack> staged = new IdentityHashMap<>();
+                    for(int stackIndex = 0; stackIndex < stacks.length; stackIndex++) {
 
-                        // Renew S3 client
-                        testedRegionCondition = testRegionCondition(stack.regionCondition, stack.regionConditionExclude);
-                        if((stack.regionCondition != null) && !testedRegionCondition && stack.regionConditionElseStackReadOnly) {
-                            stack.region = stack.region == null ? stack.regionCondition : stack.region;
+                        SecondaryStack stack = stacks[stackIndex];
 
-                        } else {
-                            if ((stack.regionCondition != null) && testedRegionCondition) {
-                                stack.region = stack.region == null ? stack.regionCondition : stack.region;
+                        // Skip the stacks that finished before the checkpoint.
+                        if((resumed != null) && resumed.isCompleted(itemCount, stackIndex + 1)) {
 
-                            } else if ((stack.region == null) && (deploymentRegionOverride != null))
-                                stack.region = deploymentRegionOverride;
+                            audit.write("Stack " + (stackIndex + 1) + " finished before the checkpoint.\n");
+                            System.out.println("Stack " + (stackIndex + 1) + " finished before the checkpoint.");
+                            resumeOutputs(resumed.getStack(itemCount, stackIndex + 1), outputParameters,
+                                    stack.outputParameterMappings, stack.cliCommandOutputParameterMappings);
+                            continue;
                         }
 
+                        // Renew S3 client
+                        testedRegionCondition = resolveStackRegion(stack);
+
                         System.out.println("Stack Region: " + (stack.region == null ? "Empty" : stack.region));
                         currentRegion = effectiveRegion().toString();
-                        s3Client = (sessionCredentials != null) ?
-                                new ClientBuilder<S3Client>().withRegion(currentRegion).build(s3Builder, sessionCredentials) :
-                                new ClientBuilder<S3Client>().withRegion(currentRegion).build(s3Builder);
+                        s3Client = getClients().createS3Client(currentRegion, sessionCredentials);
 
                         AwsCredentialsProvider stackCredentials;
                         CloudFormationAsyncClient tempCfAsyncClient = cfAsyncClient;
@@ -1257,69 +1729,114 @@ public class CloudFormationDeployMavenPlugin extends AbstractMojo {
 
                             stackCredentials = getAwsCredentialsProvider(stack.roleArn);
 
-                            tempCfAsyncClient = stack.region == null ?
-                                    new ClientBuilder<CloudFormationAsyncClient>().build(cfAsyncBuilder, stackCredentials) :
-                                    new ClientBuilder<CloudFormationAsyncClient>().withRegion(stack.region).build(cfAsyncBuilder, stackCredentials);
+                            tempCfAsyncClient = getClients().createCloudFormationClient(stack.region, stackCredentials);
 
                         } else {
 
                             stackCredentials = sessionCredentials;
-                            if(stack.region != null) {
-                                tempCfAsyncClient = stackCredentials == null ?
-                                        new ClientBuilder<CloudFormationAsyncClient>().withRegion(stack.region).build(cfAsyncBuilder) :
-                                        new ClientBuilder<CloudFormationAsyncClient>().withRegion(stack.region).build(cfAsyncBuilder, stackCredentials);
-                            }
+                            if(stack.region != null)
+                                tempCfAsyncClient = getClients().createCloudFormationClient(stack.region, stackCredentials);
                         }
 
-                        // Read in the cloud formation template.
-                        String secondaryStackName = (stack.stackName == null) ?
-                                stack.stackNamePrefix + "-" + UUID.randomUUID().toString() + "Stack" :
-                                stack.stackName;
+                        // Use the template uploaded while the previous stack deployed or upload it now.
+                        StagedStack stage = staged.remove(stack);
+                        if(stage == null)
+                            stage = stageStack(stack, s3Client, null, null, null, Collections.emptySet(), null);
 
-                        String tempTemplateS3Prefix = stack.templateS3Prefix != null ? stack.templateS3Prefix : templateS3Prefix;
-                        String tempTemplateS3Bucket = stack.templateS3Bucket != null ? stack.templateS3Bucket : templateS3Bucket;
+                        String secondaryStackName = stage.getStackName();
+                        templateUrl = CloudFormationOperations.await(stage.getTemplateUrl());
+                        if(stack.templateS3Bucket != null) audit.write("Template URL: " + templateUrl + "\n");
 
-                        templateFile = new File(stack.stackPath);
-                        templateName = (tempTemplateS3Prefix != null ? tempTemplateS3Prefix + "/" : "") +
-                                ZonedDateTime.now().toEpochSecond() + "-" + secondaryStackName +
-                                "-" + templateFile.getName();
+                        // Prepare the next stack while this one deploys.
+                        if((prefetchStacks || eagerChangeSets) && (stackIndex + 1 < stacks.length)) {
 
-                        templateRequest = PutObjectRequest.builder().bucket(tempTemplateS3Bucket).key(templateName).build();
-                        s3Client.putObject(templateRequest, RequestBody.fromFile(templateFile));
-                        templateUrl = "https://s3.amazonaws.com/" + tempTemplateS3Bucket + "/" + templateName;
-                        if(stack.templateS3Bucket != null) audit.write("Template URL: " + templateUrl + "\n");
+                            SecondaryStack next = stacks[stackIndex + 1];
+                            boolean nextTestedRegionCondition = resolveStackRegion(next);
+                            boolean nextCredentials = (next.roleArn == null) && nextTestedRegionCondition;
+
+                            CloudFormationOperations nextOperations = null;
+                            if(eagerChangeSets && nextCredentials && (goal == Goal.DEPLOY))
+                                nextOperations = stackOperations(next.region == null ? cfAsyncClient :
+                                        getClients().createCloudFormationClient(next.region, sessionCredentials),
+                                        sessionCredentials, stackRegion(next));
+
+                            if(nextTestedRegionCondition || next.regionConditionElseStackReadOnly)
+                                staged.put(next, stageStack(next, s3Client, nextCredentials ? sessionCredentials : null,
+                                        stackRegion(next), eagerChangeSets ? outputParameters : null,
+                                        parameterStoreNames(stack), nextOperations));
+                        }
 
                         if(testedRegionCondition || stack.regionConditionElseStackReadOnly) {
 
                             if(!testedRegionCondition && stack.regionConditionElseStackReadOnly) stack.stackReadOnly = true;
-                            String effectiveRegion = (stack.region == null) && (deploymentRegionOverride != null) ? deploymentRegionOverride : stack.region;
 
                             ExecuteTemplate(stack.stackReadOnly, templateUrl, stack.stackParameterFilePath,
                                     tempCfAsyncClient, s3Client, secondaryStackName, stack.condition,
                                     stack.deploymentArtifactRegEx, stackCredentials, stack.inputParameters,
                                     outputParameters, stack.outputParameterMappings,
-                                    stack.cliCommandOutputParameterMappings, stack.checkCondition, effectiveRegion);
+                                    stack.cliCommandOutputParameterMappings, stack.checkCondition, stackRegion(stack),
+                                    stage);
                         }
+
+                        if(checkpoint != null)
+                            checkpoint.advance(new DeploymentCheckpoint.Entry(itemCount, stackIndex + 1,
+                                    secondaryStackName, stackIds.get(secondaryStackName), stackRegion(stack),
+                                    stack.roleArn != null ? stack.roleArn : roleArn,
+                                    stackUpdateTimes.get(secondaryStackName)))
+                                    .write(checkpointFile);
                     }
                 }
             }
-        }
-        catch ( Exception e ) {
 
-            try {
+            if(goal == Goal.PLAN) {
 
-                audit.write("Error executing the template stack or stack group.\n");
-                audit.write(e.getMessage() + "\n");
-                e.printStackTrace();
+                deploymentPlan.write(planFile);
+                audit.write("Plan written to " + planFile.getPath() + "\n");
+                System.out.println("Plan written to " + planFile.getPath());
+            }
 
-            } catch (IOException ex) {
+            if(goal == Goal.APPLY) deploymentPlan.checkApplied();
+            if(deploymentState != null) {
 
-                // ignore
+                writeDeploymentState();
+                System.out.println("State written to " + deploymentStateFile.getPath());
             }
 
-            throw new MojoExecutionException( "Error executing the template stack or stack group.", e );
+            outputSnapshot.write(snapshotFile);
 
-        } finally {
+            // A deployment that finished doesn't resume.
+            //noinspection ResultOfMethodCallIgnored
+            checkpointFile.delete();
+        }
+        catch ( Exception e ) {
+
+            // A plan whose apply failed or was refused can't be applied again.
+            if((goal == Goal.APPLY) && (deploymentPlan != null)) {
+
+                try {
+
+                    discardPlan(deploymentPlan);
+
+                } catch (Exception ex) {
+
+                    System.out.println("The change sets of the plan weren't deleted: " + ex.getMessage());
+                }
+            }
+
+            try {
+
+                audit.write("Error executing the template stack or stack group.\n");
+                audit.write(e.getMessage() + "\n");
+                e.printStackTrace();
+
+            } catch (IOException ex) {
+
+                // ignore
+            }
+
+            throw new MojoExecutionException( "Error executing the template stack or stack group.", e );
+
+        } finally {
 
             if ( audit != null ) {
                 try {
@@ -1331,7 +1848,76 @@ public class CloudFormationDeployMavenPlugin extends AbstractMojo {
                     // ignore
                 }
             }
+
+            if ( pipelineExecutor != null ) {
+
+                pipelineExecutor.shutdownNow();
+                pipelineExecutor = null;
+            }
+
+            if ( stsClient != null ) {
+
+                stsClient.close();
+                stsClient = null;
+            }
+
+            if ( deploymentStateClient != null ) {
+
+                deploymentStateClient.close();
+                deploymentStateClient = null;
+            }
+
+            // The clients don't close the shared HTTP clients of the factory, so they are released here.
+            if ( clients != null ) {
+
+                clients.close();
+                clients = null;
+            }
+        }
+    }
+
+    /**
+     * Use this method to get the factory that creates the AWS clients.  The factory named by the clientFactory setting
+     * is created on first use and configured with the client settings.
+     *
+     * @return the client factory.
+     */
+    private synchronized AwsClientFactory getClients() {
+
+        if(clients == null) {
+
+            if(clientFactory == null)
+                clients = new DefaultAwsClientFactory().withRateLimitScope(this::rateLimitScope);
+            else {
+
+                try {
+
+                    clients = (AwsClientFactory) Class.forName(clientFactory, true, getClass().getClassLoader())
+                            .getConstructor().newInstance();
+
+                } catch (ReflectiveOperationException | ClassCastException ex) {
+
+                    throw new IllegalArgumentException("Unable to create the client factory: " + clientFactory, ex);
+                }
+            }
+
+            clients.configure(clientSettings);
         }
+
+        return clients;
+    }
+
+    /**
+     * Use this method to get the client used to assume roles and get the caller identity.  It is created on first use
+     * and shared for the execution.
+     *
+     * @return the STS client.
+     */
+    private synchronized StsClient getStsClient() {
+
+        if(stsClient == null) stsClient = getClients().createStsClient(null, null);
+
+        return stsClient;
     }
 
     /**
@@ -1342,25 +1928,31 @@ public class CloudFormationDeployMavenPlugin extends AbstractMojo {
      * @param jars is the artifact to place in the bucket.
      * @param filter is an expression in the file name to look for when processing a stack group.
      * @param outputParameters is an array of output parameters where bucket, key, and hash are stored.
+     * @param log is the writer of the audit lines.
      * @throws IOException when the method can't invoke the S3 client.
      * @throws NoSuchAlgorithmException when the method can't generate the hash code for the artifact.
      */
     private void storeArtifact(S3Client s3Client, File[] jars, String filter,
-                               Map<String, String> outputParameters)
+                               Map<String, String> outputParameters, Writer log)
             throws IOException, NoSuchAlgorithmException {
 
-        File jarFile = getFile(jars, filter);
+        File jarFile = getFile(jars, filter, log);
 
-        audit.write("About to copy " + jarFile.getName() + " to S3.\n");
+        log.write("About to copy " + jarFile.getName() + " to S3.\n");
 
         String artifactName = s3Prefix != null ? s3Prefix + "/" + jarFile.getName() : jarFile.getName();
 
-        s3Client.putObject(PutObjectRequest.builder().bucket(s3Bucket).key(artifactName).build(),
-                RequestBody.fromFile(jarFile));
-        audit.write(artifactName + " was copied to the s3 bucket (" + s3Bucket + ").\n");
+        // The change sets of a plan already refer to the artifacts uploaded when it was made.
+        if(goal != Goal.APPLY) {
+
+            s3Client.putObject(PutObjectRequest.builder().bucket(s3Bucket).key(artifactName).build(),
+                    RequestBody.fromFile(jarFile));
+            log.write(artifactName + " was copied to the s3 bucket (" + s3Bucket + ").\n");
+
+        } else log.write(artifactName + " was copied to the s3 bucket (" + s3Bucket + ") by the plan.\n");
 
         String sb = getBase64SHA256HashString(jarFile);
-        audit.write("Base64 Encoded SHA256 HASH value: " + sb + "\n");
+        log.write("Base64 Encoded SHA256 HASH value: " + sb + "\n");
 
         outputParameters.put("ArtifactS3Bucket", s3Bucket);
         outputParameters.put("ArtifactS3Key", artifactName);
@@ -1387,7 +1979,7 @@ public class CloudFormationDeployMavenPlugin extends AbstractMojo {
 
             try {
 
-                credentials = new ClientBuilder<StsClient>().build(stsBuilder)
+                credentials = getStsClient()
                         .assumeRole(AssumeRoleRequest.builder()
                                 .roleArn(roleArn)
                                 .roleSessionName(UUID.randomUUID().toString())
@@ -1407,6 +1999,7 @@ public class CloudFormationDeployMavenPlugin extends AbstractMojo {
                     credentials.secretAccessKey(),
                     credentials.sessionToken()));
 
+            credentialRoles.put(sessionCredentials, roleArn);
             audit.write("Role assumed.\n");
         }
 
@@ -1431,6 +2024,7 @@ public class CloudFormationDeployMavenPlugin extends AbstractMojo {
      * @param cliCommandOutputParameterMappings is a set of CLI command to run to retrieve output parameters.
      * @param checkCondition is a condition to check against the value of an output parameter.
      * @param region is the region to use for executing templates and storing parameters.
+     * @param staged is the work prepared for the stack before its turn or null when nothing was prepared.
      * @throws IOException when the parameter file can't be read from.
      * @throws InterruptedException when the operating system interrupts the execution of a CLI Command.
      * @throws NoSuchAlgorithmException when it to calculate a file hash.
@@ -1443,11 +2037,165 @@ public class CloudFormationDeployMavenPlugin extends AbstractMojo {
                                  StackInputParameter[] inputParameters, Map<String, String> outputParameters,
                                  StackOutputParameterMapping[] outputParameterMappings,
                                  CliCommandOutputParameterMapping[] cliCommandOutputParameterMappings,
-                                 ParameterValueCheckCondition checkCondition, String region)
+                                 ParameterValueCheckCondition checkCondition, String region,
+                                 StagedStack staged)
             throws IOException, InterruptedException, NoSuchAlgorithmException, MojoExecutionException {
 
-        // Determine if the stack exists.
-        boolean cloudFormationExists = isTemplatePreviouslyDeployed(cfAsyncClient, stackName);
+        CloudFormationOperations.await(ExecuteTemplateAsync(readOnly, templateUrl, stackParameterFilePath,
+                cfAsyncClient, s3client, stackName, condition, deploymentArtifactRegEx, credentials, inputParameters,
+                outputParameters, outputParameterMappings, cliCommandOutputParameterMappings, checkCondition, region,
+                staged));
+    }
+
+    /**
+     * Use this method to build the pipeline that executes a template.  The CloudFormation calls don't block a thread
+     * while they are in flight and polling is scheduled with delays.  The steps that read files, the parameter store
+     * or CLI commands run on the pipeline executor.  The parameters are the same as the parameters of ExecuteTemplate.
+     *
+     * @return a future that completes when the template is executed and its output parameters are processed.
+     */
+    private CompletableFuture<Void> ExecuteTemplateAsync(Boolean readOnly, String templateUrl,
+                                                         String stackParameterFilePath,
+                                                         CloudFormationAsyncClient cfAsyncClient,
+                                                         S3Client s3client, String stackName, String condition,
+                                                         String deploymentArtifactRegEx,
+                                                         AwsCredentialsProvider credentials,
+                                                         StackInputParameter[] inputParameters,
+                                                         Map<String, String> outputParameters,
+                                                         StackOutputParameterMapping[] outputParameterMappings,
+                                                         CliCommandOutputParameterMapping[] cliCommandOutputParameterMappings,
+                                                         ParameterValueCheckCondition checkCondition, String region,
+                                                         StagedStack staged) {
+
+        CloudFormationOperations operations = stackOperations(cfAsyncClient, credentials, region);
+
+        return CloudFormationOperations.run(() -> {
+
+            // Determine if the template is required in this deployment.
+            if(!shouldExecuteStack(condition) || !evaluateCheckCondition(checkCondition, outputParameters)) {
+
+                if(staged != null) discardChangeSet(staged, operations);
+
+                audit.write(stackName + " is not required.\n");
+                System.out.println( stackName + " is not required.");
+                System.out.println();
+
+                return CompletableFuture.<Void>completedFuture(null);
+            }
+
+            // The prepared input parameters and change set are only used when the output parameters they were read
+            // with didn't change.
+            boolean current = (staged != null) && !readOnly && staged.isCurrent(outputParameters, parameterStoreWrites);
+            if((staged != null) && !current) discardChangeSet(staged, operations);
+            if((staged != null) && !current && (staged.getParameters() != null)) {
+
+                audit.write("The prepared input parameters of " + stackName + " are stale.\n");
+                System.out.println("The prepared input parameters of " + stackName + " are stale.");
+            }
+
+            CompletableFuture<Parameter[]> prefetchedParameters = current ? staged.getParameters() : null;
+            CompletableFuture<DescribeChangeSetResponse> preparedChangeSet = current ? staged.getChangeSet() :
+                    CompletableFuture.completedFuture(null);
+
+            // The parameters and artifacts of a planned stack were resolved when it was planned.
+            if((goal == Goal.APPLY) && !readOnly)
+                return applyStack(deploymentPlan.next(stackName, region, outputParameters), operations, credentials,
+                        outputParameters, outputParameterMappings, cliCommandOutputParameterMappings, region);
+
+            // Determine if the stack exists, store the deployment artifact and read the input parameters at the same
+            // time.  Input parameters that match an output parameter of the deployment artifact wait for it.  The
+            // audit lines of the artifact are kept until the stack is announced.  The outputs of a read only stack
+            // are taken from the description that tells it exists or, when it was described by this execution and
+            // not deployed since, from its snapshot.
+            DescribeStacksResponse snapshot = readOnly ?
+                    outputSnapshot.describe(resolvedRegion(region), stackAccount(credentials), stackName) : null;
+            CompletableFuture<DescribeStacksResponse> found = snapshot != null ?
+                    CompletableFuture.completedFuture(snapshot) : operations.find(stackName);
+            CompletableFuture<Boolean> existence = found.thenApply(Objects::nonNull);
+            CompletableFuture<Map<String, String>> artifact = CompletableFuture.completedFuture(Collections.emptyMap());
+            CompletableFuture<Parameter[]> stackParameters = CompletableFuture.completedFuture(null);
+            StringWriter artifactAudit = new StringWriter();
+
+            if(!readOnly) {
+
+                artifact = CloudFormationOperations.supply(() ->
+                        storeDeploymentArtifact(s3client, deploymentArtifactRegEx, artifactAudit), pipelineExecutor);
+
+                boolean matchesArtifact = (deploymentArtifactRegEx != null) && (inputParameters != null) &&
+                        Arrays.stream(inputParameters).anyMatch(param -> ARTIFACT_PARAMETERS.contains(
+                                param.matchingParameterName));
+
+                stackParameters = prefetchedParameters != null ? prefetchedParameters : matchesArtifact ?
+                        artifact.thenComposeAsync(artifactParameters -> CloudFormationOperations.run(() -> {
+
+                            Map<String, String> parameters = new HashMap<>(outputParameters);
+                            parameters.putAll(artifactParameters);
+
+                            return CompletableFuture.completedFuture(getInputParameters(stackParameterFilePath,
+                                    credentials, inputParameters, parameters, region));
+
+                        }), pipelineExecutor) :
+                        CloudFormationOperations.supply(() -> getInputParameters(stackParameterFilePath,
+                                credentials, inputParameters, outputParameters, region), pipelineExecutor);
+            }
+
+            CompletableFuture<Map<String, String>> storedArtifact = artifact;
+            CompletableFuture<Parameter[]> readParameters = stackParameters;
+
+            return CloudFormationOperations.allOf(existence, storedArtifact, readParameters, preparedChangeSet)
+                    .thenComposeAsync(ready -> CloudFormationOperations.run(() -> readOnly ||
+                            (preparedChangeSet.join() != null) ? CompletableFuture.completedFuture(null) :
+                            unchangedStack(existence.join(), operations, stackName, credentials, region,
+                                    templateHashes.get(templateUrl),
+                                    parametersHash(readParameters.join()),
+                                    DeploymentState.hash(storedArtifact.join()))), pipelineExecutor)
+                    .thenComposeAsync(unchanged -> CloudFormationOperations.run(() -> ProcessTemplate(readOnly,
+                            existence.join(), storedArtifact.join(), artifactAudit.toString(), readParameters.join(),
+                            preparedChangeSet.join(), unchanged, found.join(), templateUrl, operations, stackName,
+                            credentials,
+                            inputParameters, outputParameters, outputParameterMappings,
+                            cliCommandOutputParameterMappings, region)), pipelineExecutor);
+        });
+    }
+
+    /**
+     * Use this method to create or update the stack once the preflight steps of ExecuteTemplate are done and to
+     * process its output parameters.
+     *
+     * @param readOnly is a flag to signal if the template is used to read the output parameters without update.
+     * @param cloudFormationExists is a flag to signal that the stack exists.
+     * @param artifactParameters are the output parameters of the deployment artifact.
+     * @param artifactAudit are the audit lines written while storing the deployment artifact.
+     * @param parameters are the input parameters of the stack or null when the stack is read only.
+     * @param preparedChangeSet is the change set created before the stack's turn or null to create it now.
+     * @param unchanged is the description of a stack whose inputs didn't change since its last deployment or null to
+     *                  deploy the stack.
+     * @param found is the description of the stack before its turn or null when it doesn't exist.
+     * @param templateUrl contains the URL to the template to execute.
+     * @param operations performs the CloudFormation operations of the stack.
+     * @param stackName is the name of the stack.
+     * @param credentials are the credentials used to access the Parameter Store and CLI commands.
+     * @param inputParameters are the input parameter mappings of the stack.
+     * @param outputParameters is the collection of output parameters.
+     * @param outputParameterMappings are the mappings of the stack outputs to save in the Parameter Store.
+     * @param cliCommandOutputParameterMappings are the CLI commands to run after the stack.
+     * @param region is the region of the stack.
+     * @return a future that completes when the stack is done and its output parameters are processed.
+     * @throws IOException when the audit log can't be written.
+     */
+    private CompletableFuture<Void> ProcessTemplate(Boolean readOnly, boolean cloudFormationExists,
+                                                    Map<String, String> artifactParameters, String artifactAudit,
+                                                    Parameter[] parameters,
+                                                    DescribeChangeSetResponse preparedChangeSet,
+                                                    DescribeStacksResponse unchanged, DescribeStacksResponse found,
+                                                    String templateUrl,
+                                                    CloudFormationOperations operations, String stackName,
+                                                    AwsCredentialsProvider credentials,
+                                                    StackInputParameter[] inputParameters,
+                                                    Map<String, String> outputParameters,
+                                                    StackOutputParameterMapping[] outputParameterMappings,
+                                                    CliCommandOutputParameterMapping[] cliCommandOutputParameterMappings,
+                                                    String region) throws IOException, NoSuchAlgorithmException {
 
         String auditString;
         Predicate<StackInputParameter> sha = param -> param.parameterName.equals("CodeSHA256");
@@ -1459,117 +2207,1054 @@ public class CloudFormationDeployMavenPlugin extends AbstractMojo {
         } else auditString = (cloudFormationExists ? "Updating" : "Creating") + " the CloudFormation Stack (" +
                 stackName + ").\n";
 
-        // Determine if the template is required in this deployment.
-        if(shouldExecuteStack(condition) && evaluateCheckCondition(checkCondition, outputParameters)) {
+        // Continue processing the template.
+        audit.write(auditString);
+        System.out.print(auditString);
 
-            // Continue processing the template.
-            audit.write(auditString);
-            System.out.print(auditString);
+        CompletableFuture<Void> deployment = CompletableFuture.completedFuture(null);
+        if(!readOnly) {
 
-            if(!readOnly) {
+            if(unchanged == null)
+                outputSnapshot.invalidate(resolvedRegion(region), stackAccount(credentials), stackName);
+            audit.write(artifactAudit);
+            outputParameters.putAll(artifactParameters);
 
-                storeDeploymentArtifact(s3client, deploymentArtifactRegEx, outputParameters);
+            if((inputParameters != null) && Arrays.stream(inputParameters).anyMatch(sha) && (preparedChangeSet == null))
+                deployment = CloudFormationOperations.delay(10000);
 
-                // Read the stack parameters.
-                Parameter[] parameters = getInputParameters(stackParameterFilePath, credentials, inputParameters,
-                        outputParameters, region);
+            // Plan the changes of the stack or check to see if the stack has changes to process.
+            if(cloudFormationExists && (preparedChangeSet != null)) {
 
-                if((inputParameters != null) && Arrays.stream(inputParameters).anyMatch(sha)) Thread.sleep(10000);
+                audit.write("Using the change set prepared while the previous stack deployed.\n");
+                deployment = processChangeSet(operations, stackName, preparedChangeSet.changeSetName(),
+                        preparedChangeSet)
+                        .thenRun(() -> invalidateStackReads(region));
 
-                // Check to see if the stack has changes to process.
-                if (cloudFormationExists) {
+            } else if(goal == Goal.PLAN)
+                deployment = deployment.thenCompose(v ->
+                        planStack(templateUrl, operations, stackName, parameters, cloudFormationExists, credentials,
+                                inputParameters, outputParameters, region));
 
-                    DetectAndProcessStackChanges(templateUrl, cfAsyncClient, stackName, parameters);
+            else if(unchanged != null) deployment = CloudFormationOperations.run(() -> {
 
-                } else {
+                audit.write("No changes to the inputs of " + stackName + " since the last deployment.\n");
+                System.out.println("No changes to the inputs of " + stackName + " since the last deployment.");
+
+                return CompletableFuture.completedFuture(null);
+            });
+
+            else deployment = deployment.thenCompose(v -> cloudFormationExists ?
+                    DetectAndProcessStackChanges(templateUrl, operations, stackName, parameters) :
+                    createStack(stackName, templateUrl, operations, parameters))
+
+                    // The stack operation may change what the cached CLI commands and exports describe.
+                    .thenRun(() -> invalidateStackReads(region));
+        }
+
+        // Record the state of a deployed stack once it is done.  Stacks named from a prefix are new every time.
+        // The outputs are taken from the description of the last operation or of the existence check.  A stack that
+        // is planned but doesn't exist yet has no outputs.
+        CompletableFuture<DescribeStacksResponse> description = unchanged != null ?
+                CompletableFuture.completedFuture(unchanged) : (goal == Goal.PLAN) && !cloudFormationExists ?
+                deployment.thenApply(v -> null) :
+                deployment.thenCompose(v -> operations.describeSettledStack(stackName, found));
+
+        if(!readOnly && (deploymentState != null) && !DeploymentPlan.isGeneratedName(stackName)) {
+
+            String parametersHash = parametersHash(parameters);
+            String artifactDigest = DeploymentState.hash(artifactParameters);
+            // The state is written as each stack is recorded so that a failed deployment keeps the stacks it finished.
+            description = description.thenComposeAsync(stackDescription -> CloudFormationOperations.run(() -> {
+
+                deploymentState.put(new DeploymentState.Entry(stackName, resolvedRegion(region),
+                        stackAccount(credentials), templateHashes.get(templateUrl), parametersHash, artifactDigest,
+                        lastUpdated(stackDescription), outputsHash(stackDescription)));
+                writeDeploymentState();
+
+                return CompletableFuture.completedFuture(stackDescription);
+
+            }), pipelineExecutor);
+        }
+
+        return processStackOutputs(description, credentials, outputParameters, outputParameterMappings,
+                cliCommandOutputParameterMappings, region);
+    }
+
+    /**
+     * Use this method to expose the output parameters as properties of the project and the session.  The output
+     * parameters mapped to a SecureString field are left out.
+     *
+     * @param outputParameters are the output parameters.
+     */
+    private void exportOutputParameters(Map<String, String> outputParameters) {
+
+        if(outputPropertyPrefix == null) return;
+
+        for (Map.Entry<String, String> parameter : new HashMap<>(outputParameters).entrySet()) {
+
+            if((parameter.getValue() == null) || secureOutputNames.contains(parameter.getKey())) continue;
+            if(projectProperties != null)
+                projectProperties.setProperty(outputPropertyPrefix + parameter.getKey(), parameter.getValue());
+            if(sessionProperties != null)
+                sessionProperties.setProperty(outputPropertyPrefix + parameter.getKey(), parameter.getValue());
+        }
+    }
+
+    /**
+     * Use this method to check if a stack can be skipped because its inputs didn't change since its last deployment.
+     * The stack must not have been updated since then either.
+     *
+     * @param cloudFormationExists is a flag to signal that the stack exists.
+     * @param operations performs the CloudFormation operations of the stack.
+     * @param stackName is the name of the stack.
+     * @param credentials are the credentials of the stack.
+     * @param region is the region of the stack or null for the default region.
+     * @param templateHash is the hash of the template or null when it is unknown.
+     * @param parametersHash is the hash of the resolved input parameters.
+     * @param artifactDigest is the digest of the deployment artifact.
+     * @return the future of the description of the stack.  It completes with null when the stack must be deployed.
+     */
+    private CompletableFuture<DescribeStacksResponse> unchangedStack(boolean cloudFormationExists,
+                                                                     CloudFormationOperations operations,
+                                                                     String stackName,
+                                                                     AwsCredentialsProvider credentials, String region,
+                                                                     String templateHash, String parametersHash,
+                                                                     String artifactDigest) {
+
+        DeploymentState.Entry entry = deploymentState == null ? null :
+                deploymentState.get(resolvedRegion(region), stackAccount(credentials), stackName);
+        if(!incrementalDeploy || !cloudFormationExists || (entry == null) ||
+                !entry.matches(templateHash, parametersHash, artifactDigest))
+            return CompletableFuture.completedFuture(null);
+
+        // The outputs of the stack are taken from the description only when they match the recorded outputs.
+        return operations.describeStack(stackName).thenApply(stackDescription -> {
+
+            try {
+
+                return (lastUpdated(stackDescription) == entry.getLastUpdated()) &&
+                        outputsHash(stackDescription).equals(entry.getOutputsHash()) ? stackDescription : null;
+
+            } catch (NoSuchAlgorithmException ex) {
+
+                throw new CompletionException(ex);
+            }
+        });
+    }
+
+    /**
+     * Use this method to hash the resolved input parameters of a stack.
+     *
+     * @param parameters are the input parameters.
+     * @return the hash of the parameters.
+     * @throws NoSuchAlgorithmException when the SHA-256 algorithm doesn't exist.
+     */
+    static private String parametersHash(Parameter[] parameters) throws NoSuchAlgorithmException {
+
+        Map<String, String> values = new HashMap<>();
+        if(parameters != null)
+            for (Parameter parameter : parameters) values.put(parameter.parameterKey(), parameter.parameterValue());
+
+        return DeploymentState.hash(values);
+    }
+
+    /**
+     * Use this method to hash the outputs of a stack.
+     *
+     * @param stackDescription is the description of the stack.
+     * @return the hash of the outputs.
+     * @throws NoSuchAlgorithmException when the SHA-256 algorithm doesn't exist.
+     */
+    static private String outputsHash(DescribeStacksResponse stackDescription) throws NoSuchAlgorithmException {
+
+        Map<String, String> values = new HashMap<>();
+        for (Output output : stackDescription.stacks().get(0).outputs())
+            values.put(output.outputKey(), output.outputValue());
+
+        return DeploymentState.hash(values);
+    }
+
+    /**
+     * Use this method to get the time a stack was last updated or created.
+     *
+     * @param stackDescription is the description of the stack.
+     * @return the time in milliseconds or zero when it isn't known.
+     */
+    static private long lastUpdated(DescribeStacksResponse stackDescription) {
+
+        software.amazon.awssdk.services.cloudformation.model.Stack stack = stackDescription.stacks().get(0);
+        if(stack.lastUpdatedTime() != null) return stack.lastUpdatedTime().toEpochMilli();
+
+        return stack.creationTime() != null ? stack.creationTime().toEpochMilli() : 0;
+    }
 
-                    // Create or update the Stack.
-                    createStack(stackName, templateUrl, cfAsyncClient, parameters);
+    /**
+     * Use this method to add the outputs of a stack and of its CLI commands to the output parameters.  When a plan is
+     * made, the outputs aren't saved to the Parameter Store.
+     *
+     * @param description is the future of the description of the stack once it is done.
+     * @param credentials are the credentials used to access the Parameter Store and CLI commands.
+     * @param outputParameters is the collection of output parameters.
+     * @param outputParameterMappings are the mappings of the stack outputs to save in the Parameter Store.
+     * @param cliCommandOutputParameterMappings are the CLI commands to run after the stack.
+     * @param region is the region of the stack.
+     * @return a future that completes when the output parameters are processed.
+     */
+    private CompletableFuture<Void> processStackOutputs(CompletableFuture<DescribeStacksResponse> description,
+                                                        AwsCredentialsProvider credentials,
+                                                        Map<String, String> outputParameters,
+                                                        StackOutputParameterMapping[] outputParameterMappings,
+                                                        CliCommandOutputParameterMapping[] cliCommandOutputParameterMappings,
+                                                        String region) {
+
+        System.out.println();
+        return description
+                .thenComposeAsync(stackDescription -> CloudFormationOperations.run(() -> {
+
+                    if(stackDescription != null) {
+
+                        long lastUpdated = lastUpdated(stackDescription);
+                        stackUpdateTimes.put(stackDescription.stacks().get(0).stackName(), lastUpdated);
+                        if(stackDescription.stacks().get(0).stackId() != null)
+                            stackIds.put(stackDescription.stacks().get(0).stackName(),
+                                    stackDescription.stacks().get(0).stackId());
+                        outputSnapshot.put(resolvedRegion(region), stackAccount(credentials), stackDescription,
+                                lastUpdated);
+                    }
 
+                    // Add output parameters from the stack run and optionally save them to the Parameter Store.
+                    SsmClient ssmClient = getClients().createSsmClient(region, credentials);
+
+                    processOutputParameters(stackDescription, ssmClient, outputParameters,
+                            outputParameterMappings, region);
+
+                    // The commands can have side effects, so a plan leaves them to the apply goal.
+                    if(goal != Goal.PLAN)
+                        processCommandOutputParameters(credentials, ssmClient, outputParameters,
+                                cliCommandOutputParameterMappings, region);
+
+                    else if(cliCommandOutputParameterMappings != null)
+                        System.out.println("The command output parameter mappings are run when the plan is applied.");
+
+                    exportOutputParameters(outputParameters);
+
+                    return CompletableFuture.<Void>completedFuture(null);
+
+                }), pipelineExecutor);
+    }
+
+    /**
+     * Use this method to create the change set of a stack for a plan without executing it.  A stack that doesn't
+     * exist is planned with a CREATE change set.  The change set and a summary of each change are added to the plan
+     * with the role of the stack and the hashes of the output parameters its input parameters were resolved with.  The
+     * parameters of the deployment artifact aren't kept, the artifact is part of the fingerprint of the plan.
+     *
+     * @param templateUrl is the URL to the template to deploy.
+     * @param operations performs the CloudFormation operations of the stack.
+     * @param stackName is the name of the stack.
+     * @param parameters are the input parameters of the stack.
+     * @param cloudFormationExists is a flag to signal that the stack exists.
+     * @param credentials are the credentials of the stack.
+     * @param inputParameters are the input parameter mappings of the stack.
+     * @param outputParameters is the collection of output parameters.
+     * @param region is the region of the stack.
+     * @return a future that completes when the change set is created.
+     */
+    private CompletableFuture<Void> planStack(String templateUrl, CloudFormationOperations operations,
+                                              String stackName, Parameter[] parameters,
+                                              boolean cloudFormationExists, AwsCredentialsProvider credentials,
+                                              StackInputParameter[] inputParameters,
+                                              Map<String, String> outputParameters, String region) {
+
+        Map<String, String> assumedOutputs = new HashMap<>();
+        for (StackInputParameter param : inputParameters == null ? new StackInputParameter[0] : inputParameters)
+            if((param.matchingParameterName != null) && !ARTIFACT_PARAMETERS.contains(param.matchingParameterName) &&
+                    outputParameters.containsKey(param.matchingParameterName))
+                assumedOutputs.put(param.matchingParameterName, outputParameters.get(param.matchingParameterName));
+
+        String changeSetType = cloudFormationExists ? "UPDATE" : "CREATE";
+        CreateChangeSetRequest.Builder changeSetRequest = CreateChangeSetRequest.builder()
+                .parameters(parameters)
+                .stackName(stackName)
+                .changeSetType(changeSetType)
+                .templateURL(templateUrl)
+                .changeSetName("P-" + UUID.randomUUID().toString())
+                .usePreviousTemplate(false)
+                .clientToken(UUID.randomUUID().toString());
+
+        if(requiresIAM) changeSetRequest.capabilities(Capability.CAPABILITY_NAMED_IAM);
+
+        return operations.createChangeSet(changeSetRequest.build()).thenCompose(result -> CloudFormationOperations.run(() -> {
+
+            List<String> changes = new ArrayList<>();
+            if((result != null) && (result.status() != ChangeSetStatus.FAILED))
+                for (Change change : result.changes()) {
+
+                    ResourceChange resource = change.resourceChange();
+                    changes.add(resource.actionAsString() + " " + resource.logicalResourceId() + " (" +
+                            resource.resourceType() + ")" + (resource.replacement() == Replacement.TRUE ?
+                            " with replacement" : ""));
+                }
+
+            Map<String, String> assumedHashes = new HashMap<>();
+            for (Map.Entry<String, String> assumed : assumedOutputs.entrySet())
+                assumedHashes.put(assumed.getKey(), DeploymentPlan.hashOutput(assumed.getKey(), assumed.getValue()));
+
+            deploymentPlan.add(new DeploymentPlan.Entry(stackName, region, credentialRoles.get(credentials),
+                    changeSetType, changes.isEmpty() ? null : result.changeSetId(), changes, assumedHashes));
+
+            audit.write("Planned " + changes.size() + (changes.size() == 1 ? " change" : " changes") + " to " +
+                    stackName + ".\n");
+            for (String change : changes) audit.write("\t" + change + "\n");
+            System.out.println("Planned " + changes.size() + " changes to " + stackName + ".");
+
+            // A CREATE change set that was deleted without changes leaves the stack it made in review.
+            return changes.isEmpty() && changeSetType.equals("CREATE") ?
+                    operations.deleteReviewStack(stackName).<Void>thenApply(deleted -> null) :
+                    CompletableFuture.<Void>completedFuture(null);
+        }));
+    }
+
+    /**
+     * Use this method to execute the planned change set of a stack and process its outputs.  A stack planned without
+     * changes isn't executed.
+     *
+     * @param entry is the planned change set of the stack.
+     * @param operations performs the CloudFormation operations of the stack.
+     * @param credentials are the credentials used to access the Parameter Store and CLI commands.
+     * @param outputParameters is the collection of output parameters.
+     * @param outputParameterMappings are the mappings of the stack outputs to save in the Parameter Store.
+     * @param cliCommandOutputParameterMappings are the CLI commands to run after the stack.
+     * @param region is the region of the stack.
+     * @return a future that completes when the stack is done and its output parameters are processed.
+     * @throws IOException when the audit log can't be written.
+     */
+    private CompletableFuture<Void> applyStack(DeploymentPlan.Entry entry, CloudFormationOperations operations,
+                                               AwsCredentialsProvider credentials,
+                                               Map<String, String> outputParameters,
+                                               StackOutputParameterMapping[] outputParameterMappings,
+                                               CliCommandOutputParameterMapping[] cliCommandOutputParameterMappings,
+                                               String region) throws IOException {
+
+        String stackName = entry.getStackName();
+        outputSnapshot.invalidate(resolvedRegion(region), stackAccount(credentials), stackName);
+        String auditString = "Applying the plan to the CloudFormation Stack (" + stackName + ").\n";
+        audit.write(auditString);
+        System.out.print(auditString);
+
+        CompletableFuture<Void> deployment;
+        if(entry.getChangeSetId() == null) deployment = CloudFormationOperations.run(() -> {
+
+            audit.write("No changes to the Stack required.\n");
+            System.out.println("No changes to the Stack required.");
+
+            return CompletableFuture.completedFuture(null);
+        });
+
+        else deployment = operations.describeChangeSet(stackName, entry.getChangeSetId())
+                .thenCompose(changeSet -> {
+
+                    if(changeSet.executionStatus() != ExecutionStatus.AVAILABLE)
+                        return CompletableFuture.<Void>failedFuture(new MojoExecutionException("The plan is stale: " +
+                                "the change set of " + stackName + " is " + changeSet.executionStatusAsString() + "."));
+
+                    entry.executed();
+                    return operations.executeChangeSet(ExecuteChangeSetRequest.builder()
+                            .changeSetName(entry.getChangeSetId())
+                            .stackName(stackName)
+                            .clientRequestToken(UUID.randomUUID().toString())
+                            .build());
+                })
+                .thenCompose(v -> CloudFormationOperations.run(() -> {
+
+                    audit.write((entry.getChangeSetType().equals("CREATE") ? "Created " : "Updated ") + stackName +
+                            " with id: " + entry.getChangeSetId() + ".\n");
                     audit.write("Stack Finished.\n");
                     System.out.println("Stack Finished.");
+
+                    return CompletableFuture.<Void>completedFuture(null);
+                }))
+
+                // The stack operation may change what the cached CLI commands and exports describe.
+                .thenRun(() -> invalidateStackReads(region));
+
+        return processStackOutputs(deployment.thenCompose(v -> operations.describeSettledStack(stackName, null)),
+                credentials, outputParameters, outputParameterMappings, cliCommandOutputParameterMappings, region);
+    }
+
+    /**
+     * Use this method to delete the change sets of a plan that won't be applied.  A stack in review that a CREATE
+     * change set of the plan made is deleted with it.  The change sets are deleted concurrently with a client for each
+     * role and region.  Failures are ignored, the change sets are only left behind.
+     *
+     * @param plan is the plan.
+     * @throws IOException when the credentials can't be created.
+     * @throws MojoExecutionException when the credentials can't be created.
+     */
+    private void discardPlan(DeploymentPlan plan) throws IOException, MojoExecutionException {
+
+        Map<String, AwsCredentialsProvider> credentials = new HashMap<>();
+        Map<String, CloudFormationAsyncClient> clients = new HashMap<>();
+        List<CompletableFuture<Void>> deletions = new ArrayList<>();
+
+        try {
+
+            for (DeploymentPlan.Entry entry : plan.getUnexecuted()) {
+
+                if(!credentials.containsKey(entry.getRoleArn()))
+                    credentials.put(entry.getRoleArn(), getAwsCredentialsProvider(entry.getRoleArn()));
+
+                String clientKey = entry.getRoleArn() + "/" + entry.getRegion();
+                if(!clients.containsKey(clientKey))
+                    clients.put(clientKey, getClients().createCloudFormationClient(entry.getRegion(),
+                            credentials.get(entry.getRoleArn())));
+
+                CloudFormationOperations operations = new CloudFormationOperations(clients.get(clientKey));
+                CompletableFuture<Void> deletion = operations.deleteChangeSet(entry.getStackName(),
+                        entry.getChangeSetId());
+                if(entry.getChangeSetType().equals("CREATE"))
+                    deletion = deletion.thenCompose(v -> operations.deleteReviewStack(entry.getStackName()))
+                            .thenApply(deleted -> null);
+
+                deletions.add(deletion.exceptionally(ex -> null));
+            }
+
+            for (CompletableFuture<Void> deletion : deletions) deletion.join();
+
+        } finally {
+
+            for (CloudFormationAsyncClient client : clients.values()) client.close();
+        }
+
+        if(!deletions.isEmpty())
+            System.out.println("Deleted the change sets of " + deletions.size() + " planned stacks.");
+    }
+
+    /**
+     * Use this method to describe every read only stack of the deployment concurrently.  The descriptions are kept as
+     * current snapshots, so that the stacks aren't described again at their turn.  The stacks of a role and region
+     * share a client, which is closed once the descriptions are done.  Each stack is described in the
+     * region and with the role it is read with.  A stack that can't be described is described again at its turn.  The
+     * stacks that are skipped or, with a role, may be skipped by a check condition are left for their turn.
+     *
+     * @param sessionCredentials are the credentials of the deployment.
+     * @throws MojoExecutionException when a region condition isn't valid or the credentials can't be created.
+     * @throws IOException when the credentials can't be created.
+     */
+    private void harvestReadOnlyStacks(AwsCredentialsProvider sessionCredentials)
+            throws MojoExecutionException, IOException {
+
+        // The primary stack sets the region of the secondary stacks without a region.
+        boolean testedRegionCondition = testRegionCondition(regionCondition, regionConditionExclude);
+        String primaryRegion = region;
+        if((regionCondition != null) && (testedRegionCondition || regionConditionElseStackReadOnly))
+            primaryRegion = primaryRegion == null ? regionCondition : primaryRegion;
+        else if((primaryRegion == null) && (deploymentRegionOverride != null)) primaryRegion = deploymentRegionOverride;
+
+        List<CompletableFuture<DescribeStacksResponse>> descriptions = new ArrayList<>();
+        Map<String, CloudFormationAsyncClient> clients = new HashMap<>();
+        int harvested = 0;
+
+        try {
+
+            if((testedRegionCondition || regionConditionElseStackReadOnly) &&
+                    (Boolean.TRUE.equals(stackReadOnly) || !testedRegionCondition))
+                descriptions.add(harvestStack(harvestClient(clients, null, primaryRegion, sessionCredentials),
+                        stackName, primaryRegion, sessionCredentials));
+
+            Map<String, AwsCredentialsProvider> roles = new HashMap<>();
+            for (StackGroup group : secondaryStackGroups == null ? new StackGroup[0] : secondaryStackGroups)
+                for (SecondaryStack stack : group.stacks) {
+
+                    boolean tested = resolveStackRegion(stack);
+                    if((stack.stackName == null) || !(tested || stack.regionConditionElseStackReadOnly) ||
+                            !(Boolean.TRUE.equals(stack.stackReadOnly) || !tested)) continue;
+
+                    // Don't assume a role for a stack that is skipped or may be skipped at its turn.
+                    if((stack.condition != null) && ((conditions == null) ||
+                            !Boolean.TRUE.equals(conditions.get(stack.condition)))) continue;
+                    if((stack.roleArn != null) && (stack.checkCondition != null)) continue;
+
+                    AwsCredentialsProvider credentials = sessionCredentials;
+                    if(stack.roleArn != null) {
+
+                        if(!roles.containsKey(stack.roleArn))
+                            roles.put(stack.roleArn, getAwsCredentialsProvider(stack.roleArn));
+                        credentials = roles.get(stack.roleArn);
+                    }
+
+                    String stackRegion = (stack.roleArn != null) || (stack.region != null) ? stack.region :
+                            primaryRegion;
+                    descriptions.add(harvestStack(harvestClient(clients, stack.roleArn, stackRegion, credentials),
+                            stack.stackName, stackRegion(stack), credentials));
+                }
+
+            for (CompletableFuture<DescribeStacksResponse> description : descriptions)
+                if(description.exceptionally(ex -> null).join() != null) harvested++;
+
+        } finally {
+
+            for (CloudFormationAsyncClient client : clients.values()) client.close();
+        }
+
+        if(harvested > 0) System.out.println("Read the outputs of " + harvested + " read only stacks.");
+    }
+
+    /**
+     * Use this method to get the CloudFormation client the read only stacks of a role and region are described with.
+     * The client is created on first use and shared by the stacks of the role and region.
+     *
+     * @param clients are the clients by role and region.
+     * @param roleArn is the role of the stack or null for the credentials of the deployment.
+     * @param region is the region of the client or null for the default region.
+     * @param credentials are the credentials of the stack.
+     * @return the client.
+     */
+    private CloudFormationAsyncClient harvestClient(Map<String, CloudFormationAsyncClient> clients, String roleArn,
+                                                    String region, AwsCredentialsProvider credentials) {
+
+        return clients.computeIfAbsent(roleArn + "/" + region,
+                key -> getClients().createCloudFormationClient(region, credentials));
+    }
+
+    /**
+     * Use this method to describe a read only stack and keep its description as a current snapshot.  The snapshot is
+     * kept under the region and account the stack is read with at its turn.
+     *
+     * @param cfAsyncClient is the CloudFormation client of the stack.
+     * @param stackName is the name of the stack.
+     * @param region is the region the stack is read in at its turn or null for the default region.
+     * @param credentials are the credentials of the stack.
+     * @return the future of the description or of null when the stack doesn't exist.
+     */
+    private CompletableFuture<DescribeStacksResponse> harvestStack(CloudFormationAsyncClient cfAsyncClient,
+                                                                   String stackName, String region,
+                                                                   AwsCredentialsProvider credentials) {
+
+        return new CloudFormationOperations(cfAsyncClient).find(stackName).thenApply(stackDescription -> {
+
+            if(stackDescription != null)
+                outputSnapshot.put(resolvedRegion(region), stackAccount(credentials), stackDescription,
+                        lastUpdated(stackDescription));
+
+            return stackDescription;
+        });
+    }
+
+    /**
+     * Use this method to read the checkpoint of a failed deployment and check that it can be resumed.  The
+     * configuration must be the one the checkpoint was made from and the stacks that finished before it must not have
+     * been updated since.  The stacks are described concurrently and their descriptions are kept so that their
+     * outputs can be read again.
+     *
+     * @param checkpointFile is the checkpoint file in the output directory.
+     * @return the checkpoint or null when every stack must be deployed.
+     * @throws IOException when the audit log can't be written or a file can't be read.
+     * @throws MojoExecutionException when the checkpoint can't be read or the credentials can't be created.
+     * @throws NoSuchAlgorithmException when the SHA-256 algorithm doesn't exist.
+     */
+    private DeploymentCheckpoint resumeCheckpoint(File checkpointFile)
+            throws IOException, MojoExecutionException, NoSuchAlgorithmException {
+
+        DeploymentCheckpoint checkpoint = DeploymentCheckpoint.read(checkpointFile);
+        String reason = checkpoint == null ? "there isn't a checkpoint" :
+                !checkpoint.getFingerprint().equals(planFingerprint(null)) ? "the templates or parameters changed" :
+                null;
+
+        if(reason == null) {
+
+            Map<String, AwsCredentialsProvider> credentials = new HashMap<>();
+            Map<String, CloudFormationAsyncClient> clients = new HashMap<>();
+            List<CompletableFuture<Boolean>> checks = new ArrayList<>();
+
+            try {
+
+                for (DeploymentCheckpoint.Entry entry : checkpoint.getStacks()) {
+
+                    if(entry.getLastUpdated() == null) continue;
+                    if(!credentials.containsKey(entry.getRoleArn()))
+                        credentials.put(entry.getRoleArn(), getAwsCredentialsProvider(entry.getRoleArn()));
+
+                    String clientKey = entry.getRoleArn() + "/" + entry.getRegion();
+                    if(!clients.containsKey(clientKey))
+                        clients.put(clientKey, getClients().createCloudFormationClient(entry.getRegion(),
+                                credentials.get(entry.getRoleArn())));
+
+                    // A stack is described by its ID so that a stack created again with the same name isn't taken.
+                    checks.add(new CloudFormationOperations(clients.get(clientKey))
+                            .describeStack(entry.getStackId() != null ? entry.getStackId() : entry.getStackName())
+                            .thenApply(stackDescription -> {
+
+                                boolean unchanged = lastUpdated(stackDescription) == entry.getLastUpdated();
+                                if(unchanged) synchronized(resumedStacks) {
+
+                                    resumedStacks.put(entry, stackDescription);
+                                }
+
+                                return unchanged;
+                            })
+                            .exceptionally(ex -> false));
                 }
+
+                for (CompletableFuture<Boolean> check : checks)
+                    if(!check.join()) reason = "a stack was updated since the checkpoint";
+
+            } finally {
+
+                for (CloudFormationAsyncClient client : clients.values()) client.close();
             }
+        }
 
-            System.out.println();
+        String message = reason == null ? "Resuming the deployment from the checkpoint." :
+                "Deploying every stack because " + reason + ".";
+        audit.write(message + "\n");
+        System.out.println(message);
 
-            // Add output parameters from the stack run and optionally save them to the Parameter Store.
-            SsmClient ssmClient;
-            if(region != null) ssmClient = (credentials != null) ?
-                    new ClientBuilder<SsmClient>().withRegion(region).build(ssmBuilder, credentials) :
-                    new ClientBuilder<SsmClient>().withRegion(region).build((ssmBuilder));
+        return reason == null ? checkpoint : null;
+    }
 
-            else ssmClient = (credentials != null) ?
-                    new ClientBuilder<SsmClient>().build(ssmBuilder, credentials) :
-                    new ClientBuilder<SsmClient>().build(ssmBuilder);
+    /**
+     * Use this method to read the outputs of a stack that finished before the checkpoint again.  The outputs are taken
+     * from the description read when the checkpoint was checked and mapped the way they were when the stack was
+     * deployed.  They aren't written to the Parameter Store again.
+     *
+     * @param entry is the finished stack or null when it wasn't recorded.
+     * @param outputParameters are the output parameters to add the outputs to.
+     * @param outputParameterMappings are the output parameter mappings of the stack.
+     * @param cliCommandOutputParameterMappings are the command output parameter mappings of the stack.
+     * @throws IOException when the audit log can't be written or a command can't be run.
+     * @throws MojoExecutionException when a mapping or command fails.
+     */
+    private void resumeOutputs(DeploymentCheckpoint.Entry entry, Map<String, String> outputParameters,
+                               StackOutputParameterMapping[] outputParameterMappings,
+                               CliCommandOutputParameterMapping[] cliCommandOutputParameterMappings)
+            throws IOException, MojoExecutionException {
 
+        DescribeStacksResponse stackDescription = entry == null ? null : resumedStacks.get(entry);
+        if(stackDescription == null) return;
 
-            processOutputParameters(cfAsyncClient, stackName, credentials, ssmClient, outputParameters,
-                    outputParameterMappings, region);
+        AwsCredentialsProvider credentials = getAwsCredentialsProvider(entry.getRoleArn());
+        SsmClient ssmClient = getClients().createSsmClient(entry.getRegion(), credentials);
 
+        resumingOutputs = true;
+        try {
+
+            processOutputParameters(stackDescription, ssmClient, outputParameters, outputParameterMappings,
+                    entry.getRegion());
             processCommandOutputParameters(credentials, ssmClient, outputParameters,
-                    cliCommandOutputParameterMappings, region);
+                    cliCommandOutputParameterMappings, entry.getRegion());
+
+            exportOutputParameters(outputParameters);
+
+        } finally {
+
+            resumingOutputs = false;
+            ssmClient.close();
+        }
+    }
+
+    /**
+     * Use this method to read the state of the stacks left by earlier deployments from S3 when deploymentStateS3Key is
+     * set or from the output directory.  S3 is read with the credentials of the state.
+     *
+     * @param stateFile is the state file in the output directory.
+     * @return the state.
+     * @throws IOException when the state can't be read.
+     * @throws MojoExecutionException when the state isn't valid.
+     */
+    private DeploymentState readDeploymentState(File stateFile) throws IOException, MojoExecutionException {
+
+        if(deploymentStateS3Key == null) return DeploymentState.read(stateFile);
+
+        try {
+
+            return DeploymentState.fromBytes(getDeploymentStateClient().getObjectAsBytes(GetObjectRequest.builder()
+                    .bucket(templateS3Bucket).key(deploymentStateS3Key).build()).asByteArray());
+
+        } catch (NoSuchKeyException ex) {
+
+            return new DeploymentState();
+        }
+    }
+
+    /**
+     * Use this method to write the state of the stacks to the output directory and, when deploymentStateS3Key is set,
+     * to S3.  The writes are serialized so that a later state isn't overwritten by an earlier one.
+     *
+     * @throws IOException when the state can't be written.
+     * @throws MojoExecutionException when the region can't be determined.
+     */
+    private synchronized void writeDeploymentState() throws IOException, MojoExecutionException {
+
+        deploymentState.write(deploymentStateFile);
+
+        if(deploymentStateS3Key != null) {
+
+            getDeploymentStateClient().putObject(PutObjectRequest.builder()
+                            .bucket(templateS3Bucket).key(deploymentStateS3Key).build(),
+                    RequestBody.fromBytes(deploymentState.toBytes()));
+        }
+    }
+
+    /**
+     * Use this method to get the client used to read and write the state of the stacks in S3.  It is created on first
+     * use with the credentials of the state and closed at the end of the execution.
+     *
+     * @return the S3 client.
+     * @throws MojoExecutionException when the region can't be determined.
+     */
+    private synchronized S3Client getDeploymentStateClient() throws MojoExecutionException {
+
+        if(deploymentStateClient == null)
+            deploymentStateClient = getClients().createS3Client(effectiveRegion().toString(),
+                    deploymentStateCredentials);
+
+        return deploymentStateClient;
+    }
+
+    /**
+     * Use this method to compute the fingerprint of the configuration a plan is made from.  It covers the stack names
+     * and the contents of the templates and parameter files of the stacks.  When the artifacts are given, it covers
+     * the contents of the artifacts and of the deployment artifacts of the stacks as well, since the apply goal
+     * doesn't upload them again.
+     *
+     * @param jars are the artifacts of the deployment or null to leave the artifacts out.
+     * @return the Base 64 encoded SHA-256 hash of the configuration.
+     * @throws IOException when a template, parameter file or artifact can't be read.
+     * @throws MojoExecutionException when a deployment artifact can't be found.
+     * @throws NoSuchAlgorithmException when the SHA-256 algorithm doesn't exist.
+     */
+    private String planFingerprint(File[] jars) throws IOException, MojoExecutionException, NoSuchAlgorithmException {
+
+        List<String> names = new ArrayList<>();
+        List<File> files = new ArrayList<>();
+
+        names.add(String.valueOf(stackName));
+        files.add(new File(stackPath));
+        for (String path : stackParameterFilePaths) files.add(new File(path));
+
+        if(secondaryStackGroups != null)
+            for (StackGroup group : secondaryStackGroups)
+                for (SecondaryStack stack : group.stacks) {
+
+                    names.add(stack.stackName != null ? stack.stackName : stack.stackNamePrefix);
+                    files.add(new File(stack.stackPath));
+                    if(stack.stackParameterFilePath != null) files.add(new File(stack.stackParameterFilePath));
+                    if((jars != null) && (stack.deploymentArtifactRegEx != null))
+                        files.add(findDeploymentArtifact(stack.deploymentArtifactRegEx));
+                }
+
+        if(jars != null)
+            Arrays.stream(jars).sorted(Comparator.comparing(File::getName)).forEach(files::add);
+
+        return DeploymentPlan.fingerprint(names, files);
+    }
+
+    /**
+     * Use this method to resolve the region of a secondary stack from its region condition.  The region of the stack is
+     * set when the condition selects it.  Resolving a stack again gives the same result.
+     *
+     * @param stack is the secondary stack.
+     * @return a flag indicating if the region condition of the stack is satisfied.
+     * @throws MojoExecutionException when a region of the condition isn't valid.
+     */
+    private boolean resolveStackRegion(SecondaryStack stack) throws MojoExecutionException {
+
+        boolean testedRegionCondition = testRegionCondition(stack.regionCondition, stack.regionConditionExclude);
+        if((stack.regionCondition != null) && !testedRegionCondition && stack.regionConditionElseStackReadOnly) {
+            stack.region = stack.region == null ? stack.regionCondition : stack.region;
 
         } else {
+            if ((stack.regionCondition != null) && testedRegionCondition) {
+                stack.region = stack.region == null ? stack.regionCondition : stack.region;
 
-            audit.write(stackName + " is not required.\n");
-            System.out.println( stackName + " is not required.");
-            System.out.println();
+            } else if ((stack.region == null) && (deploymentRegionOverride != null))
+                stack.region = deploymentRegionOverride;
+        }
+
+        return testedRegionCondition;
+    }
+
+    /**
+     * Use this method to get the region a secondary stack executes in.
+     *
+     * @param stack is the secondary stack with its region resolved.
+     * @return the region or null for the default region.
+     */
+    private String stackRegion(SecondaryStack stack) {
+
+        return (stack.region == null) && (deploymentRegionOverride != null) ? deploymentRegionOverride : stack.region;
+    }
+
+    /**
+     * Use this method to name a secondary stack and start uploading its template.  When credentials are given, the
+     * input parameters of the stack only match known output parameters, don't read a Parameter Store field that the
+     * previous stack writes and don't read CloudFormation exports, the input parameters are read as well.  When operations are given too and the stack
+     * exists, its change set is created.  All of it runs on the pipeline executor.
+     *
+     * @param stack is the secondary stack with its region resolved.
+     * @param s3Client is the client used to upload the template.
+     * @param credentials are the credentials used to read the input parameters or null to read them at the stack's
+     *                    turn.
+     * @param region is the region of the stack.
+     * @param knownOutputs are the output parameters known before the previous stack deploys or null when none are.
+     * @param pendingStoreNames are the Parameter Store fields the previous stack writes.
+     * @param operations performs the CloudFormation operations of the stack or null to create the change set at the
+     *                   stack's turn.
+     * @return the work prepared for the stack.
+     */
+    private StagedStack stageStack(SecondaryStack stack, S3Client s3Client, AwsCredentialsProvider credentials,
+                                   String region, Map<String, String> knownOutputs, Set<String> pendingStoreNames,
+                                   CloudFormationOperations operations) {
+
+        String secondaryStackName = (stack.stackName == null) ?
+                stack.stackNamePrefix + "-" + UUID.randomUUID().toString() + "Stack" :
+                stack.stackName;
+
+        String tempTemplateS3Prefix = stack.templateS3Prefix != null ? stack.templateS3Prefix : templateS3Prefix;
+        String tempTemplateS3Bucket = stack.templateS3Bucket != null ? stack.templateS3Bucket : templateS3Bucket;
+
+        File templateFile = new File(stack.stackPath);
+        String templateName = (tempTemplateS3Prefix != null ? tempTemplateS3Prefix + "/" : "") +
+                ZonedDateTime.now().toEpochSecond() + "-" + secondaryStackName +
+                "-" + templateFile.getName();
+
+        CompletableFuture<String> templateUrl = CloudFormationOperations.supply(() -> {
+
+            // The change sets of a plan already refer to their templates.
+            if(goal != Goal.APPLY) {
+
+                PutObjectRequest templateRequest = PutObjectRequest.builder().bucket(tempTemplateS3Bucket).key(templateName).build();
+                s3Client.putObject(templateRequest, RequestBody.fromFile(templateFile));
+            }
+
+            String url = "https://s3.amazonaws.com/" + tempTemplateS3Bucket + "/" + templateName;
+            templateHashes.put(url, DeploymentState.hash(Files.readAllBytes(templateFile.toPath())));
+
+            return url;
+
+        }, pipelineExecutor);
+
+        // The output parameters are copied because the previous stack adds to them while it deploys.  The input
+        // parameters can't be read early when they wait for the deployment artifact of the stack or for a Parameter
+        // Store field the previous stack writes.  Exports are declared by the templates, so any export may be created
+        // by the previous stack.
+        Map<String, String> outputs = knownOutputs == null ? Collections.emptyMap() : new HashMap<>(knownOutputs);
+        Map<String, String> assumedOutputs = new HashMap<>();
+        Set<String> storeNames = new HashSet<>();
+        int storeWriteCount = parameterStoreWrites.size();
+        boolean independent = true;
+
+        for (StackInputParameter param : stack.inputParameters == null ? new StackInputParameter[0] :
+                stack.inputParameters) {
+
+            if((param.parameterStoreFieldName != null) && pendingStoreNames.contains(param.parameterStoreFieldName))
+                independent = false;
+
+            if(param.parameterStoreFieldName != null) storeNames.add(param.parameterStoreFieldName);
+            if(param.exportName != null) independent = false;
+
+            if(param.matchingParameterName == null) continue;
+
+            if(!outputs.containsKey(param.matchingParameterName) || ((stack.deploymentArtifactRegEx != null) &&
+                    ARTIFACT_PARAMETERS.contains(param.matchingParameterName))) independent = false;
+
+            else assumedOutputs.put(param.matchingParameterName, outputs.get(param.matchingParameterName));
         }
+
+        CompletableFuture<Parameter[]> parameters = null;
+        if((credentials != null) && independent && !Boolean.TRUE.equals(stack.stackReadOnly))
+            parameters = CloudFormationOperations.supply(() -> getInputParameters(stack.stackParameterFilePath,
+                    credentials, stack.inputParameters, outputs, region), pipelineExecutor);
+
+        StagedStack staged = new StagedStack(secondaryStackName, templateUrl, parameters, assumedOutputs, storeNames,
+                storeWriteCount);
+        if((parameters == null) || (operations == null)) return staged;
+
+        // A change set that can't be prepared is created again at the stack's turn.
+        CompletableFuture<Parameter[]> stackParameters = parameters;
+        return staged.withChangeSet(operations.exists(secondaryStackName).thenCompose(exists -> !exists ?
+                CompletableFuture.<DescribeChangeSetResponse>completedFuture(null) :
+                templateUrl.thenCombine(stackParameters, (url, params) ->
+                        updateChangeSetRequest(url, secondaryStackName, params))
+                        .thenCompose(operations::createChangeSet))
+                .exceptionally(ex -> null));
+    }
+
+    /**
+     * Use this method to get the Parameter Store fields that the output parameter mappings and the CLI command output
+     * parameter mappings of a secondary stack may write.
+     *
+     * @param stack is the secondary stack.
+     * @return the names of the Parameter Store fields.
+     */
+    private Set<String> parameterStoreNames(SecondaryStack stack) {
+
+        Set<String> names = new HashSet<>();
+        if(stack.outputParameterMappings != null)
+            for (StackOutputParameterMapping mapping : stack.outputParameterMappings)
+                if(mapping.parameterStoreFieldName != null) names.add(mapping.parameterStoreFieldName);
+
+        if(stack.cliCommandOutputParameterMappings != null)
+            for (CliCommandOutputParameterMapping mapping : stack.cliCommandOutputParameterMappings)
+                if(mapping.parameters != null)
+                    for (StackOutputParameterMapping parameter : mapping.parameters.values())
+                        if(parameter.parameterStoreFieldName != null) names.add(parameter.parameterStoreFieldName);
+
+        return names;
+    }
+
+    /**
+     * Use this method to delete the change set prepared for a stack when it won't be executed.  Failures are ignored.
+     *
+     * @param staged is the work prepared for the stack.
+     * @param operations performs the CloudFormation operations of the stack.
+     */
+    private void discardChangeSet(StagedStack staged, CloudFormationOperations operations) {
+
+        staged.getChangeSet().thenAccept(changeSet -> {
+
+            if((changeSet != null) && (changeSet.changes().size() > 0))
+                operations.deleteChangeSet(staged.getStackName(), changeSet.changeSetName());
+        });
+    }
+
+    /**
+     * Use this method to build the operations of a stack.  The operations share the limiter of the stack's account
+     * and region and, when the rate of requests is limited, its token bucket.
+     *
+     * @param cfAsyncClient is the CloudFormation client of the stack.
+     * @param credentials are the credentials of the stack.
+     * @param region is the region of the stack or null for the default region.
+     * @return the operations.
+     */
+    private CloudFormationOperations stackOperations(CloudFormationAsyncClient cfAsyncClient,
+                                                     AwsCredentialsProvider credentials, String region) {
+
+        CloudFormationOperations operations = new CloudFormationOperations(cfAsyncClient,
+                operationGovernor.limiter(stackAccount(credentials), resolvedRegion(region)));
+        if(rateLimiter != null)
+            operations.withPacer(rateLimiter.bucket("cloudformation-" + rateLimitScope(region, credentials),
+                    clientSettings.getCloudFormationRequestRate()), pipelineExecutor);
+
+        return operations;
+    }
+
+    /**
+     * Use this method to get the account of a stack from the role of its credentials.  The account of the stacks
+     * deployed with the default credentials is the account of the caller identity, so that a role in the same account
+     * shares its limiter.
+     *
+     * @param credentials are the credentials of the stack.
+     * @return the account.
+     */
+    private String stackAccount(AwsCredentialsProvider credentials) {
+
+        String roleArn = credentialRoles.get(credentials);
+        String[] arn = roleArn == null ? new String[0] : roleArn.split(":");
+
+        return arn.length > 4 ? arn[4] : sessionContext.getCallerIdentity().account();
+    }
+
+    /**
+     * Use this method to name the account and region of a client for the buckets that pace its calls with the other
+     * plugin processes on the host.  The API rates are limited per account and region.
+     *
+     * @param region is the region of the client or null for the default region.
+     * @param credentials are the credentials of the client or null for the default credentials.
+     * @return the account and resolved region.
+     */
+    private String rateLimitScope(String region, AwsCredentialsProvider credentials) {
+
+        return stackAccount(credentials) + "-" + resolvedRegion(region);
+    }
+
+    /**
+     * Use this method to get the region of a stack for the keys of its output snapshot and exports.
+     *
+     * @param region is the region of the stack or null for the default region.
+     * @return the region.
+     */
+    private String resolvedRegion(String region) {
+
+        return region != null ? region : sessionContext.getDefaultRegion().id();
     }
 
     /**
      * This method checks to see if the master artifact is overriden with a stack specific artifact.  If it is, the
      * method finds the artfact on the local file system and saves it to S3 using the s3Bucket and s3Prefix.
      *
+     * The output parameters of the artifact are returned instead of being added to the output parameters of the stack
+     * so that the artifact can be stored while the input parameters are read.
+     *
      * @param s3client is the S3 client to use when saving the artifact.
      * @param deploymentArtifactRegEx is a regular expresion for a file to find.
-     * @param outputParameters is a collection of output parameters.
+     * @param log is the writer of the audit lines.
+     * @return the output parameters with the bucket, key and hash of the artifact.
      * @throws IOException is throw when it can't perfom a file or path function call.
      * @throws MojoExecutionException is thrown if the regular expression is bad.
      * @throws NoSuchAlgorithmException is thrown if the SHA-256 algorithm doesn't exist for calculating a file hash.
      */
-    private void storeDeploymentArtifact(S3Client s3client, String deploymentArtifactRegEx,
-                                         Map<String, String> outputParameters)
+    private Map<String, String> storeDeploymentArtifact(S3Client s3client, String deploymentArtifactRegEx, Writer log)
             throws IOException, MojoExecutionException, NoSuchAlgorithmException {
 
+        Map<String, String> artifactParameters = new HashMap<>();
         if(deploymentArtifactRegEx != null) {
 
-            audit.write("Finding a deployment artifact using regex: " + deploymentArtifactRegEx + "\n");
-            if(!Pattern.matches(
-                    "\\^?((/[A-Za-z0-9:\\[\\]{}_\\ -])+(.[A-Za-z0-9_-]+)?|[A-Za-z0-9:\\[\\]{}_\\ -.]+)[$]?",
-                    deploymentArtifactRegEx))
-                throw new MojoExecutionException("Invalid deployment artifact regular expression.");
+            log.write("Finding a deployment artifact using regex: " + deploymentArtifactRegEx + "\n");
+            File artifact = findDeploymentArtifact(deploymentArtifactRegEx);
 
-            int endPos = deploymentArtifactRegEx.lastIndexOf('/');
-            String path;
-            String regex;
-            if(endPos > -1) {
+            log.write("Deployment artifact: " + artifact.getName() + "\n");
+            System.out.println("Deploying artifact to S3: " + artifact.getName());
+            storeArtifact(s3client, new File[] { artifact }, null, artifactParameters, log);
+        }
 
-                path = deploymentArtifactRegEx.charAt(0) == '^' ?
-                        deploymentArtifactRegEx.substring(1, endPos) :
-                        deploymentArtifactRegEx.substring(0, endPos);
+        return artifactParameters;
+    }
 
-                regex = deploymentArtifactRegEx.substring(endPos + 1);
+    /**
+     * Use this method to find the deployment artifact of a stack on the local file system.  The expression is a
+     * directory followed by a regular expression for the file name.  Without a directory, the current directory is
+     * searched.
+     *
+     * @param deploymentArtifactRegEx is a regular expresion for a file to find.
+     * @return the deployment artifact.
+     * @throws IOException is throw when it can't perfom a file or path function call.
+     * @throws MojoExecutionException is thrown if the regular expression is bad or doesn't match one file.
+     */
+    private File findDeploymentArtifact(String deploymentArtifactRegEx) throws IOException, MojoExecutionException {
 
-            } else {
+        if(!Pattern.matches(
+                "\\^?((/[A-Za-z0-9:\\[\\]{}_\\ -])+(.[A-Za-z0-9_-]+)?|[A-Za-z0-9:\\[\\]{}_\\ -.]+)[$]?",
+                deploymentArtifactRegEx))
+            throw new MojoExecutionException("Invalid deployment artifact regular expression.");
 
-                path = Paths.get("").toAbsolutePath().toString();
-                regex = deploymentArtifactRegEx;
-            }
+        int endPos = deploymentArtifactRegEx.lastIndexOf('/');
+        String path;
+        String regex;
+        if(endPos > -1) {
 
-            List<File> files = Files.find(Paths.get(path), 1, (file, attributes) ->
-                    FileSystems.getDefault().getPathMatcher("regex:" + regex)
-                            .matches(file.getFileName()))
-                    .collect(ArrayList::new, (list, filePath) -> list.add(new File(filePath.toUri())), (f1, f2) -> {});
+            path = deploymentArtifactRegEx.charAt(0) == '^' ?
+                    deploymentArtifactRegEx.substring(1, endPos) :
+                    deploymentArtifactRegEx.substring(0, endPos);
 
-            if(files.size() != 1)
-                throw new MojoExecutionException("Couldn't find deployment artifact.");
+            regex = deploymentArtifactRegEx.substring(endPos + 1);
 
-            audit.write("Deployment artifact: " + files.get(0).getName() + "\n");
-            System.out.println("Deploying artifact to S3: " + files.get(0).getName());
-            storeArtifact(s3client, files.toArray(new File[0]), null, outputParameters);
+        } else {
+
+            path = Paths.get("").toAbsolutePath().toString();
+            regex = deploymentArtifactRegEx;
         }
+
+        List<File> files = Files.find(Paths.get(path), 1, (file, attributes) ->
+                FileSystems.getDefault().getPathMatcher("regex:" + regex)
+                        .matches(file.getFileName()))
+                .collect(ArrayList::new, (list, filePath) -> list.add(new File(filePath.toUri())), (f1, f2) -> {});
+
+        if(files.size() != 1)
+            throw new MojoExecutionException("Couldn't find deployment artifact.");
+
+        return files.get(0);
     }
 
     /**
@@ -1645,9 +3330,7 @@ public class CloudFormationDeployMavenPlugin extends AbstractMojo {
     private Region effectiveRegion() throws MojoExecutionException {
         Region currentRegion;
         if(deploymentRegionOverride == null) {
-            DefaultAwsRegionProviderChain chain = new DefaultAwsRegionProviderChain();
-            currentRegion = chain.getRegion();
-            if(currentRegion == null) currentRegion = Region.US_EAST_1;
+            currentRegion = sessionContext.getDefaultRegion();
 
         } else {
             currentRegion = Region.of(deploymentRegionOverride);
@@ -1657,7 +3340,9 @@ public class CloudFormationDeployMavenPlugin extends AbstractMojo {
     }
 
     /**
-     * Use this method to evaluate parameters from the execution of a describe AWS command.
+     * Use this method to evaluate parameters from the execution of a describe AWS command.  Mappings are processed in
+     * waves of mappings that don't read each others outputs.  The commands of a wave are executed concurrently and the
+     * results are applied to the output parameters in the order the mappings are declared.
      *
      * @param credentials is a default set of credentials.
      * @param outputParameters is the output parameters array to populate with the results from the command.
@@ -1678,244 +3363,373 @@ public class CloudFormationDeployMavenPlugin extends AbstractMojo {
 
             System.out.println("Command Output Parameter Mappings:");
 
-            for (CliCommandOutputParameterMapping mapping : parameterMappings) {
+            int waveStart = 0;
+            while (waveStart < parameterMappings.length) {
+
+                int waveEnd = findIndependentMappings(parameterMappings, waveStart);
+
+                // Evaluate the conditions and build the commands in declaration order.
+                List<CliCommandOutputParameterMapping> waveMappings = new ArrayList<>();
+                List<ExecuteCommand> waveCommands = new ArrayList<>();
+                List<String> waveKeys = new ArrayList<>();
+                List<AtomicReference<LinkedHashMap<String, Object>>> waveDocuments = new ArrayList<>();
+                List<ExecuteCommand> pendingCommands = new ArrayList<>();
+                for (int i = waveStart; i < waveEnd; i++) {
 
-                if (((mapping.condition == null) || conditions.get(mapping.condition)) &&
-                        evaluateCheckCondition(mapping.checkCondition, outputParameters) &&
-                        testRegionCondition(mapping.regionCondition, mapping.regionConditionExclude)) {
+                    CliCommandOutputParameterMapping mapping = parameterMappings[i];
+                    ExecuteCommand command = buildCommand(credentials, ssmClient, outputParameters, mapping, region);
 
-                    // Retrieve the credential values and set them for passing to the environment variables.
-                    HashMap<String, String> environmentMap = new HashMap<>();
-                    getCredentialMap(credentials, mapping.roleArn, environmentMap);
+                    if(command != null) {
 
-                    StringBuilder mappingCommand = new StringBuilder(mapping.command);
-                    if (mapping.commandParameters != null) {
+                        AtomicReference<LinkedHashMap<String, Object>> document = new AtomicReference<>();
+                        String cacheKey = null;
 
-                        for (StackInputParameter commandParameter : mapping.commandParameters) {
+                        if(mapping.parameters != null) {
 
-                            String parameterValue = getInputParameterValue(outputParameters, ssmClient,
-                                    commandParameter);
+                            // Only the parts of the output selected by the parameter names are kept and cached.
+                            List<ParameterPath> parameterPaths = new ArrayList<>();
+                            for (StackOutputParameterMapping parameter : mapping.parameters.values())
+                                parameterPaths.add(ParameterPath.compile(parameter.parameterName));
 
-                            if(mapping.commandParameterSpacing) {
+                            List<String> parameterNames = parameterPaths.stream()
+                                    .map(ParameterPath::getExpression)
+                                    .sorted()
+                                    .collect(Collectors.toList());
 
-                                mappingCommand
-                                        .append(" ")
-                                        .append(commandParameter.parameterName)
-                                        .append(" ")
-                                        .append(parameterValue);
+                            cacheKey = CommandOutputCache.key(command.getCommandInformation(),
+                                    commandIdentity(credentials, mapping.roleArn),
+                                    command.getEnvironmentMap().get("AWS_DEFAULT_REGION")) + '\u0000' + parameterNames;
 
-                            } else {
+                            String cachedOutput = commandOutputCache.get(cacheKey, mapping.cacheTimeToLive);
+                            if(cachedOutput != null) {
 
-                                mappingCommand.append(commandParameter.parameterName).append(parameterValue);
+                                audit.write("Using cached output.\n");
+                                document.set(mapper.readValue(cachedOutput,
+                                        new TypeReference<LinkedHashMap<String, Object>>() {}));
                             }
+
+                            JsonSubtreeReader reader = new JsonSubtreeReader(parameterPaths);
+                            command.withOutputProcessor(stream -> document.set(reader.read(stream)));
                         }
+
+                        if(document.get() == null) pendingCommands.add(command);
+
+                        waveMappings.add(mapping);
+                        waveCommands.add(command);
+                        waveKeys.add(cacheKey);
+                        waveDocuments.add(document);
                     }
-                    String builtCommand = mappingCommand.toString().replace("{SPACE}", " ");
+                }
 
-                    audit.write("Executing: " + mappingCommand.toString() + "\n");
-                    ExecuteCommand command = new ExecuteCommand()
-                            .withCommandInformation(builtCommand.split("\\s+(?=(?:[^\'\"`]*(?:(\')[^\']*\\1|(\")[^\"]*\\2|(`)[^`]*\\3))*[^\'\"`]*$)"))
-                            .withEnvironmentMap(environmentMap);
+                Set<ExecuteCommand> startedCommands = executeCommands(pendingCommands);
 
-                    command.executeCommand();
+                // Apply the results in declaration order so the output parameters are deterministic.
+                for (int i = 0; i < waveCommands.size(); i++) {
 
-                    if(command.getExecutionErrors() != null) {
+                    CliCommandOutputParameterMapping mapping = waveMappings.get(i);
+                    ExecuteCommand command = waveCommands.get(i);
 
-                        Arrays.stream(command.getExecutionErrors())
-                                .forEach(error -> {
+                    if(pendingCommands.contains(command)) {
 
-                                        try {
+                        // A command that wasn't started follows a command of the wave that failed.
+                        if(!startedCommands.contains(command)) throw new RuntimeException("Unable to execute command.");
 
-                                            audit.write(error.getMessage() + "\n");
+                        if(command.getExecutionErrors() != null) {
 
-                                        } catch (IOException ioex) { /* Ignore */ }
-                                });
+                            Arrays.stream(command.getExecutionErrors())
+                                    .forEach(error -> {
 
-                        throw new RuntimeException("Unable to execute command.");
+                                            try {
 
-                    } else {
+                                                audit.write(error.getMessage() + "\n");
+
+                                            } catch (IOException ioex) { /* Ignore */ }
+                                    });
+
+                            // Show what the command wrote before it was killed.
+                            if(command.isTimedOut()) {
 
-                        String errors = command.getStandardErrorFromCommand().toString();
-                        if(errors.length() > 0) {
+                                String errors = command.getStandardErrorFromCommand();
+                                System.out.println("Timed out: " + errors);
+                                audit.write("Timed out: " + errors + "\n");
+                            }
 
-                            System.out.println("Errors: " + errors);
-                            audit.write("Errors: " + errors + "\n");
                             throw new RuntimeException("Unable to execute command.");
+
+                        } else {
+
+                            String errors = command.getStandardErrorFromCommand();
+                            command.release();
+                            if(errors.length() > 0) {
+
+                                System.out.println("Errors: " + errors);
+                                audit.write("Errors: " + errors + "\n");
+                                throw new RuntimeException("Unable to execute command.");
+                            }
                         }
+
+                        // Only successful outputs are cached.
+                        if(waveKeys.get(i) != null) commandOutputCache.put(waveKeys.get(i),
+                                mapper.writeValueAsString(waveDocuments.get(i).get()), mapping.cacheTimeToLive);
                     }
 
-                    if (mapping.parameters != null) {
+                    processCommandOutput(waveDocuments.get(i).get(), mapping, ssmClient, outputParameters, region);
+                }
+
+                waveStart = waveEnd;
+            }
+
+            System.out.println();
+        }
+    }
+
+    /**
+     * Get the identity a command is executed as for the key of its cached output.  It is the role of the command or
+     * of the stack credentials.  Without a role, it is the account of the default credentials so that an output
+     * cached on disk for one account isn't reused for another.
+     *
+     * @param credentials are the stack credentials or null for the default credentials.
+     * @param roleArn is the role of the command or null.
+     * @return the identity.
+     */
+    private String commandIdentity(AwsCredentialsProvider credentials, String roleArn) {
+
+        if(roleArn != null) return roleArn;
+
+        String stackRole = credentials != null ? credentialRoles.get(credentials) : null;
+        return stackRole != null ? stackRole : "account:" + sessionContext.getCallerIdentity().account();
+    }
+
+    /**
+     * Find the end of a wave of mappings starting at the specified position.  A mapping ends the wave when it reads
+     * a value, through its command parameters or check condition, that an earlier mapping in the same wave writes to
+     * the output parameters or the parameter store.
+     *
+     * @param parameterMappings are the mappings to scan.
+     * @param waveStart is the position of the first mapping in the wave.
+     * @return the position after the last mapping in the wave.
+     */
+    private int findIndependentMappings(CliCommandOutputParameterMapping[] parameterMappings, int waveStart) {
+
+        Set<String> written = new HashSet<>();
+        int position = waveStart;
+
+        while (position < parameterMappings.length) {
+
+            CliCommandOutputParameterMapping mapping = parameterMappings[position];
+            if((position > waveStart) && readsAny(mapping, written)) break;
+
+            if(mapping.parameters != null) {
+
+                for (Map.Entry<String, StackOutputParameterMapping> entry : mapping.parameters.entrySet()) {
+
+                    written.add(entry.getKey());
+                    if(entry.getValue().mapParameterName != null) written.add(entry.getValue().mapParameterName);
+                    if(entry.getValue().parameterStoreFieldName != null)
+                        written.add(entry.getValue().parameterStoreFieldName);
+                }
+            }
+
+            position++;
+        }
 
-                        String output = command.getStandardOutputFromCommand().toString();
-                        ObjectMapper mapper = new ObjectMapper();
-                        LinkedHashMap map = mapper.readValue(output, LinkedHashMap.class);
+        return position;
+    }
 
-                        for (String key : mapping.parameters.keySet()) {
+    /**
+     * Determine if a mapping reads any of the specified output parameter or parameter store names.
+     *
+     * @param mapping is the mapping to check.
+     * @param names are the names to look for.
+     * @return a flag indicating that the mapping reads one of the names.
+     */
+    private boolean readsAny(CliCommandOutputParameterMapping mapping, Set<String> names) {
 
-                            Pattern pattern = Pattern.compile("^(/[A-Za-z0-9_-]+(\\[[A-Za-z0-9_/= -]+\\])*)+$");
-                            Matcher matcher = pattern.matcher(mapping.parameters.get(key).parameterName);
-                            if(!matcher.matches()) throw new MojoExecutionException("Invalid parameter name syntax.");
+        if((mapping.checkCondition != null) && names.contains(mapping.checkCondition.parameterName)) return true;
 
-                            String[] pathElements = mapping.parameters.get(key).parameterName.split("/(?!(?:[^\\[]+\\]))");
-                            Object parameter = map;
-                            String array = null;
-                            String lastElement = "";
-                            String fullArray = null;
-                            for (String element : pathElements) {
+        if(mapping.commandParameters != null) {
 
-                                if(array == null) {
+            for (StackInputParameter commandParameter : mapping.commandParameters) {
 
-                                    if (!parameter.getClass().isAssignableFrom(LinkedHashMap.class))
-                                        throw new MojoExecutionException("Element is not a Dictionary");
+                if(names.contains(commandParameter.matchingParameterName) ||
+                        names.contains(commandParameter.parameterStoreFieldName)) return true;
+            }
+        }
 
-                                } else {
+        return false;
+    }
 
-                                    if (!parameter.getClass().isAssignableFrom(ArrayList.class))
-                                        throw new MojoExecutionException("Element is not an Array.");
-                                }
+    /**
+     * Build the command for a CLI command output parameter mapping.  If the conditions of the mapping are not
+     * satisfied, the command isn't built.
+     *
+     * @param credentials is a default set of credentials.
+     * @param ssmClient is the client to use for the parameter store.
+     * @param outputParameters is the output parameters array used to fill in command parameters.
+     * @param mapping is the mapping to build the command for.
+     * @param region is the region to look up exports in.
+     * @return the command to execute or null if the mapping should not be evaluated.
+     * @throws IOException when an exception occurs while writing to the audit log.
+     * @throws MojoExecutionException when it can't find a parameter.
+     */
+    private ExecuteCommand buildCommand(AwsCredentialsProvider credentials, SsmClient ssmClient,
+                                        Map<String, String> outputParameters, CliCommandOutputParameterMapping mapping,
+                                        String region)
+            throws IOException, MojoExecutionException {
 
-                                boolean search = true;
-                                String nextElement = null;
-                                while ((element.length() > 0) && search) {
+        if (((mapping.condition == null) || conditions.get(mapping.condition)) &&
+                evaluateCheckCondition(mapping.checkCondition, outputParameters) &&
+                testRegionCondition(mapping.regionCondition, mapping.regionConditionExclude)) {
 
-                                    pattern = Pattern.compile(
-                                            "^(([A-Za-z0-9_-]+)(\\[([0-9]+|[A-Za-z0-9_-]+=[A-Za-z0-9_ /-]+)\\])*|" +
-                                                    "(\\[([0-9]+|[A-Za-z0-9_-]+=[A-Za-z0-9_ /-]+)\\])+)$");
+            // Retrieve the credential values and set them for passing to the environment variables.
+            HashMap<String, String> environmentMap = new HashMap<>();
+            getCredentialMap(credentials, mapping.roleArn, environmentMap);
 
-                                    matcher = pattern.matcher(element);
-                                    if (!matcher.matches())
-                                        throw new MojoExecutionException("Couldn't find parameter: " + element);
+            StringBuilder mappingCommand = new StringBuilder(mapping.command);
+            if (mapping.commandParameters != null) {
 
-                                    String name = matcher.group(2);
-                                    if (array != null) {
+                Map<String, String> exports = getExports(credentials, region, mapping.commandParameters);
+                for (StackInputParameter commandParameter : mapping.commandParameters) {
 
-                                        if (nextElement != null) {
+                    String parameterValue = getInputParameterValue(outputParameters, ssmClient,
+                            commandParameter, exports);
 
-                                            array = matcher.group(4);
-                                            fullArray = matcher.group(3);
-                                        }
+                    if(mapping.commandParameterSpacing) {
 
-                                        if (array != null) {
-                                            parameter = processArray(parameter, array, false);
-                                            if (parameter == null) break;
-                                            if (parameter.getClass().isAssignableFrom(ArrayList.class)) {
+                        mappingCommand
+                                .append(" ")
+                                .append(commandParameter.parameterName)
+                                .append(" ")
+                                .append(parameterValue);
 
-                                                if (nextElement == null) nextElement = element;
-                                                element = lastElement.replace(fullArray, "");
-                                                lastElement = element;
-                                                continue;
+                    } else {
 
-                                            } else {
+                        mappingCommand.append(commandParameter.parameterName).append(parameterValue);
+                    }
+                }
+            }
+            String builtCommand = mappingCommand.toString().replace("{SPACE}", " ");
+
+            audit.write("Executing: " + mappingCommand.toString() + "\n");
+            return new ExecuteCommand()
+                    .withCommandInformation(CommandLineTokenizer.tokenize(builtCommand))
+                    .withEnvironmentMap(environmentMap)
+                    .withMaximumOutputSize(cliCommandMaximumOutputSize)
+                    .withTimeout(mapping.commandTimeout != null ? mapping.commandTimeout : cliCommandTimeout);
+        }
 
-                                                String testElement = lastElement.replace(fullArray, "");
-                                                if (testElement.contains("[")) {
+        return null;
+    }
 
-                                                    parameter = null;
-                                                    break;
-                                                }
+    /**
+     * Execute a set of independent commands.  The commands are executed concurrently on a pool bounded by the
+     * cliCommandConcurrency setting, in the order they are listed.  Once a command fails, the commands that haven't
+     * started yet aren't started.  The method returns when all the started commands have finished.
+     *
+     * @param commands are the commands to execute.
+     * @return the commands that were started.
+     * @throws MojoExecutionException when the execution of the commands is interrupted.
+     */
+    private Set<ExecuteCommand> executeCommands(List<ExecuteCommand> commands) throws MojoExecutionException {
 
-                                                if (nextElement != null) {
-                                                    element = nextElement;
-                                                    continue;
-                                                }
+        int poolSize = Math.min(Math.max(cliCommandConcurrency, 1), commands.size());
+        Set<ExecuteCommand> started = Collections.newSetFromMap(new ConcurrentHashMap<>());
+        AtomicBoolean failed = new AtomicBoolean(false);
 
-                                                search = false;
-                                            }
+        Function<ExecuteCommand, Runnable> task = command -> () -> {
 
-                                        } else {
+            if(failed.get()) return;
 
-                                            if (parameter.getClass().isAssignableFrom(ArrayList.class)) {
-                                                parameter = null;
-                                                break;
-                                            }
+            started.add(command);
+            command.executeCommand();
+            if(isFailed(command)) failed.set(true);
+        };
 
-                                            search = false;
-                                        }
+        if(poolSize <= 1) {
 
-                                    } else search = false;
+            commands.forEach(command -> task.apply(command).run());
 
-                                    if (parameter.getClass().isAssignableFrom(LinkedHashMap.class))
-                                        parameter = ((LinkedHashMap) parameter).get(name);
+        } else {
 
-                                    if(parameter == null) break;
-                                    fullArray = matcher.group(3);
-                                    array = matcher.group(4);
-                                }
+            ExecutorService executor = Executors.newFixedThreadPool(poolSize);
 
-                                lastElement = element;
-                            }
+            try {
 
-                            if ((parameter == null) || !parameter.getClass().isAssignableFrom(String.class)) {
+                List<Future<?>> futures = new ArrayList<>();
+                for (ExecuteCommand command : commands) futures.add(executor.submit(task.apply(command)));
+                for (Future<?> future : futures) future.get();
 
-                                if ((parameter != null) && parameter.getClass().isAssignableFrom(ArrayList.class) &&
-                                        (array != null)) parameter = processArray(parameter, array, true);
+            } catch (InterruptedException ie) {
 
-                                if ((parameter == null) || !parameter.getClass().isAssignableFrom(String.class)) {
+                Thread.currentThread().interrupt();
+                throw new MojoExecutionException("Interrupted while executing commands.", ie);
 
-                                    if (mapping.parameters.get(key).defaultParameterValue != null) {
+            } catch (ExecutionException ee) {
 
-                                        parameter = mapping.parameters.get(key).defaultParameterValue;
+                throw new MojoExecutionException("Unable to execute command.", ee.getCause());
 
-                                    } else throw new MojoExecutionException("Couldn't find parameter: " + key);
-                                }
-                            }
+            } finally {
 
-                            //noinspection ConstantConditions
-                            ProcessMapping(outputParameters, ssmClient, key, (String) parameter,
-                                    mapping.parameters.get(key), region);
-                        }
-                    }
-                }
+                executor.shutdownNow();
             }
-
-            System.out.println();
         }
+
+        return started;
     }
 
     /**
-     * This method process a parameter as if it where an object representing an array list of dictionary items or
-     * strings.  It extracts the array element from the array list based on an index or a dictionary filter.
+     * Determine if a command that was executed failed.  A command fails when it can't be executed, times out or
+     * writes to its standard error.
      *
-     * @param parameter is the parameter that represents an array list to process.
-     * @param array is the contents of the array brackets which could be an index or a dictionary filter.
-     * @param extractString signals if this is the intent is to process and array of strings.
-     * @return the contents of the selected array element which could be a dictionary or string.
+     * @param command is the command to check.
+     * @return a flag indicating that the command failed.
      */
-    private Object processArray(Object parameter, String array, boolean extractString) throws MojoExecutionException {
+    private boolean isFailed(ExecuteCommand command) {
 
-        if(!parameter.getClass().isAssignableFrom(ArrayList.class))
-            throw new MojoExecutionException("Invalid parameter type.");
+        return (command.getExecutionErrors() != null) || (command.getStandardErrorFromCommand().length() > 0);
+    }
 
-        if(Pattern.matches("^[0-9]+$", array)) {
+    /**
+     * Extract the parameters of a CLI command output parameter mapping from the standard output of the command and
+     * process their mappings.
+     *
+     * @param document contains the parts of the standard output of the command selected by the parameter names.
+     * @param mapping is the mapping containing the parameters to extract.
+     * @param ssmClient is the client to use for the parameter store.
+     * @param outputParameters is the output parameters array to populate with the results from the command.
+     * @param region is the region to store parameters in.
+     * @throws IOException when an exception occurs while reading/writing to process or file system.
+     * @throws MojoExecutionException when it can't find a parameter.
+     */
+    private void processCommandOutput(LinkedHashMap<String, Object> document, CliCommandOutputParameterMapping mapping,
+                                      SsmClient ssmClient, Map<String, String> outputParameters, String region)
+            throws IOException, MojoExecutionException {
 
-            // Array represents an index.
-            if (((ArrayList) parameter).size() >= (Integer.parseInt(array) + 1)) {
+        if (mapping.parameters != null) {
 
-                parameter = ((ArrayList) parameter).get(Integer.parseInt(array));
-                if(parameter.getClass().isAssignableFrom(String.class) && !extractString) parameter = null;
+            // Resolve all the parameter names of the mapping in one traversal of the document.
+            Map<String, ParameterPath> paths = new LinkedHashMap<>();
+            for (Map.Entry<String, StackOutputParameterMapping> entry : mapping.parameters.entrySet())
+                paths.put(entry.getKey(), ParameterPath.compile(entry.getValue().parameterName));
 
-            } else  parameter = null;
+            Map<String, Object> values = ParameterPath.evaluate(document, paths);
 
-        } else {
+            for (String key : mapping.parameters.keySet()) {
 
-            // Array represents a filter query for an array element.
-            Pattern pattern = Pattern.compile("^([A-Za-z0-9_-]+)=([A-Za-z0-9_ /-]+)$");
-            Matcher arrayMatcher = pattern.matcher(array);
-            if(!arrayMatcher.matches())
-                throw new MojoExecutionException("Invalid group filter.");
-
-            List list = (List)((ArrayList)parameter)
-                    .stream()
-                    .filter(item -> ((LinkedHashMap)item).get(arrayMatcher.group(1))
-                            .toString()
-                            .equals(arrayMatcher.group(2)))
-                    .collect(Collectors.toList());
-
-            if (list.size() > 1) parameter = list;
-            else parameter = list.size() == 1 ? list.get(0) : null;
-        }
+                Object parameter = values.get(key);
+                if (!(parameter instanceof String)) {
+
+                    if (mapping.parameters.get(key).defaultParameterValue != null) {
+
+                        parameter = mapping.parameters.get(key).defaultParameterValue;
+
+                    } else throw new MojoExecutionException("Couldn't find parameter: " + key);
+                }
 
-        return parameter;
+                ProcessMapping(outputParameters, ssmClient, key, (String) parameter,
+                        mapping.parameters.get(key), region);
+            }
+        }
     }
 
     /**
@@ -1965,10 +3779,7 @@ public class CloudFormationDeployMavenPlugin extends AbstractMojo {
 
             } else {
 
-                StsClient stsClient = new ClientBuilder<StsClient>().build(stsBuilder);
-
-                GetCallerIdentityRequest request = GetCallerIdentityRequest.builder().build();
-                GetCallerIdentityResponse result = stsClient.getCallerIdentity(request);
+                GetCallerIdentityResponse result = sessionContext.getCallerIdentity();
                 AwsCredentialsProvider session = getAwsCredentialsProvider(result.arn());
 
                 environmentMap.put("AWS_ACCESS_KEY_ID", session.resolveCredentials().accessKeyId());
@@ -1983,9 +3794,7 @@ public class CloudFormationDeployMavenPlugin extends AbstractMojo {
             }
         }
 
-        DefaultAwsRegionProviderChain chain = new DefaultAwsRegionProviderChain();
-        Region region = chain.getRegion();
-        if(region == null) region = Region.US_EAST_1;
+        Region region = sessionContext.getDefaultRegion();
 
         environmentMap.put("AWS_DEFAULT_REGION", region.toString());
         audit.write("Using region: " + region.toString() + "\n");
@@ -1997,40 +3806,19 @@ public class CloudFormationDeployMavenPlugin extends AbstractMojo {
      * optionally be store in the AWS System Manager Parameter Store.  There may be more than one mapping for a
      * given parameter.  If a map exist for a parameter that wasn't in the output, it is ignored.
      *
-     * @param cfClient is the CloudFormation Client to use.
-     * @param stackName is the name of the stack to fetch the output parameters from.
+     * @param masterResult is the description of the stack to take the output parameters from.
      * @param outputParameters is the array of output parameters to put the parameters into.
      * @param region is the region to store the parameter.
-     * @param credentials are the credentials to use when connecting to AWS APIs.
      * @param outputParameterMappings is the mapping to use when determine parameter name and parameter value
      * @param ssmClient is the client to use when updating the parameter store.
      * @throws IOException when the routine is unable to assume a role.
      * @throws MojoExecutionException when a logic or validation error occurs with assuming a role.
      */
-    private void processOutputParameters(CloudFormationAsyncClient cfClient, String stackName,
-                                         AwsCredentialsProvider credentials, SsmClient ssmClient,
+    private void processOutputParameters(DescribeStacksResponse masterResult, SsmClient ssmClient,
                                          Map<String, String> outputParameters,
                                          StackOutputParameterMapping[] outputParameterMappings, String region)
             throws IOException, MojoExecutionException {
 
-        boolean retry;
-        DescribeStacksResponse masterResult = null;
-
-        do {
-
-            try {
-
-                masterResult = cfClient.describeStacks(DescribeStacksRequest.builder().stackName(stackName).build()).get();
-
-                retry = false;
-
-            } catch (Exception ex) {
-
-                retry = isRetry(ex);
-            }
-
-        } while(retry);
-
         if((masterResult != null) && (masterResult.stacks().get(0).outputs().size() > 0)) {
             System.out.println("Output Parameters for " + masterResult.stacks().get(0).stackName() + ":");
 
@@ -2067,40 +3855,6 @@ public class CloudFormationDeployMavenPlugin extends AbstractMojo {
         }
     }
 
-    /**
-     * This function test to see if an exception is Rate exceeded.  If it is, it sets the result to true signaling
-     * that the caller should retry the request.  It also waits for 1 second before returning.  The reason for this
-     * error is that we are exceeding the rate of calls to the cloud formation api per second.  Resting for 1 second
-     * resets the clock.
-     *
-     * @param ex is the exception to test for.
-     * @return a flag indicating that a rety should occur.
-     * @throws MojoExecutionException when the input exception wasn't a rate exceeded exception.
-     */
-    private boolean isRetry(Exception ex) throws MojoExecutionException{
-
-        // Check the exception message.
-        if ((ex.getMessage() != null) && ex.getMessage().contains("Rate exceeded")) {
-
-            try {
-
-                Thread.sleep(1000);
-
-            } catch (InterruptedException iex) {
-
-                /* Ignore */
-            }
-
-        } else {
-
-            throw ex.getClass().isAssignableFrom(MojoExecutionException.class) ?
-                    (MojoExecutionException) ex :
-                    new MojoExecutionException("CloudFormation Error: " + ex.getMessage(), ex);
-        }
-
-        return true;
-    }
-
     /**
      * This method process a Stack Output Parameter Mapping.  It saves the parameter to the specified array of
      * output parameters.  It also, if specified, saves the parameter to the System Manager Parameter Store.  It
@@ -2136,17 +3890,16 @@ public class CloudFormationDeployMavenPlugin extends AbstractMojo {
 
         if(noMappingRestrictions) {
 
-            // Store the parameter in System Manager Parameter Store if a field is specified.
-            if(mapping.parameterStoreFieldName != null) {
+            // Store the parameter in System Manager Parameter Store if a field is specified.  A plan doesn't change
+            // the Parameter Store.
+            if((mapping.parameterStoreFieldName != null) && (goal != Goal.PLAN) && !resumingOutputs) {
 
                 SsmClient client = ssmClient;
                 if(mapping.roleArn != null) {
 
                     AwsCredentialsProvider session = getAwsCredentialsProvider(mapping.roleArn);
 
-                    client = region != null ?
-                            new ClientBuilder<SsmClient>().withRegion(region).build(ssmBuilder, session) :
-                            new ClientBuilder<SsmClient>().build(ssmBuilder, session);
+                    client = getClients().createSsmClient(region, session);
                 }
 
                 boolean update = false;
@@ -2193,6 +3946,7 @@ public class CloudFormationDeployMavenPlugin extends AbstractMojo {
                             .build();
 
                     client.putParameter(parameterRequest);
+                    parameterStoreWrites.add(mapping.parameterStoreFieldName);
 
                 } else {
 
@@ -2217,6 +3971,11 @@ public class CloudFormationDeployMavenPlugin extends AbstractMojo {
 
             // Map the name if a mapping is specified.
             if(mapping.mapParameterName != null) name = mapping.mapParameterName;
+            if(mapping.parameterStoreFieldType == ParameterType.SECURE_STRING) {
+
+                secureOutputNames.add(parameterName);
+                secureOutputNames.add(name);
+            }
 
             // Save the parameter to the output parameter array.
             outputParameters.put(name, parameterValue.trim());
@@ -2225,73 +3984,6 @@ public class CloudFormationDeployMavenPlugin extends AbstractMojo {
         return noMappingRestrictions;
     }
 
-    /**
-     * Use this method to determine if the CloudFormation Template was previously deployed to AWS.
-     *
-     * @param cfClient is the CloudFormation Client to use.
-     * @param stackName is the name of the stack to investigate.
-     * @return a flag indicating if the template was previously deployed.
-     */
-    private boolean isTemplatePreviouslyDeployed(CloudFormationAsyncClient cfClient, String stackName)  {
-        boolean cloudFormationExists = true;
-        boolean retry;
-        int retry_count = 0;
-        Random random = new Random();
-
-        do {
-
-            try {
-
-                DescribeStacksResponse result = cfClient.describeStacks(DescribeStacksRequest.builder().stackName(stackName).build()).get();
-                if (((result.stacks() == null) || (result.stacks().size() < 1)) && (retry_count == 2)) {
-
-                    cloudFormationExists = false;
-                    retry = false;
-
-                } else if((result.stacks() != null) && (result.stacks().size() >= 1)) {
-
-                    retry = false;
-
-                } else if(retry_count < 2){
-
-                    retry = true;
-                    Thread.sleep(random.nextInt(5000) + 1);
-
-                } else retry = false;
-
-            } catch (InterruptedException ie) {
-
-                // Ignore interruptions and retry.
-                retry = true;
-
-            } catch (ExecutionException acfEx) {
-
-                if (acfEx.getCause().getMessage().contains("Rate exceeded")) {
-
-                    retry = true;
-
-                } else if (acfEx.getCause().getMessage().contains("does not exist")) {
-
-                    retry = false;
-                    cloudFormationExists = false;
-
-                } else {
-
-                    System.out.println("Error encountered (retry): " + acfEx.getMessage());
-                    retry = retry_count < 2;
-                    if(!retry) cloudFormationExists = false;
-                }
-
-                try { Thread.sleep(random.nextInt(5000) + 1); } catch (InterruptedException iex) {  /* Ignore */ }
-            }
-
-            retry_count++;
-
-        } while(retry);
-
-        return cloudFormationExists;
-    }
-
     /**
      * Use the method to determine if the stack should be executed.  A condition may exist on the stack that signals
      * when the stack is required or not in the current deployment.
@@ -2332,205 +4024,86 @@ public class CloudFormationDeployMavenPlugin extends AbstractMojo {
      * user and audit of the the fact that there are no changes to be made.
      *
      * @param templateUrl is the URL to the template to deploy.
-     * @param cfAsyncClient is the CloudFormation Client to use when inquiring about stacks and deploying changes.
+     * @param operations performs the CloudFormation operations when inquiring about stacks and deploying changes.
      * @param stackName is the name of the stack to update.
      * @param parameters are the parameters to update the stack with.
-     * @throws MojoExecutionException when a validation or logic error occurs.
-     * @throws IOException when an error occurs trying to connect to the AWS API.
+     * @return a future that completes when the changes are processed.
      */
-    private void DetectAndProcessStackChanges(String templateUrl, CloudFormationAsyncClient cfAsyncClient, String stackName,
-                                              Parameter[] parameters) throws MojoExecutionException, IOException {
+    private CompletableFuture<Void> DetectAndProcessStackChanges(String templateUrl, CloudFormationOperations operations,
+                                                                 String stackName, Parameter[] parameters) {
+
+        CreateChangeSetRequest changeSetRequest = updateChangeSetRequest(templateUrl, stackName, parameters);
+        return operations.createChangeSet(changeSetRequest).thenCompose(describeStacksResult ->
+                processChangeSet(operations, stackName, changeSetRequest.changeSetName(), describeStacksResult));
+    }
 
-        boolean retry;
+    /**
+     * Use this method to build the request that creates the UPDATE change set of a stack.
+     *
+     * @param templateUrl is the URL to the template to deploy.
+     * @param stackName is the name of the stack to update.
+     * @param parameters are the parameters to update the stack with.
+     * @return the request.
+     */
+    private CreateChangeSetRequest updateChangeSetRequest(String templateUrl, String stackName, Parameter[] parameters) {
 
         String changeSetName = "N-" + UUID.randomUUID().toString();
         String changeSetToken = UUID.randomUUID().toString();
-        CreateChangeSetRequest changeSetRequest;
-        if(requiresIAM) {
-            changeSetRequest = CreateChangeSetRequest.builder()
-                    .parameters(parameters)
-                    .stackName(stackName)
-                    .changeSetType("UPDATE")
-                    .templateURL(templateUrl)
-                    .changeSetName(changeSetName)
-                    .usePreviousTemplate(false)
-                    .clientToken(changeSetToken)
-                    .capabilities(Capability.CAPABILITY_NAMED_IAM)
-                    .build();
-        } else {
-            changeSetRequest = CreateChangeSetRequest.builder()
-                    .parameters(parameters)
-                    .stackName(stackName)
-                    .changeSetType("UPDATE")
-                    .templateURL(templateUrl)
-                    .changeSetName(changeSetName)
-                    .usePreviousTemplate(false)
-                    .clientToken(changeSetToken)
-                    .build();
-        }
-
-        DescribeChangeSetResponse describeStacksResult = null;
-
-        do {
-
-            try {
-
-                cfAsyncClient.createChangeSet(changeSetRequest).thenRunAsync(() ->
-                    WaitChangeSet(cfAsyncClient, stackName, changeSetName)).join();
-
-                changeSetToken = UUID.randomUUID().toString();
-                DescribeChangeSetRequest describeChangeSetRequest = DescribeChangeSetRequest.builder()
-                        .changeSetName(changeSetName)
-                        .stackName(stackName)
-                        .nextToken(changeSetToken)
-                        .build();
-
-                describeStacksResult = cfAsyncClient.describeChangeSet(describeChangeSetRequest).get();
-
-                if((describeStacksResult.status() == ChangeSetStatus.FAILED)) {
-                    if ((describeStacksResult.changes().size() <= 0) &&
-                            describeStacksResult.statusReason()
-                                    .startsWith("The submitted information didn't contain changes.")) {
-
-                        DeleteChangeSet(cfAsyncClient, describeStacksResult.stackName(), describeStacksResult.changeSetName());
-                        retry = false;
-
-                    } else if (describeStacksResult.statusReason().contains("Rate exceeded")) {
-
-                        retry = true;
-
-                    } else {
-
-                        throw new MojoExecutionException("ChangeSet Error: " + describeStacksResult.statusReason());
-                    }
-
-                } else retry = false;
-
-            } catch (MojoExecutionException mojo) {
-
-                throw mojo;
-
-            } catch (Exception ex) {
-
-                retry = isRetry(ex);
-                if(!retry) throw new MojoExecutionException(ex.getMessage(), ex);
-            }
-
-        } while(retry);
-
-        // Process any changes
-        if ((describeStacksResult != null) && (describeStacksResult.changes().size() > 0)) {
-
-            int retry_count = 0;
-            do {
-
-                try {
-                    ExecuteChangeSetRequest executeChangeSetRequest = ExecuteChangeSetRequest.builder()
-                            .changeSetName(changeSetName)
-                            .stackName(stackName)
-                            .clientRequestToken(changeSetToken)
-                            .build();
-
-                    cfAsyncClient.executeChangeSet(executeChangeSetRequest).get();
-                    WaitStackInProgress(stackName, cfAsyncClient);
-
-                    DescribeStacksResponse describeResponse = cfAsyncClient.describeStacks(DescribeStacksRequest.builder()
-                            .stackName(stackName).build()).get();
-
-                    if(describeResponse.stacks().size() == 1) {
-                        switch(describeResponse.stacks().get(0).stackStatus()) {
-
-                            case UPDATE_ROLLBACK_COMPLETE:
-                            case UPDATE_ROLLBACK_FAILED:
-                                String reason = (describeResponse.stacks() != null) && (describeResponse.stacks().size() == 1) &&
-                                        (describeResponse.stacks().get(0).stackStatusReason() != null) ?
-                                        "CloudFormation Error: " + describeResponse.stacks().get(0).stackStatusReason() :
-                                        "See CloudFormation Console for errors.";
-
-                                throw new MojoExecutionException("CloudFormation Error: " + reason);
-                        }
-
-                        retry = false;
-
-                    } else {
-                        if (retry_count == 2) throw new MojoExecutionException("Invalid response from stack update.");
-                        retry = true;
-                    }
-
-                } catch (Exception ex) {
-
-                    retry = isRetry(ex);
-                }
-
-                retry_count++;
-
-            } while(retry);
-
-            audit.write("Updated " + stackName + " with id: " +
-                    describeStacksResult.stackId() + ".\n");
-
-            audit.write("Stack Finished.\n");
-            System.out.println("Stack Finished.");
-
-        } else {
-
-            audit.write("No changes to the Stack required.\n");
-            System.out.println("No changes to the Stack required.");
-        }
+        CreateChangeSetRequest.Builder changeSetRequest = CreateChangeSetRequest.builder()
+                .parameters(parameters)
+                .stackName(stackName)
+                .changeSetType("UPDATE")
+                .templateURL(templateUrl)
+                .changeSetName(changeSetName)
+                .usePreviousTemplate(false)
+                .clientToken(changeSetToken);
+
+        if(requiresIAM) changeSetRequest.capabilities(Capability.CAPABILITY_NAMED_IAM);
+
+        return changeSetRequest.build();
     }
 
     /**
-     * Waits for a change set to complete.
-     * @param cfAsyncClient
-     * @param stackName
-     * @param changeSetName
+     * Use this method to execute a change set when it has changes.  If it doesn't have changes, inform the user and
+     * audit of the fact that there are no changes to be made.
+     *
+     * @param operations performs the CloudFormation operations when deploying changes.
+     * @param stackName is the name of the stack to update.
+     * @param changeSetName is the name of the change set.
+     * @param describeStacksResult is the description of the change set.
+     * @return a future that completes when the changes are processed.
      */
-    private void WaitChangeSet(CloudFormationAsyncClient cfAsyncClient, String stackName, String changeSetName) {
+    private CompletableFuture<Void> processChangeSet(CloudFormationOperations operations, String stackName,
+                                                     String changeSetName,
+                                                     DescribeChangeSetResponse describeStacksResult) {
 
-        boolean retry;
-        Random random = new Random();
-        do {
-            String token = UUID.randomUUID().toString();
-            DescribeChangeSetRequest describeChangeSetRequest = DescribeChangeSetRequest.builder()
+        // Process any changes
+        if ((describeStacksResult != null) && (describeStacksResult.changes().size() > 0)) {
+
+            ExecuteChangeSetRequest executeChangeSetRequest = ExecuteChangeSetRequest.builder()
                     .changeSetName(changeSetName)
                     .stackName(stackName)
-                    .nextToken(token)
+                    .clientRequestToken(UUID.randomUUID().toString())
                     .build();
 
-            try {
-
-                DescribeChangeSetResponse result = cfAsyncClient.describeChangeSet(describeChangeSetRequest).get();
-                retry = (result.status() == ChangeSetStatus.CREATE_PENDING) ||
-                        (result.status() == ChangeSetStatus.CREATE_IN_PROGRESS);
-
-                if(retry) Thread.sleep(random.nextInt(10000) + 1);
+            return operations.executeChangeSet(executeChangeSetRequest).thenCompose(v -> CloudFormationOperations.run(() -> {
 
-            } catch (InterruptedException ie) { retry = true; }
-            catch (ExecutionException ex) { retry = ex.getMessage().contains("Rate exceeded"); }
+                audit.write("Updated " + stackName + " with id: " +
+                        describeStacksResult.stackId() + ".\n");
 
-        } while (retry);
-    }
+                audit.write("Stack Finished.\n");
+                System.out.println("Stack Finished.");
 
-    /**
-     * This routine deletes a specified change set.
-     *
-     * @param cfAsyncClient The CloudFormation client to use.
-     * @param stackName The name of the stack to delete the change set from.
-     * @param changeSetName The Name of the change set to delete.
-     */
-    private void DeleteChangeSet(CloudFormationAsyncClient cfAsyncClient, String stackName, String changeSetName) {
+                return CompletableFuture.completedFuture(null);
+            }));
 
-        try {
-             DeleteChangeSetRequest deleteChangeSetRequest = DeleteChangeSetRequest.builder()
-                     .changeSetName(changeSetName)
-                     .stackName(stackName)
-                     .build();
+        } else return CloudFormationOperations.run(() -> {
 
-             cfAsyncClient.deleteChangeSet(deleteChangeSetRequest).get();
+            audit.write("No changes to the Stack required.\n");
+            System.out.println("No changes to the Stack required.");
 
-         } catch (Exception dcsex) {
-             // Don't care if it isn't able to delete.
-         }
+            return CompletableFuture.completedFuture(null);
+        });
     }
 
     /**
@@ -2564,14 +4137,8 @@ public class CloudFormationDeployMavenPlugin extends AbstractMojo {
         // Update the input parameters with values from the output parameters of previous stack runs.
         if (inputParameters != null) {
 
-            SsmClient client;
-            if(region != null) client = (credentials != null) ?
-                    new ClientBuilder<SsmClient>().withRegion(region).build(ssmBuilder, credentials) :
-                    new ClientBuilder<SsmClient>().withRegion(region).build((ssmBuilder));
-
-            else client = (credentials != null) ?
-                    new ClientBuilder<SsmClient>().build(ssmBuilder, credentials) :
-                    new ClientBuilder<SsmClient>().build(ssmBuilder);
+            SsmClient client = getClients().createSsmClient(region, credentials);
+            Map<String, String> exports = getExports(credentials, region, inputParameters);
 
             for (StackInputParameter paramItem : inputParameters) {
 
@@ -2582,7 +4149,7 @@ public class CloudFormationDeployMavenPlugin extends AbstractMojo {
 
                         parameters[i] = Parameter.builder()
                                 .parameterKey(parameter.parameterKey())
-                                .parameterValue(getInputParameterValue(outputParameters, client, paramItem))
+                                .parameterValue(getInputParameterValue(outputParameters, client, paramItem, exports))
                                 .usePreviousValue(parameter.usePreviousValue())
                                 .build();
                         break;
@@ -2594,34 +4161,80 @@ public class CloudFormationDeployMavenPlugin extends AbstractMojo {
         return parameters;
     }
 
+    /**
+     * Use this method to get the CloudFormation exports of a region when some of the input parameters read exports.
+     * The exports are listed once per role and region and kept until a stack operation in the region.
+     *
+     * @param credentials are the credentials to list the exports with.
+     * @param region is the region of the exports or null for the default region.
+     * @param inputParameters are the input parameters that may read exports.
+     * @return the values of the exports by name or no exports when no input parameter reads them.
+     * @throws MojoExecutionException when the exports can't be listed.
+     */
+    private Map<String, String> getExports(AwsCredentialsProvider credentials, String region,
+                                           StackInputParameter[] inputParameters) throws MojoExecutionException {
+
+        if(Arrays.stream(inputParameters).allMatch(param -> param.exportName == null)) return Collections.emptyMap();
+
+        String key = credentialRoles.get(credentials) + "/" + resolvedRegion(region);
+        CompletableFuture<Map<String, String>> exports = exportIndexes.computeIfAbsent(key, k -> {
+
+            // The client is only used for the listing, so it is closed when the listing is done.
+            CloudFormationAsyncClient client = getClients().createCloudFormationClient(region, credentials);
+            return stackOperations(client, credentials, region).listExports()
+                    .whenComplete((index, error) -> client.close());
+        });
+
+        // A listing that failed is tried again by the next input parameter that reads an export.
+        exports.whenComplete((index, error) -> { if(error != null) exportIndexes.remove(key, exports); });
+        return CloudFormationOperations.await(exports);
+    }
+
+    /**
+     * Use this method to drop what was read before a stack operation and may have changed with it: the cached CLI
+     * command outputs and the exports of the stack's region under every role.
+     *
+     * @param region is the region of the stack or null for the default region.
+     */
+    private void invalidateStackReads(String region) {
+
+        commandOutputCache.invalidate();
+
+        String suffix = "/" + resolvedRegion(region);
+        exportIndexes.keySet().removeIf(key -> key.endsWith(suffix));
+    }
+
     /**
      * Use this method to extract the parameter value from a StackInputParameter instance.  The parameter value may
-     * be a static value in the instance, a matching parameter in the Output Parameters array or a parameter from the
-     * System Manager Parameter Store.  The method returns the parameter value as a string or throws an exception if
-     * it is unable to read the parameter value.
+     * be a static value in the instance, a matching parameter in the Output Parameters array, a parameter from the
+     * System Manager Parameter Store or a CloudFormation export.  The method returns the parameter value as a string
+     * or throws an exception if it is unable to read the parameter value.
      *
      * @param outputParameters is the map of output parameters.
      * @param client is the AWS Simple System Manager Client to use when fetching parameters from the parameter store.
      * @param paramItem is the StackInputParameter instance to use when fetching the parameter value.
+     * @param exports are the values of the CloudFormation exports by name.
      * @return the string representation of the parameter value.
      * @throws MojoExecutionException when an method error occurs.
      */
     private String getInputParameterValue(Map<String, String> outputParameters, SsmClient client,
-                                           StackInputParameter paramItem)
+                                           StackInputParameter paramItem, Map<String, String> exports)
             throws MojoExecutionException {
 
         String parameterValue;
         int fieldCount = paramItem.matchingParameterName != null ? 1 : 0;
         fieldCount += paramItem.parameterStoreFieldName != null ? 1 : 0;
+        fieldCount += paramItem.exportName != null ? 1 : 0;
         fieldCount += paramItem.parameterValue != null ? 1 : 0;
 
         if (fieldCount == 0)
             throw new MojoExecutionException("Invalid Stack Input Syntax.");
 
-        if ((paramItem.parameterStoreFieldName != null) && (fieldCount > 2))
+        boolean lookup = (paramItem.parameterStoreFieldName != null) || (paramItem.exportName != null);
+        if (lookup && (fieldCount > 2))
             throw new MojoExecutionException("Invalid Stack Input Syntax.");
 
-        if((fieldCount == 2) && (paramItem.parameterStoreFieldName != null)) {
+        if((fieldCount == 2) && lookup) {
 
             if(paramItem.parameterValue == null) throw new MojoExecutionException("Invalid Stack Input Syntax.");
         }
@@ -2638,6 +4251,12 @@ public class CloudFormationDeployMavenPlugin extends AbstractMojo {
                         paramItem.matchingParameterName + ").");
             }
 
+        } else if(paramItem.exportName != null) {
+
+            if(exports.containsKey(paramItem.exportName)) parameterValue = exports.get(paramItem.exportName);
+            else if(paramItem.parameterValue != null) parameterValue = paramItem.parameterValue;
+            else throw new MojoExecutionException("Export not found: " + paramItem.exportName);
+
         } else if(paramItem.parameterStoreFieldName != null){
 
             try {
@@ -2669,10 +4288,11 @@ public class CloudFormationDeployMavenPlugin extends AbstractMojo {
      *
      * @param jars contains a list of jar files.
      * @param filter is a string to use as the filter.
+     * @param log is the writer of the audit lines.
      * @return a file to use for the deployment.
      * @throws IOException
      */
-    private File getFile(File[] jars, String filter) throws IOException {
+    private File getFile(File[] jars, String filter, Writer log) throws IOException {
 
         // Sort the list of files
         Map<String, File> jarMap = new TreeMap<>(Collections.reverseOrder());
@@ -2687,10 +4307,10 @@ public class CloudFormationDeployMavenPlugin extends AbstractMojo {
                 .collect(ArrayList::new, (list, map) -> list.add(map.getValue()), (b1, b2) -> {
                 });
 
-        audit.write(jars.length + (jars.length == 1 ? " artifact was" : " artifacts were") +
+        log.write(jars.length + (jars.length == 1 ? " artifact was" : " artifacts were") +
                 " found.\n");
 
-        audit.write(Arrays.stream(jars)
+        log.write(Arrays.stream(jars)
                 .collect(StringBuilder::new, (builder, jar) -> builder.append(jar).append('\n'),
                         (build1, build2) -> {
                         }).toString());
@@ -2731,97 +4351,29 @@ public class CloudFormationDeployMavenPlugin extends AbstractMojo {
      *
      * @param stackName is the name of the stack to create.
      * @param templateUrl is the URL to the template to use when creating or updating the stack.
-     * @param cfClient is the cloud formation client to use when creating or updating the stack.
+     * @param operations performs the CloudFormation operations when creating the stack.
      * @param parameters is a list of parameters to update the stack with.
-     * @throws MojoExecutionException when a retry exception isn't a Rate Exceeded exception.
+     * @return a future that completes when the stack is created.
      */
-    private void createStack(String stackName, String templateUrl, CloudFormationAsyncClient cfClient,
-                             Parameter[] parameters) throws MojoExecutionException {
-
-        boolean retry;
+    private CompletableFuture<Void> createStack(String stackName, String templateUrl, CloudFormationOperations operations,
+                                                Parameter[] parameters) {
 
         // Create the stack.
-        CreateStackRequest request;
-        if(requiresIAM) {
-
-            request = CreateStackRequest.builder()
-                    .stackName(stackName)
-                    .templateURL(templateUrl)
-                    .parameters(parameters)
-                    .capabilities(Capability.CAPABILITY_NAMED_IAM)
-                    .build();
-        } else {
-
-            request = CreateStackRequest.builder()
-                    .stackName(stackName)
-                    .templateURL(templateUrl)
-                    .parameters(parameters)
-                    .build();
-        }
-
-        do {
-
-            try {
-
-                CreateStackResponse result = cfClient.createStack(request).get();
-                WaitStackInProgress(stackName, cfClient);
-
-                DescribeStacksResponse describeResponse = cfClient.describeStacks(DescribeStacksRequest.builder()
-                        .stackName(stackName).build()).get();
-
-                if(describeResponse.stacks().get(0).stackStatus() != StackStatus.CREATE_COMPLETE)
-                    throw new MojoExecutionException(describeResponse.stacks().get(0).stackStatusReason());
-
-                audit.write("Created " + stackName + " with id: " + result.stackId() + ".\n");
-                retry = false;
+        CreateStackRequest.Builder request = CreateStackRequest.builder()
+                .stackName(stackName)
+                .templateURL(templateUrl)
+                .parameters(parameters)
+                .clientRequestToken(UUID.randomUUID().toString());
 
-            } catch (Exception ex) {
+        if(requiresIAM) request.capabilities(Capability.CAPABILITY_NAMED_IAM);
 
-                retry = isRetry(ex);
-            }
-
-        } while(retry);
-    }
-
-    /**
-     * Waits for a stack to complete.
-     *
-     * @param stackName The name of the stack being created
-     * @param cfClient The CloudFormation client to use.
-     * @throws InterruptedException Occurs when a process is interrupted.
-     * @throws ExecutionException Occurs when an error happens during the execution of the describe operation.
-     */
-    private void WaitStackInProgress(String stackName, CloudFormationAsyncClient cfClient)
-            throws InterruptedException, ExecutionException {
-
-        boolean retry;
-        Random random = new Random();
-        do {
+        return operations.createStack(request.build()).thenCompose(stackId -> CloudFormationOperations.run(() -> {
 
-            DescribeStacksResponse describeResponse = cfClient.describeStacks(DescribeStacksRequest.builder()
-                    .stackName(stackName).build()).get();
-
-            switch(describeResponse.stacks().get(0).stackStatus()) {
-
-                case CREATE_IN_PROGRESS:
-                case ROLLBACK_IN_PROGRESS:
-                case UPDATE_IN_PROGRESS:
-                case REVIEW_IN_PROGRESS:
-                case IMPORT_ROLLBACK_IN_PROGRESS:
-                case UPDATE_ROLLBACK_IN_PROGRESS:
-                case DELETE_IN_PROGRESS:
-                case IMPORT_IN_PROGRESS:
-                case UPDATE_COMPLETE_CLEANUP_IN_PROGRESS:
-                case UPDATE_ROLLBACK_COMPLETE_CLEANUP_IN_PROGRESS:
-                    retry = true;
-                    Thread.sleep(random.nextInt(10000) + 1);
-                    break;
-
-                default:
-                    retry = false;
-                    break;
-            }
+            audit.write("Created " + stackName + " with id: " + stackId + ".\n");
+            audit.write("Stack Finished.\n");
+            System.out.println("Stack Finished.");
 
-        } while(retry);
+            return CompletableFuture.completedFuture(null);
+        }));
     }
 }
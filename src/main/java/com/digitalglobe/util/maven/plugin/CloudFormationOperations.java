@@ -0,0 +1,838 @@
+package com.digitalglobe.util.maven.plugin;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import software.amazon.awssdk.awscore.exception.AwsServiceException;
+import software.amazon.awssdk.core.exception.SdkClientException;
+import software.amazon.awssdk.services.cloudformation.CloudFormationAsyncClient;
+import software.amazon.awssdk.services.cloudformation.model.*;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * This class performs the CloudFormation operations of a stack without blocking the calling thread.  Each operation
+ * returns a future that completes when the operation is done.  Polling and retries are scheduled with delays instead
+ * of sleeping, so many stacks can be tracked by a few threads.  Requests that fail because the API rate is exceeded
+ * are retried after a second.  Stack create and update operations are started through a limiter of the operation
+ * governor, which is told about the throttled requests.  Optionally, each call first takes a token from a bucket
+ * shared with the other plugin processes on the host.  The requests that change stacks carry a client request token,
+ * so they are also sent again when they fail in transit.  When CloudFormation then reports that the operation was
+ * already started, the operation is followed instead of failing.
+ */
+class CloudFormationOperations {
+
+    /**
+     * Use this interface for a step of a pipeline that may throw a checked exception.
+     *
+     * @param <T> is the type of the result of the step.
+     */
+    interface Step<T> {
+
+        T call() throws Exception;
+    }
+
+    static private final Random random = new Random();
+    static private final int SUBMIT_ATTEMPTS = 5;       // The attempts to send a request that changes a stack.
+    static private final long EVENT_SKEW = 300000L;     // The clock skew allowed for the events in milliseconds.
+
+    private final CloudFormationAsyncClient client;     // The client used to call CloudFormation.
+    private final OperationGovernor.Limiter limiter;    // Limits the create and update operations in flight.
+    private SharedRateLimiter.Bucket pacer = null;      // Paces the calls with the other processes on the host.
+    private Executor pacerExecutor = null;              // Takes the tokens of the pacer.
+    private final Map<String, DescribeStacksResponse> settled =     // The last descriptions of finished operations.
+            new ConcurrentHashMap<>();
+
+    /**
+     * This constructor initializes the client used to call CloudFormation.  The operations aren't limited.
+     *
+     * @param client is the CloudFormation client.
+     */
+    CloudFormationOperations(CloudFormationAsyncClient client) {
+
+        this(client, new OperationGovernor(Integer.MAX_VALUE, Integer.MAX_VALUE).limiter("", ""));
+    }
+
+    /**
+     * This constructor initializes the client used to call CloudFormation and the limiter of its account and region.
+     *
+     * @param client is the CloudFormation client.
+     * @param limiter limits the create and update operations in flight.
+     */
+    CloudFormationOperations(CloudFormationAsyncClient client, OperationGovernor.Limiter limiter) {
+
+        this.client = client;
+        this.limiter = limiter;
+    }
+
+    /**
+     * Use this method to pace the calls with a bucket shared by the plugin processes on the host.
+     *
+     * @param pacer is the bucket of the CloudFormation calls.
+     * @param executor takes the tokens, since taking a token blocks on the lock of the bucket file.
+     * @return this object for initialization chaining.
+     */
+    CloudFormationOperations withPacer(SharedRateLimiter.Bucket pacer, Executor executor) {
+
+        this.pacer = pacer;
+        this.pacerExecutor = executor;
+        return this;
+    }
+
+    /**
+     * Get a future that completes after a delay.
+     *
+     * @param milliseconds is the delay in milliseconds.
+     * @return the future.
+     */
+    static CompletableFuture<Void> delay(long milliseconds) {
+
+        Executor executor = CompletableFuture.delayedExecutor(milliseconds, TimeUnit.MILLISECONDS);
+        return CompletableFuture.runAsync(() -> {}, executor);
+    }
+
+    /**
+     * Get a future that completes after a random delay.
+     *
+     * @param maximum is the longest delay in milliseconds.
+     * @return the future.
+     */
+    static CompletableFuture<Void> randomDelay(int maximum) {
+
+        return delay(random.nextInt(maximum) + 1);
+    }
+
+    /**
+     * Run a step that produces a future.  An exception thrown by the step fails the returned future.
+     *
+     * @param step is the step to run.
+     * @param <T> is the type of the result of the future.
+     * @return the future of the step.
+     */
+    static <T> CompletableFuture<T> run(Step<CompletableFuture<T>> step) {
+
+        try {
+
+            return step.call();
+
+        } catch (Exception ex) {
+
+            return CompletableFuture.failedFuture(ex);
+        }
+    }
+
+    /**
+     * Run a step on an executor.  An exception thrown by the step fails the returned future.
+     *
+     * @param step is the step to run.
+     * @param executor runs the step.
+     * @param <T> is the type of the result of the step.
+     * @return the future of the result.
+     */
+    static <T> CompletableFuture<T> supply(Step<T> step, Executor executor) {
+
+        CompletableFuture<T> future = new CompletableFuture<>();
+        executor.execute(() -> {
+
+            try {
+
+                future.complete(step.call());
+
+            } catch (Exception ex) {
+
+                future.completeExceptionally(ex);
+            }
+        });
+
+        return future;
+    }
+
+    /**
+     * Get a future that completes when all of the futures complete.  Unlike CompletableFuture.allOf, every failure is
+     * reported.  A single failure fails the returned future with its exception and several failures fail it with an
+     * exception listing their messages that suppresses each of them.
+     *
+     * @param futures are the futures to wait for.
+     * @return the future.
+     */
+    static CompletableFuture<Void> allOf(CompletableFuture<?>... futures) {
+
+        return CompletableFuture.allOf(futures).handle((v, error) -> {
+
+            if(error == null) return CompletableFuture.<Void>completedFuture(null);
+
+            List<Throwable> failures = new ArrayList<>();
+            for (CompletableFuture<?> future : futures)
+                if(future.isCompletedExceptionally()) failures.add(cause(future.handle((r, e) -> e).join()));
+
+            if(failures.size() == 1) return CompletableFuture.<Void>failedFuture(failures.get(0));
+
+            MojoExecutionException combined = new MojoExecutionException(failures.stream()
+                    .map(failure -> failure.getMessage() == null ? failure.toString() : failure.getMessage())
+                    .collect(Collectors.joining("; ", failures.size() + " steps failed: ", "")));
+            failures.forEach(combined::addSuppressed);
+
+            return CompletableFuture.<Void>failedFuture(combined);
+
+        }).thenCompose(future -> future);
+    }
+
+    /**
+     * Get the exception that caused a future to fail.
+     *
+     * @param error is the exception the future failed with.
+     * @return the cause without the completion wrappers.
+     */
+    static Throwable cause(Throwable error) {
+
+        while (((error instanceof CompletionException) || (error instanceof ExecutionException)) &&
+                (error.getCause() != null)) error = error.getCause();
+
+        return error;
+    }
+
+    /**
+     * Wait for a future and throw the exception it failed with.
+     *
+     * @param future is the future to wait for.
+     * @param <T> is the type of the result of the future.
+     * @return the result of the future.
+     * @throws MojoExecutionException when the future failed.
+     */
+    static <T> T await(CompletableFuture<T> future) throws MojoExecutionException {
+
+        try {
+
+            return future.join();
+
+        } catch (CompletionException | java.util.concurrent.CancellationException ex) {
+
+            Throwable cause = cause(ex);
+            if(cause instanceof MojoExecutionException) throw (MojoExecutionException) cause;
+            if(cause instanceof RuntimeException) throw (RuntimeException) cause;
+
+            throw new MojoExecutionException(cause.getMessage(), cause);
+        }
+    }
+
+    /**
+     * Test if an exception signals that the API rate was exceeded.
+     *
+     * @param error is the exception to test.
+     * @return a flag indicating that the request should be retried.
+     */
+    static boolean isRateExceeded(Throwable error) {
+
+        Throwable cause = cause(error);
+        return (cause.getMessage() != null) && cause.getMessage().contains("Rate exceeded");
+    }
+
+    /**
+     * Test if an exception signals that an account limit was exceeded.
+     *
+     * @param error is the exception to test.
+     * @return a flag indicating that the operation should be started again later.
+     */
+    static boolean isLimitExceeded(Throwable error) {
+
+        for (Throwable cause = error; cause != null; cause = cause.getCause())
+            if(cause instanceof LimitExceededException) return true;
+
+        return false;
+    }
+
+    /**
+     * Test if an exception signals that a request failed in transit or on the side of CloudFormation.  Such a
+     * request may or may not have been received.
+     *
+     * @param error is the exception to test.
+     * @return a flag indicating that the request may be sent again with the same client request token.
+     */
+    static boolean isTransient(Throwable error) {
+
+        Throwable cause = cause(error);
+        if(cause instanceof SdkClientException) return true;
+
+        return (cause instanceof AwsServiceException) && (((AwsServiceException) cause).statusCode() >= 500);
+    }
+
+    /**
+     * Call CloudFormation and retry the call after a second while the API rate is exceeded.  Other errors fail the
+     * returned future with a CloudFormation error.  The limiter and the pacer are told about each throttled call.
+     *
+     * @param call makes the call.
+     * @param <T> is the type of the response.
+     * @return the future of the response.
+     */
+    private <T> CompletableFuture<T> retry(Supplier<CompletableFuture<T>> call) {
+
+        return paced(call).handle((response, error) -> {
+
+            if(error == null) return CompletableFuture.completedFuture(response);
+            if(isRateExceeded(error)) {
+
+                throttled();
+                return delay(1000).thenCompose(v -> retry(call));
+            }
+
+            Throwable cause = cause(error);
+            return CompletableFuture.<T>failedFuture(cause instanceof MojoExecutionException ? cause :
+                    new MojoExecutionException("CloudFormation Error: " + cause.getMessage(), cause));
+
+        }).thenCompose(future -> future);
+    }
+
+    /**
+     * Send a request that changes a stack.  The request must carry a client request token, so that it can be sent
+     * again when the API rate is exceeded or when it fails in transit, up to 5 times, without starting the operation
+     * twice.  When a request that may have been received is rejected when it is sent again, the operation may have
+     * been started by the earlier request, so it is attached to instead.
+     *
+     * @param call sends the request.
+     * @param attach gets the response of the operation started by an earlier request or fails with the rejection.
+     * @param <T> is the type of the response.
+     * @return the future of the response.
+     */
+    private <T> CompletableFuture<T> submit(Supplier<CompletableFuture<T>> call,
+                                            Function<Throwable, CompletableFuture<T>> attach) {
+
+        return submit(call, attach, new AtomicInteger(0), new AtomicBoolean(false));
+    }
+
+    /**
+     * Send a request that changes a stack and send it again until it is answered.
+     *
+     * @param call sends the request.
+     * @param attach gets the response of the operation started by an earlier request or fails with the rejection.
+     * @param failures counts the requests that failed in transit.
+     * @param received tells that an earlier request may have been received.
+     * @param <T> is the type of the response.
+     * @return the future of the response.
+     */
+    private <T> CompletableFuture<T> submit(Supplier<CompletableFuture<T>> call,
+                                            Function<Throwable, CompletableFuture<T>> attach,
+                                            AtomicInteger failures, AtomicBoolean received) {
+
+        return paced(call).handle((response, error) -> {
+
+            if(error == null) return CompletableFuture.completedFuture(response);
+            if(isRateExceeded(error)) {
+
+                throttled();
+                return delay(1000).thenCompose(v -> submit(call, attach, failures, received));
+            }
+
+            if(isTransient(error) && (failures.incrementAndGet() < SUBMIT_ATTEMPTS)) {
+
+                received.set(true);
+                return randomDelay(1000 << failures.get()).thenCompose(v -> submit(call, attach, failures, received));
+            }
+
+            Throwable cause = cause(error);
+            Throwable failure = cause instanceof MojoExecutionException ? cause :
+                    new MojoExecutionException("CloudFormation Error: " + cause.getMessage(), cause);
+
+            return received.get() && !isTransient(error) ? attach.apply(failure) :
+                    CompletableFuture.<T>failedFuture(failure);
+
+        }).thenCompose(future -> future);
+    }
+
+    /**
+     * Test if an operation of a stack was started by a request with a client request token.  The events are read
+     * newest first, page by page, until an event older than the request is reached.
+     *
+     * @param stackName is the name of the stack.
+     * @param token is the client request token of the request.
+     * @param sent is the time in milliseconds the request was first sent.
+     * @return the future of a flag indicating that the events of the stack carry the token.
+     */
+    private CompletableFuture<Boolean> isStarted(String stackName, String token, long sent) {
+
+        return isStarted(stackName, token, Instant.ofEpochMilli(sent - EVENT_SKEW), null);
+    }
+
+    /**
+     * Test if a page of the events of a stack, or a later page, carries a client request token.
+     *
+     * @param stackName is the name of the stack.
+     * @param token is the client request token of the request.
+     * @param since is the time before which the events can't have been caused by the request.
+     * @param nextToken is the token of the page to read or null for the first page.
+     * @return the future of a flag indicating that the events of the stack carry the token.
+     */
+    private CompletableFuture<Boolean> isStarted(String stackName, String token, Instant since, String nextToken) {
+
+        return retry(() -> client.describeStackEvents(DescribeStackEventsRequest.builder()
+                .stackName(stackName)
+                .nextToken(nextToken)
+                .build()))
+                .thenCompose(response -> {
+
+                    List<StackEvent> events = response.stackEvents();
+                    if(events.stream().anyMatch(event -> token.equals(event.clientRequestToken())))
+                        return CompletableFuture.completedFuture(true);
+
+                    // The events are listed newest first, so the later pages are older still.
+                    StackEvent oldest = events.isEmpty() ? null : events.get(events.size() - 1);
+                    boolean older = (oldest == null) || (oldest.timestamp() == null) ||
+                            oldest.timestamp().isBefore(since);
+
+                    return older || (response.nextToken() == null) ? CompletableFuture.completedFuture(false) :
+                            isStarted(stackName, token, since, response.nextToken());
+                });
+    }
+
+    /**
+     * Make a call after taking a token from the pacer.
+     *
+     * @param call makes the call.
+     * @param <T> is the type of the response.
+     * @return the future of the response.
+     */
+    private <T> CompletableFuture<T> paced(Supplier<CompletableFuture<T>> call) {
+
+        return pacer == null ? call.get() : pacer.acquireAsync(pacerExecutor).thenCompose(v -> call.get());
+    }
+
+    /**
+     * Tell the limiter and the pacer that a call was throttled.
+     */
+    private void throttled() {
+
+        limiter.throttled();
+        if(pacer != null) CompletableFuture.runAsync(pacer::throttled, pacerExecutor);
+    }
+
+    /**
+     * Start a create or update operation when the limiter allows it and track it until it finishes.  The permit is
+     * held until the tracking finishes.  When the operation is rejected because an account limit is exceeded, the
+     * limiter is told and the operation is started again after a random delay of up to 5 seconds.
+     *
+     * @param submit starts the operation.
+     * @param attach gets the response of the operation started by an earlier request or fails with the rejection.
+     * @param track follows the operation until it finishes.
+     * @param <T> is the type of the response to the start of the operation.
+     * @param <R> is the type of the result of the operation.
+     * @return the future of the result.
+     */
+    private <T, R> CompletableFuture<R> governed(Supplier<CompletableFuture<T>> submit,
+                                                 Function<Throwable, CompletableFuture<T>> attach,
+                                                 Function<T, CompletableFuture<R>> track) {
+
+        AtomicBoolean accepted = new AtomicBoolean(false);
+
+        return limiter.acquire()
+                .thenCompose(permit -> submit(submit, attach)
+                        .thenCompose(response -> {
+
+                            accepted.set(true);
+                            limiter.accepted();
+                            return track.apply(response);
+                        })
+                        .whenComplete((result, error) -> limiter.release()))
+                .handle((result, error) -> {
+
+                    if(error == null) return CompletableFuture.completedFuture(result);
+
+                    if(!accepted.get() && isLimitExceeded(error)) {
+
+                        limiter.throttled();
+                        return randomDelay(5000).thenCompose(v -> governed(submit, attach, track));
+                    }
+
+                    return CompletableFuture.<R>failedFuture(cause(error));
+
+                }).thenCompose(future -> future);
+    }
+
+    /**
+     * Describe a stack.
+     *
+     * @param stackName is the name of the stack.
+     * @return the future of the description.
+     */
+    CompletableFuture<DescribeStacksResponse> describeStack(String stackName) {
+
+        return retry(() -> client.describeStacks(DescribeStacksRequest.builder().stackName(stackName).build()));
+    }
+
+    /**
+     * Describe a stack after an operation.  The description taken when the last create or update operation of the
+     * stack finished is used instead of describing the stack again.  Otherwise the description found before the
+     * operation is used when there is one, since the stack didn't change.
+     *
+     * @param stackName is the name of the stack.
+     * @param found is the description of the stack before the operation or null.
+     * @return the future of the description.
+     */
+    CompletableFuture<DescribeStacksResponse> describeSettledStack(String stackName, DescribeStacksResponse found) {
+
+        DescribeStacksResponse description = settled.remove(stackName);
+        if(description == null) description = found;
+
+        return description != null ? CompletableFuture.completedFuture(description) : describeStack(stackName);
+    }
+
+    /**
+     * List the exports of the region.  Every page of the listing is read.
+     *
+     * @return the future of the values of the exports by name.
+     */
+    CompletableFuture<Map<String, String>> listExports() {
+
+        return listExports(null, new HashMap<>());
+    }
+
+    /**
+     * List the exports of the region from a page of the listing.
+     *
+     * @param nextToken is the token of the page or null for the first page.
+     * @param exports are the values of the exports read from the earlier pages by name.
+     * @return the future of the values of the exports by name.
+     */
+    private CompletableFuture<Map<String, String>> listExports(String nextToken, Map<String, String> exports) {
+
+        return retry(() -> client.listExports(ListExportsRequest.builder().nextToken(nextToken).build()))
+                .thenCompose(response -> {
+
+                    for (Export export : response.exports()) exports.put(export.name(), export.value());
+
+                    return response.nextToken() == null ? CompletableFuture.completedFuture(exports) :
+                            listExports(response.nextToken(), exports);
+                });
+    }
+
+    /**
+     * Determine if a stack exists.  A stack that isn't found is looked up two more times after a random delay of up
+     * to 5 seconds.
+     *
+     * @param stackName is the name of the stack.
+     * @return the future of a flag indicating that the stack exists.
+     */
+    CompletableFuture<Boolean> exists(String stackName) {
+
+        return find(stackName).thenApply(Objects::nonNull);
+    }
+
+    /**
+     * Describe a stack if it exists.  A stack that isn't found is looked up two more times after a random delay of up
+     * to 5 seconds.  A stack in review was made by a CREATE change set that wasn't executed, so it doesn't exist yet.
+     *
+     * @param stackName is the name of the stack.
+     * @return the future of the description or null when the stack doesn't exist.
+     */
+    CompletableFuture<DescribeStacksResponse> find(String stackName) {
+
+        return find(stackName, 0);
+    }
+
+    /**
+     * Describe a stack if it exists.
+     *
+     * @param stackName is the name of the stack.
+     * @param attempt is the number of the attempt.
+     * @return the future of the description or null when the stack doesn't exist.
+     */
+    private CompletableFuture<DescribeStacksResponse> find(String stackName, int attempt) {
+
+        return paced(() -> client.describeStacks(DescribeStacksRequest.builder().stackName(stackName).build()))
+                .handle((result, error) -> {
+
+                    if(error == null) {
+
+                        if((result.stacks() != null) && (result.stacks().size() >= 1))
+                            return CompletableFuture.completedFuture(
+                                    result.stacks().get(0).stackStatus() == StackStatus.REVIEW_IN_PROGRESS ? null :
+                                            result);
+
+                        if(attempt >= 2) return CompletableFuture.<DescribeStacksResponse>completedFuture(null);
+
+                    } else {
+
+                        String message = cause(error).getMessage() == null ? "" : cause(error).getMessage();
+
+                        if(message.contains("does not exist"))
+                            return CompletableFuture.<DescribeStacksResponse>completedFuture(null);
+
+                        if(!message.contains("Rate exceeded")) {
+
+                            System.out.println("Error encountered (retry): " + message);
+                            if(attempt >= 2) return CompletableFuture.<DescribeStacksResponse>completedFuture(null);
+
+                        } else throttled();
+                    }
+
+                    return randomDelay(5000).thenCompose(v -> find(stackName, attempt + 1));
+
+                }).thenCompose(future -> future);
+    }
+
+    /**
+     * Wait for a change set to be created.  The change set is polled after a random delay of up to 10 seconds while
+     * it is pending or in progress.
+     *
+     * @param stackName is the name of the stack.
+     * @param changeSetName is the name of the change set.
+     * @return the future of the last description of the change set or null when it couldn't be described.
+     */
+    CompletableFuture<DescribeChangeSetResponse> waitChangeSet(String stackName, String changeSetName) {
+
+        return paced(() -> client.describeChangeSet(DescribeChangeSetRequest.builder()
+                .changeSetName(changeSetName)
+                .stackName(stackName)
+                .nextToken(UUID.randomUUID().toString())
+                .build()))
+                .handle((result, error) -> {
+
+                    if(error != null) {
+
+                        if(!isRateExceeded(error)) return CompletableFuture.<DescribeChangeSetResponse>completedFuture(null);
+
+                        throttled();
+                        return delay(1000).thenCompose(v -> waitChangeSet(stackName, changeSetName));
+                    }
+
+                    if((result.status() == ChangeSetStatus.CREATE_PENDING) ||
+                            (result.status() == ChangeSetStatus.CREATE_IN_PROGRESS))
+                        return randomDelay(10000).thenCompose(v -> waitChangeSet(stackName, changeSetName));
+
+                    return CompletableFuture.completedFuture(result);
+
+                }).thenCompose(future -> future);
+    }
+
+    /**
+     * Delete a change set.  Failures are ignored.
+     *
+     * @param stackName is the name of the stack.
+     * @param changeSetName is the name of the change set.
+     * @return the future of the deletion.
+     */
+    CompletableFuture<Void> deleteChangeSet(String stackName, String changeSetName) {
+
+        return paced(() -> client.deleteChangeSet(DeleteChangeSetRequest.builder()
+                .changeSetName(changeSetName)
+                .stackName(stackName)
+                .build()))
+                .handle((result, error) -> null);
+    }
+
+    /**
+     * Delete a stack that is in review because the CREATE change set that made it wasn't executed, and wait for it to
+     * be deleted.  Other stacks are left alone.
+     *
+     * @param stackName is the name of the stack.
+     * @return the future of a flag indicating that the stack was in review and is deleted.
+     */
+    CompletableFuture<Boolean> deleteReviewStack(String stackName) {
+
+        return paced(() -> client.describeStacks(DescribeStacksRequest.builder().stackName(stackName).build()))
+                .handle((result, error) -> (error == null) && (result.stacks() != null) &&
+                        !result.stacks().isEmpty() &&
+                        (result.stacks().get(0).stackStatus() == StackStatus.REVIEW_IN_PROGRESS))
+                .thenCompose(review -> !review ? CompletableFuture.completedFuture(false) :
+                        retry(() -> client.deleteStack(DeleteStackRequest.builder().stackName(stackName).build()))
+                                .thenCompose(response -> waitStackDeleted(stackName))
+                                .thenApply(v -> true));
+    }
+
+    /**
+     * Wait for a stack to be deleted.  The stack is polled after a random delay of up to 5 seconds while it is found.
+     *
+     * @param stackName is the name of the stack.
+     * @return the future that completes when the stack isn't found.
+     */
+    private CompletableFuture<Void> waitStackDeleted(String stackName) {
+
+        return find(stackName).thenCompose(found -> found == null ? CompletableFuture.<Void>completedFuture(null) :
+                randomDelay(5000).thenCompose(v -> waitStackDeleted(stackName)));
+    }
+
+    /**
+     * Wait for a stack operation to finish.  The stack is polled after a random delay of up to 10 seconds while it
+     * is in progress.
+     *
+     * @param stackName is the name of the stack.
+     * @return the future of the stack when it isn't in progress anymore.
+     */
+    CompletableFuture<Stack> waitStackInProgress(String stackName) {
+
+        return describeStack(stackName).thenCompose(response -> {
+
+            Stack stack = response.stacks().get(0);
+            switch(stack.stackStatus()) {
+
+                case CREATE_IN_PROGRESS:
+                case ROLLBACK_IN_PROGRESS:
+                case UPDATE_IN_PROGRESS:
+                case REVIEW_IN_PROGRESS:
+                case IMPORT_ROLLBACK_IN_PROGRESS:
+                case UPDATE_ROLLBACK_IN_PROGRESS:
+                case DELETE_IN_PROGRESS:
+                case IMPORT_IN_PROGRESS:
+                case UPDATE_COMPLETE_CLEANUP_IN_PROGRESS:
+                case UPDATE_ROLLBACK_COMPLETE_CLEANUP_IN_PROGRESS:
+                    return randomDelay(10000).thenCompose(v -> waitStackInProgress(stackName));
+
+                default:
+                    settled.put(stackName, response);
+                    return CompletableFuture.completedFuture(stack);
+            }
+        });
+    }
+
+    /**
+     * Create a stack and wait for the creation to finish.  When the stack already exists after a request failed in
+     * transit, the creation started by that request is followed.  When the name is taken by a stack in review that a
+     * CREATE change set made, that stack is deleted and the stack is created again.
+     *
+     * @param request is the request to create the stack.  It carries a client request token.
+     * @return the future of the id of the stack.  It fails when the stack isn't created.
+     */
+    CompletableFuture<String> createStack(CreateStackRequest request) {
+
+        return startStack(request).handle((result, error) -> {
+
+            if(error == null) return CompletableFuture.completedFuture(result);
+
+            Throwable failure = cause(error);
+            if(!(failure.getCause() instanceof AlreadyExistsException))
+                return CompletableFuture.<String>failedFuture(failure);
+
+            return deleteReviewStack(request.stackName()).thenCompose(deleted -> !deleted ?
+                    CompletableFuture.<String>failedFuture(failure) :
+                    startStack(request.toBuilder().clientRequestToken(UUID.randomUUID().toString()).build()));
+
+        }).thenCompose(future -> future);
+    }
+
+    /**
+     * Create a stack and wait for the creation to finish.
+     *
+     * @param request is the request to create the stack.  It carries a client request token.
+     * @return the future of the id of the stack.  It fails when the stack isn't created.
+     */
+    private CompletableFuture<String> startStack(CreateStackRequest request) {
+
+        long sent = System.currentTimeMillis();
+        return governed(() -> client.createStack(request),
+                failure -> isStarted(request.stackName(), request.clientRequestToken(), sent)
+                        .thenCompose(started -> !started ? CompletableFuture.<CreateStackResponse>failedFuture(failure) :
+                                describeStack(request.stackName()).thenApply(response -> CreateStackResponse.builder()
+                                        .stackId(response.stacks().get(0).stackId())
+                                        .build())),
+                result -> waitStackInProgress(request.stackName())
+                        .thenCompose(stack -> stack.stackStatus() == StackStatus.CREATE_COMPLETE ?
+                                CompletableFuture.completedFuture(result.stackId()) :
+                                CompletableFuture.failedFuture(new MojoExecutionException(stack.stackStatusReason()))));
+    }
+
+    /**
+     * Create a change set and wait for it to be created.  When it fails because the API rate was exceeded, it is
+     * created again.  When the change set already exists after a request failed in transit, it was created by that
+     * request, since the names of the change sets are unique.  A change set without changes is deleted.
+     *
+     * @param request is the request to create the change set.  It carries a client token.
+     * @return the future of the description of the change set.
+     */
+    CompletableFuture<DescribeChangeSetResponse> createChangeSet(CreateChangeSetRequest request) {
+
+        return submit(() -> client.createChangeSet(request),
+                failure -> failure.getCause() instanceof AlreadyExistsException ?
+                        CompletableFuture.completedFuture(CreateChangeSetResponse.builder().build()) :
+                        CompletableFuture.failedFuture(failure))
+                .thenCompose(v -> waitChangeSet(request.stackName(), request.changeSetName()))
+                .thenCompose(v -> describeChangeSet(request.stackName(), request.changeSetName()))
+                .thenCompose(result -> {
+
+                    if(result.status() != ChangeSetStatus.FAILED) return CompletableFuture.completedFuture(result);
+
+                    if((result.changes().size() <= 0) &&
+                            result.statusReason().startsWith("The submitted information didn't contain changes."))
+                        return deleteChangeSet(result.stackName(), result.changeSetName()).thenApply(d -> result);
+
+                    if(result.statusReason().contains("Rate exceeded")) return createChangeSet(request);
+
+                    return CompletableFuture.failedFuture(
+                            new MojoExecutionException("ChangeSet Error: " + result.statusReason()));
+                });
+    }
+
+    /**
+     * Describe a change set.
+     *
+     * @param stackName is the name of the stack.
+     * @param changeSetName is the name of the change set.
+     * @return the future of the description.
+     */
+    CompletableFuture<DescribeChangeSetResponse> describeChangeSet(String stackName, String changeSetName) {
+
+        return retry(() -> client.describeChangeSet(DescribeChangeSetRequest.builder()
+                .changeSetName(changeSetName)
+                .stackName(stackName)
+                .nextToken(UUID.randomUUID().toString())
+                .build()));
+    }
+
+    /**
+     * Execute a change set and wait for the update to finish.  When the change set can't be executed anymore after a
+     * request failed in transit, the update started by that request is followed.  The request is only sent once it
+     * is answered, and the update is then followed on its own, so a throttled poll never executes it again.
+     *
+     * @param request is the request to execute the change set.  It carries a client request token.
+     * @return the future of the execution.  It fails when the update is rolled back.
+     */
+    CompletableFuture<Void> executeChangeSet(ExecuteChangeSetRequest request) {
+
+        long sent = System.currentTimeMillis();
+        return governed(() -> client.executeChangeSet(request),
+                failure -> isStarted(request.stackName(), request.clientRequestToken(), sent)
+                        .thenCompose(started -> started ?
+                                CompletableFuture.completedFuture(ExecuteChangeSetResponse.builder().build()) :
+                                CompletableFuture.<ExecuteChangeSetResponse>failedFuture(failure)),
+                response -> waitStackInProgress(request.stackName()).thenCompose(this::checkUpdate));
+    }
+
+    /**
+     * Check the status of a stack after an update or after a CREATE change set is executed.
+     *
+     * @param stack is the description of the stack once the operation finished.
+     * @return the future of the check.  It fails when the update is rolled back.
+     */
+    private CompletableFuture<Void> checkUpdate(Stack stack) {
+
+        switch(stack.stackStatus()) {
+
+            case UPDATE_ROLLBACK_COMPLETE:
+            case UPDATE_ROLLBACK_FAILED:
+            case ROLLBACK_COMPLETE:
+            case ROLLBACK_FAILED:
+            case CREATE_FAILED:
+                String reason = stack.stackStatusReason() != null ?
+                        "CloudFormation Error: " + stack.stackStatusReason() :
+                        "See CloudFormation Console for errors.";
+
+                return CompletableFuture.failedFuture(new MojoExecutionException("CloudFormation Error: " + reason));
+
+            default:
+                return CompletableFuture.completedFuture(null);
+        }
+    }
+}
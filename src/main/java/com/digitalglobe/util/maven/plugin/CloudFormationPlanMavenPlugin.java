@@ -0,0 +1,17 @@
+package com.digitalglobe.util.maven.plugin;
+
+/**
+ * Goal which plans a deployment.  It resolves the parameters, uploads the templates and creates a change set for
+ * every stack without executing them.  The change sets and their summaries are written to cloudformation-plan.json in
+ * the output directory.  It takes the same configuration as the deploy goal.
+ *
+ * @goal plan
+ */
+@SuppressWarnings({"JavaDoc", "unused"})
+public class CloudFormationPlanMavenPlugin extends CloudFormationDeployMavenPlugin {
+
+    public CloudFormationPlanMavenPlugin() {
+
+        super(Goal.PLAN);
+    }
+}
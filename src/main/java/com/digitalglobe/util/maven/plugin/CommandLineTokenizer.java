@@ -0,0 +1,91 @@
+package com.digitalglobe.util.maven.plugin;
+
+import org.apache.maven.plugin.MojoExecutionException;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * This class splits a command line into its arguments the way a shell does.  Arguments are separated by whitespace.
+ * Whitespace inside single quotes ('), double quotes (") or back quotes (`) is part of the argument and the quotes are
+ * removed.  A backslash outside of quotes makes the next character literal.  Inside double quotes or back quotes a
+ * backslash only escapes the quote, a backslash or a dollar sign.  Inside single quotes a backslash is literal.
+ *
+ * Example: aws ec2 describe-vpcs --filters "Name=tag:Name,Values=Main VPC"
+ *
+ * The command line is read in a single pass, so the time taken grows linearly with its length.
+ */
+class CommandLineTokenizer {
+
+    /**
+     * Split a command line into its arguments.
+     *
+     * @param commandLine is the command line to split.
+     * @return the arguments of the command line.
+     * @throws MojoExecutionException when a quote isn't closed or the command line ends with a backslash.
+     */
+    static String[] tokenize(String commandLine) throws MojoExecutionException {
+
+        List<String> arguments = new ArrayList<>();
+        StringBuilder argument = new StringBuilder();
+        boolean inArgument = false;     // Set once a character or a pair of quotes of the argument is read.
+        char quote = 0;                 // The open quote or 0 when outside of quotes.
+        int length = commandLine.length();
+
+        for (int i = 0; i < length; i++) {
+
+            char c = commandLine.charAt(i);
+
+            if(quote == '\'') {
+
+                if(c == '\'') quote = 0;
+                else argument.append(c);
+
+            } else if(quote != 0) {
+
+                if(c == quote) quote = 0;
+                else if((c == '\\') && (i + 1 < length) && isEscapedInQuotes(commandLine.charAt(i + 1), quote))
+                    argument.append(commandLine.charAt(++i));
+                else argument.append(c);
+
+            } else if(Character.isWhitespace(c)) {
+
+                if(inArgument) {
+
+                    arguments.add(argument.toString());
+                    argument.setLength(0);
+                    inArgument = false;
+                }
+
+            } else {
+
+                inArgument = true;
+
+                if((c == '\'') || (c == '"') || (c == '`')) quote = c;
+                else if(c == '\\') {
+
+                    if(++i == length) throw new MojoExecutionException("The command ends with an escape character.");
+                    argument.append(commandLine.charAt(i));
+
+                } else argument.append(c);
+            }
+        }
+
+        if(quote != 0) throw new MojoExecutionException("The command contains an unterminated " + quote + " quote.");
+        if(inArgument) arguments.add(argument.toString());
+
+        return arguments.toArray(new String[0]);
+    }
+
+    /**
+     * Test if a character may be escaped with a backslash inside double quotes or back quotes.
+     *
+     * @param c is the character following the backslash.
+     * @param quote is the open quote.
+     * @return a flag indicating that the backslash escapes the character.
+     */
+    static private boolean isEscapedInQuotes(char c, char quote) {
+
+        return (c == quote) || (c == '\\') || (c == '$');
+    }
+}
@@ -0,0 +1,169 @@
+package com.digitalglobe.util.maven.plugin;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * This class caches the standard output of CLI commands.  The memory tier lives for a single execution of the plugin.
+ * The optional disk tier stores the output in a directory so that later builds can reuse it until the time to live
+ * of the entry expires.
+ */
+class CommandOutputCache {
+
+    static private final TypeReference<LinkedHashMap<String, Object>> ENTRY_TYPE =
+            new TypeReference<LinkedHashMap<String, Object>>() {};          // The type of a disk entry.
+
+    private final Map<String, String> memory = new ConcurrentHashMap<>();  // Outputs cached during this execution.
+    private final File directory;                                           // The directory of the disk tier.
+    private final ObjectMapper mapper = new ObjectMapper();                 // Reads and writes disk entries.
+    private volatile long invalidated = 0;                                  // The time of the last invalidation.
+
+    /**
+     * This constructor initializes the directory used by the disk tier.
+     *
+     * @param directory is the directory to store cached outputs in.
+     */
+    CommandOutputCache(File directory) {
+
+        this.directory = directory;
+    }
+
+    /**
+     * Build the key of a cache entry.
+     *
+     * @param commandInformation is the tokenized command.
+     * @param identity is the role or account the command is executed as.
+     * @param region is the region the command is executed in.
+     * @return the key of the cache entry.
+     */
+    static String key(String[] commandInformation, String identity, String region) {
+
+        StringBuilder key = new StringBuilder();
+        key.append(identity).append('\u0000').append(region);
+        for (String segment : commandInformation) key.append('\u0000').append(segment);
+
+        return key.toString();
+    }
+
+    /**
+     * Get the cached output for a key.  The memory tier is checked first.  The disk tier is only checked when a
+     * time to live is specified.
+     *
+     * @param key is the key of the cache entry.
+     * @param timeToLive is the number of seconds a disk entry is valid for.  It may be null.
+     * @return the cached output or null if there isn't a valid entry.
+     */
+    String get(String key, Integer timeToLive) {
+
+        String output = memory.get(key);
+
+        if((output == null) && (timeToLive != null) && (timeToLive > 0)) {
+
+            File file = getFile(key);
+            if(file.exists()) {
+
+                try {
+
+                    Map<String, Object> entry = mapper.readValue(file, ENTRY_TYPE);
+                    long created = ((Number) entry.get("created")).longValue();
+
+                    // An entry written before the last invalidation may describe resources that changed since.
+                    if(key.equals(entry.get("key")) && (created >= invalidated) &&
+                            (System.currentTimeMillis() - created < timeToLive * 1000L)) {
+
+                        output = (String) entry.get("output");
+                        memory.put(key, output);
+                    }
+
+                } catch (IOException | RuntimeException ex) {
+
+                    // A damaged entry is treated as a cache miss.
+                }
+            }
+        }
+
+        return output;
+    }
+
+    /**
+     * Store the output of a command.  The output is written to the disk tier only when a time to live is specified.
+     *
+     * @param key is the key of the cache entry.
+     * @param output is the standard output of the command.
+     * @param timeToLive is the number of seconds a disk entry is valid for.  It may be null.
+     * @throws IOException when the disk entry can't be written.
+     */
+    void put(String key, String output, Integer timeToLive) throws IOException {
+
+        memory.put(key, output);
+
+        if((timeToLive != null) && (timeToLive > 0)) {
+
+            if(!directory.exists()) //noinspection ResultOfMethodCallIgnored
+                directory.mkdirs();
+
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("key", key);
+            entry.put("created", System.currentTimeMillis());
+            entry.put("output", output);
+
+            File file = getFile(key);
+            File temp = new File(directory, file.getName() + ".tmp");
+            mapper.writeValue(temp, entry);
+
+            if(!temp.renameTo(file)) {
+
+                //noinspection ResultOfMethodCallIgnored
+                file.delete();
+                if(!temp.renameTo(file)) throw new IOException("Unable to write cache entry: " + file.getName());
+            }
+        }
+    }
+
+    /**
+     * Remove all the entries of the memory and disk tiers.  Use this when a stack operation may have changed the
+     * resources that cached commands describe.  A disk entry that can't be deleted is ignored for the rest of the
+     * execution.
+     */
+    void invalidate() {
+
+        invalidated = System.currentTimeMillis();
+        memory.clear();
+
+        File[] files = directory.listFiles((dir, name) -> name.endsWith(".json"));
+        if(files != null)
+            for (File file : files) //noinspection ResultOfMethodCallIgnored
+                file.delete();
+    }
+
+    /**
+     * Get the disk tier file for a key.  The file name is the SHA 256 hash of the key.
+     *
+     * @param key is the key of the cache entry.
+     * @return the file holding the entry.
+     */
+    private File getFile(String key) {
+
+        try {
+
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(key.getBytes(StandardCharsets.UTF_8));
+            StringBuilder name = new StringBuilder();
+            for (byte b : hash) name.append(String.format("%02x", b));
+
+            return new File(directory, name.append(".json").toString());
+
+        } catch (NoSuchAlgorithmException ex) {
+
+            throw new IllegalStateException("SHA-256 is not available.", ex);
+        }
+    }
+}
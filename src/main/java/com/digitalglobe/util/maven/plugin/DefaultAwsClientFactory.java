@@ -0,0 +1,208 @@
+package com.digitalglobe.util.maven.plugin;
+
+import software.amazon.awssdk.auth.credentials.AwsCredentialsProvider;
+import software.amazon.awssdk.awscore.client.builder.AwsClientBuilder;
+import software.amazon.awssdk.core.client.config.ClientOverrideConfiguration;
+import software.amazon.awssdk.http.SdkHttpClient;
+import software.amazon.awssdk.http.apache.ApacheHttpClient;
+import software.amazon.awssdk.http.async.SdkAsyncHttpClient;
+import software.amazon.awssdk.http.nio.netty.NettyNioAsyncHttpClient;
+import software.amazon.awssdk.http.nio.netty.SdkEventLoopGroup;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.regions.providers.DefaultAwsRegionProviderChain;
+import software.amazon.awssdk.services.cloudformation.CloudFormationAsyncClient;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.S3Configuration;
+import software.amazon.awssdk.services.ssm.SsmClient;
+import software.amazon.awssdk.services.sts.StsClient;
+
+import java.io.File;
+import java.net.URI;
+import java.time.Duration;
+import java.util.function.BiFunction;
+
+/**
+ * This class creates the AWS clients used by the plugin with the SDK builders.  The synchronous clients share one
+ * HTTP client and the CloudFormation clients share one asynchronous HTTP client so that the connection pools and event
+ * loop threads are created once for the execution instead of once per client.  The shared HTTP clients are created on
+ * first use and released when the factory is closed.  When a rate limit directory is set, the SSM calls are paced with
+ * the buckets shared by the plugin processes on the host.  There is a bucket for each account and region, since the
+ * API rates are limited per account and region.
+ */
+class DefaultAwsClientFactory implements AwsClientFactory {
+
+    private AwsClientSettings settings = new AwsClientSettings();   // The settings of the clients.
+    private SdkHttpClient httpClient = null;                        // The HTTP client of the synchronous clients.
+    private SdkAsyncHttpClient asyncHttpClient = null;              // The HTTP client of the CloudFormation clients.
+    private SharedRateLimiter rateLimiter = null;                   // Paces the calls with the other processes.
+    private BiFunction<String, AwsCredentialsProvider, String> rateLimitScope = // Names the account and region.
+            (region, credentials) -> region != null ? region : new DefaultAwsRegionProviderChain().getRegion().id();
+
+    @Override
+    public void configure(AwsClientSettings settings) {
+
+        this.settings = settings;
+    }
+
+    /**
+     * Set the function that names the account and resolved region of a client, so that the clients of an account and
+     * region share a bucket.  By default, the buckets are named by the resolved region alone.
+     *
+     * @param rateLimitScope names the account and region of the region and credentials of a client.
+     * @return this instance for initialization chaining.
+     */
+    DefaultAwsClientFactory withRateLimitScope(BiFunction<String, AwsCredentialsProvider, String> rateLimitScope) {
+
+        this.rateLimitScope = rateLimitScope;
+        return this;
+    }
+
+    @Override
+    public StsClient createStsClient(String region, AwsCredentialsProvider credentials) {
+
+        return configure(StsClient.builder().httpClient(getHttpClient()), "sts", region, credentials).build();
+    }
+
+    @Override
+    public S3Client createS3Client(String region, AwsCredentialsProvider credentials) {
+
+        return configure(S3Client.builder().httpClient(getHttpClient()), "s3", region, credentials)
+                .serviceConfiguration(S3Configuration.builder()
+                        .pathStyleAccessEnabled(settings.isS3PathStyleAccess())
+                        .build())
+                .build();
+    }
+
+    @Override
+    public CloudFormationAsyncClient createCloudFormationClient(String region, AwsCredentialsProvider credentials) {
+
+        return configure(CloudFormationAsyncClient.builder().httpClient(getAsyncHttpClient()), "cloudformation",
+                region, credentials).build();
+    }
+
+    @Override
+    public SsmClient createSsmClient(String region, AwsCredentialsProvider credentials) {
+
+        return configure(SsmClient.builder().httpClient(getHttpClient()), "ssm", region, credentials).build();
+    }
+
+    /**
+     * Close the shared HTTP clients.  The clients created by the factory don't close them.
+     */
+    @Override
+    public synchronized void close() {
+
+        if(httpClient != null) {
+
+            httpClient.close();
+            httpClient = null;
+        }
+
+        if(asyncHttpClient != null) {
+
+            asyncHttpClient.close();
+            asyncHttpClient = null;
+        }
+    }
+
+    /**
+     * Apply the settings that all clients have in common to a client builder.
+     *
+     * @param builder is the builder of the client.
+     * @param service is the name of the service used to look up an endpoint override.
+     * @param region is the region of the client or null for the default region.
+     * @param credentials are the credentials of the client or null for the default credentials.
+     * @return the builder.
+     */
+    private <B extends AwsClientBuilder<B, ?>> B configure(B builder, String service, String region,
+                                                            AwsCredentialsProvider credentials) {
+
+        if(region != null) builder.region(Region.of(region));
+        if(credentials != null) builder.credentialsProvider(credentials);
+
+        String endpoint = settings.getEndpointOverride(service);
+        if(endpoint != null) builder.endpointOverride(URI.create(endpoint));
+
+        ClientOverrideConfiguration.Builder configuration = ClientOverrideConfiguration.builder();
+        if(settings.getApiCallTimeout() > 0)
+            configuration.apiCallTimeout(Duration.ofSeconds(settings.getApiCallTimeout()));
+        if(settings.getApiCallAttemptTimeout() > 0)
+            configuration.apiCallAttemptTimeout(Duration.ofSeconds(settings.getApiCallAttemptTimeout()));
+
+        // The synchronous SSM calls are paced here.  The CloudFormation calls are paced without blocking by the
+        // stack operations.
+        SharedRateLimiter limiter = getRateLimiter();
+        if(service.equals("ssm") && (limiter != null))
+            configuration.addExecutionInterceptor(limiter.bucket("ssm-" + rateLimitScope.apply(region, credentials),
+                    settings.getSsmRequestRate()).interceptor());
+
+        builder.overrideConfiguration(configuration.build());
+
+        return builder;
+    }
+
+    /**
+     * Get the limiter that paces the calls with the other plugin processes on the host.
+     *
+     * @return the limiter or null when the calls aren't paced.
+     */
+    private synchronized SharedRateLimiter getRateLimiter() {
+
+        if((rateLimiter == null) && (settings.getRateLimitDirectory() != null))
+            rateLimiter = new SharedRateLimiter(new File(settings.getRateLimitDirectory()));
+
+        return rateLimiter;
+    }
+
+    /**
+     * Get the HTTP client shared by the synchronous clients.
+     *
+     * @return the shared HTTP client.
+     */
+    private synchronized SdkHttpClient getHttpClient() {
+
+        if(httpClient == null) {
+
+            ApacheHttpClient.Builder builder = ApacheHttpClient.builder()
+                    .maxConnections(settings.getMaxConnections())
+                    .connectionMaxIdleTime(Duration.ofSeconds(settings.getConnectionMaxIdleTime()))
+                    .useIdleConnectionReaper(true);
+
+            if(settings.getConnectionTimeout() > 0)
+                builder.connectionTimeout(Duration.ofSeconds(settings.getConnectionTimeout()));
+            if(settings.getSocketTimeout() > 0)
+                builder.socketTimeout(Duration.ofSeconds(settings.getSocketTimeout()));
+
+            httpClient = builder.build();
+        }
+
+        return httpClient;
+    }
+
+    /**
+     * Get the asynchronous HTTP client shared by the CloudFormation clients.
+     *
+     * @return the shared HTTP client.
+     */
+    private synchronized SdkAsyncHttpClient getAsyncHttpClient() {
+
+        if(asyncHttpClient == null) {
+
+            NettyNioAsyncHttpClient.Builder builder = NettyNioAsyncHttpClient.builder()
+                    .maxConcurrency(settings.getAsyncMaxConnections())
+                    .connectionMaxIdleTime(Duration.ofSeconds(settings.getConnectionMaxIdleTime()))
+                    .useIdleConnectionReaper(true);
+
+            if(settings.getAsyncThreads() > 0)
+                builder.eventLoopGroupBuilder(SdkEventLoopGroup.builder().numberOfThreads(settings.getAsyncThreads()));
+            if(settings.getConnectionTimeout() > 0)
+                builder.connectionTimeout(Duration.ofSeconds(settings.getConnectionTimeout()));
+            if(settings.getSocketTimeout() > 0)
+                builder.readTimeout(Duration.ofSeconds(settings.getSocketTimeout()));
+
+            asyncHttpClient = builder.build();
+        }
+
+        return asyncHttpClient;
+    }
+}
@@ -0,0 +1,240 @@
+package com.digitalglobe.util.maven.plugin;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.apache.maven.plugin.MojoExecutionException;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This class holds how far a deployment got.  It is written after each stack that finishes so that a failed
+ * deployment can continue from the stack that failed.  It keeps the position of the next stack and the name, ID and
+ * last update time of each finished stack, so that the finished stacks can be checked for changes and their outputs
+ * read again before the deployment continues.  The outputs themselves aren't kept since they can hold secrets.  A
+ * fingerprint of the templates and parameter files is kept so that a checkpoint made from a different configuration
+ * isn't used.
+ */
+class DeploymentCheckpoint {
+
+    static final String FILE_NAME = "cloudformation-checkpoint.json";
+
+    private final String fingerprint;                       // The fingerprint of the configuration.
+    private int group = 0;                                  // The stack group being deployed.
+    private int completed = 0;                              // The number of finished stacks of the group.
+    private final List<Entry> stacks = new ArrayList<>();   // The finished stacks in order.
+
+    /**
+     * This class holds a finished stack.
+     */
+    static class Entry {
+
+        private final int group;                            // The stack group of the stack.
+        private final int position;                         // The position of the stack in the group.
+        private final String stackName;                     // The name of the stack.
+        private final String stackId;                       // The ID of the stack or null.
+        private final String region;                        // The region of the stack or null for the default.
+        private final String roleArn;                       // The role used to deploy the stack or null.
+        private final Long lastUpdated;                     // The time the stack was last updated or null.
+
+        /**
+         * This constructor initializes the entry.
+         *
+         * @param group is the stack group of the stack.
+         * @param position is the position of the stack in the group.  The primary stack is at 0.
+         * @param stackName is the name of the stack.
+         * @param stackId is the ID of the stack or null when the stack wasn't described.
+         * @param region is the region of the stack.
+         * @param roleArn is the role used to deploy the stack.
+         * @param lastUpdated is the time the stack was last updated or null when the stack wasn't described.
+         */
+        Entry(int group, int position, String stackName, String stackId, String region, String roleArn,
+              Long lastUpdated) {
+
+            this.group = group;
+            this.position = position;
+            this.stackName = stackName;
+            this.stackId = stackId;
+            this.region = region;
+            this.roleArn = roleArn;
+            this.lastUpdated = lastUpdated;
+        }
+
+        String getStackName() {
+
+            return stackName;
+        }
+
+        String getStackId() {
+
+            return stackId;
+        }
+
+        String getRegion() {
+
+            return region;
+        }
+
+        String getRoleArn() {
+
+            return roleArn;
+        }
+
+        Long getLastUpdated() {
+
+            return lastUpdated;
+        }
+
+        /**
+         * Use this method to convert the entry to the map written to the checkpoint file.
+         *
+         * @return the map.
+         */
+        private Map<String, Object> toMap() {
+
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("group", group);
+            map.put("position", position);
+            map.put("stackName", stackName);
+            map.put("stackId", stackId);
+            map.put("region", region);
+            map.put("roleArn", roleArn);
+            map.put("lastUpdated", lastUpdated);
+
+            return map;
+        }
+    }
+
+    /**
+     * This constructor initializes a checkpoint at the start of a deployment.
+     *
+     * @param fingerprint is the fingerprint of the configuration being deployed.
+     */
+    DeploymentCheckpoint(String fingerprint) {
+
+        this.fingerprint = fingerprint;
+    }
+
+    String getFingerprint() {
+
+        return fingerprint;
+    }
+
+    int getGroup() {
+
+        return group;
+    }
+
+    int getCompleted() {
+
+        return completed;
+    }
+
+    List<Entry> getStacks() {
+
+        return Collections.unmodifiableList(stacks);
+    }
+
+    /**
+     * Use this method to record a finished stack.  The deployment continues after it.
+     *
+     * @param entry is the finished stack.
+     * @return this object for initialization chaining.
+     */
+    DeploymentCheckpoint advance(Entry entry) {
+
+        this.group = entry.group;
+        this.completed = entry.position + 1;
+        stacks.add(entry);
+
+        return this;
+    }
+
+    /**
+     * Use this method to get a stack that finished before the checkpoint.  When a stack was recorded more than once,
+     * the last record is returned.
+     *
+     * @param group is the stack group of the stack.
+     * @param position is the position of the stack in the group.  The primary stack is at 0.
+     * @return the finished stack or null when it wasn't recorded.
+     */
+    Entry getStack(int group, int position) {
+
+        for (int index = stacks.size() - 1; index >= 0; index--)
+            if((stacks.get(index).group == group) && (stacks.get(index).position == position))
+                return stacks.get(index);
+
+        return null;
+    }
+
+    /**
+     * Use this method to test if a stack of the deployment finished before the checkpoint.
+     *
+     * @param group is the stack group of the stack.
+     * @param position is the position of the stack in the group.  The primary stack is at 0.
+     * @return a flag indicating that the stack doesn't need to be deployed again.
+     */
+    boolean isCompleted(int group, int position) {
+
+        return (group < this.group) || ((group == this.group) && (position < completed));
+    }
+
+    /**
+     * Use this method to write the checkpoint to a file.
+     *
+     * @param file is the checkpoint file.
+     * @throws IOException when the file can't be written.
+     */
+    void write(File file) throws IOException {
+
+        List<Map<String, Object>> entries = new ArrayList<>();
+        for (Entry entry : stacks) entries.add(entry.toMap());
+
+        Map<String, Object> checkpoint = new LinkedHashMap<>();
+        checkpoint.put("fingerprint", fingerprint);
+        checkpoint.put("group", group);
+        checkpoint.put("completed", completed);
+        checkpoint.put("stacks", entries);
+
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(file, checkpoint);
+    }
+
+    /**
+     * Use this method to read a checkpoint from a file.
+     *
+     * @param file is the checkpoint file.
+     * @return the checkpoint or null when the file doesn't exist.
+     * @throws MojoExecutionException when the file can't be read.
+     */
+    @SuppressWarnings("unchecked")
+    static DeploymentCheckpoint read(File file) throws MojoExecutionException {
+
+        if(!file.exists()) return null;
+
+        try {
+
+            Map<String, Object> map = new ObjectMapper().readValue(file, LinkedHashMap.class);
+            DeploymentCheckpoint checkpoint = new DeploymentCheckpoint((String) map.get("fingerprint"));
+
+            for (Map<String, Object> stack : (List<Map<String, Object>>) map.get("stacks"))
+                checkpoint.stacks.add(new Entry(((Number) stack.get("group")).intValue(),
+                        ((Number) stack.get("position")).intValue(), (String) stack.get("stackName"),
+                        (String) stack.get("stackId"), (String) stack.get("region"), (String) stack.get("roleArn"),
+                        stack.get("lastUpdated") == null ? null : ((Number) stack.get("lastUpdated")).longValue()));
+
+            checkpoint.group = ((Number) map.get("group")).intValue();
+            checkpoint.completed = ((Number) map.get("completed")).intValue();
+
+            return checkpoint;
+
+        } catch (IOException | RuntimeException ex) {
+
+            throw new MojoExecutionException("The checkpoint can't be read: " + file.getPath(), ex);
+        }
+    }
+}
@@ -0,0 +1,365 @@
+package com.digitalglobe.util.maven.plugin;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.apache.maven.plugin.MojoExecutionException;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * This class holds the change sets created by the plan goal.  The plan is written to a JSON file in the output
+ * directory.  The apply goal reads it back and executes the change sets of the stacks in the order they were planned.
+ * A fingerprint of the templates, parameter files and artifacts is kept with the plan so that a plan made from a
+ * different configuration isn't applied.  The output parameters the input parameters of each stack were resolved with
+ * are kept as hashes, so that a plan isn't applied after an earlier stack's outputs changed.
+ */
+class DeploymentPlan {
+
+    static final String FILE_NAME = "cloudformation-plan.json";
+
+    static private final Pattern GENERATED_NAME =           // Matches stack names made from a prefix and a UUID.
+            Pattern.compile("(.*)-[0-9a-f]{8}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{12}Stack");
+
+    private final long created;                             // The time the plan was made in milliseconds.
+    private final String fingerprint;                       // The fingerprint of the configuration.
+    private final List<Entry> entries = new ArrayList<>();  // The planned stacks in order.
+    private int applied = 0;                                // The number of entries applied.
+
+    /**
+     * This class holds the change set planned for a stack.
+     */
+    static class Entry {
+
+        private final String stackName;                     // The name of the stack.
+        private final String region;                        // The region of the stack or null for the default.
+        private final String roleArn;                       // The role the stack is deployed with or null.
+        private final String changeSetType;                 // CREATE or UPDATE.
+        private final String changeSetId;                   // The ARN of the change set or null without changes.
+        private final List<String> changes;                 // The summaries of the changes.
+        private final Map<String, String> assumedOutputs;   // The hashes of the outputs the inputs were resolved with.
+        private volatile boolean executed = false;          // Indicates that the change set was executed.
+
+        /**
+         * This constructor initializes the entry.
+         *
+         * @param stackName is the name of the stack.
+         * @param region is the region of the stack.
+         * @param roleArn is the role the stack is deployed with or null for the default credentials.
+         * @param changeSetType is the type of the change set.
+         * @param changeSetId is the ARN of the change set or null when there are no changes.
+         * @param changes are the summaries of the changes.
+         * @param assumedOutputs are the hashes of the output parameters the input parameters were resolved with.
+         */
+        Entry(String stackName, String region, String roleArn, String changeSetType, String changeSetId,
+              List<String> changes, Map<String, String> assumedOutputs) {
+
+            this.stackName = stackName;
+            this.region = region;
+            this.roleArn = roleArn;
+            this.changeSetType = changeSetType;
+            this.changeSetId = changeSetId;
+            this.changes = changes;
+            this.assumedOutputs = assumedOutputs;
+        }
+
+        String getStackName() {
+
+            return stackName;
+        }
+
+        String getRegion() {
+
+            return region;
+        }
+
+        String getRoleArn() {
+
+            return roleArn;
+        }
+
+        String getChangeSetType() {
+
+            return changeSetType;
+        }
+
+        String getChangeSetId() {
+
+            return changeSetId;
+        }
+
+        List<String> getChanges() {
+
+            return changes;
+        }
+
+        /**
+         * Use this method to record that the change set is being executed, so that it isn't deleted with the plan.
+         */
+        void executed() {
+
+            executed = true;
+        }
+
+        /**
+         * Use this method to convert the entry to the map written to the plan file.
+         *
+         * @return the map.
+         */
+        private Map<String, Object> toMap() {
+
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("stackName", stackName);
+            map.put("region", region);
+            map.put("roleArn", roleArn);
+            map.put("changeSetType", changeSetType);
+            map.put("changeSetId", changeSetId);
+            map.put("changes", changes);
+            map.put("assumedOutputs", assumedOutputs);
+
+            return map;
+        }
+    }
+
+    /**
+     * This constructor initializes an empty plan.
+     *
+     * @param fingerprint is the fingerprint of the configuration the plan is made from.
+     */
+    DeploymentPlan(String fingerprint) {
+
+        this(System.currentTimeMillis(), fingerprint);
+    }
+
+    /**
+     * This constructor initializes a plan read from a file.
+     *
+     * @param created is the time the plan was made.
+     * @param fingerprint is the fingerprint of the configuration the plan is made from.
+     */
+    private DeploymentPlan(long created, String fingerprint) {
+
+        this.created = created;
+        this.fingerprint = fingerprint;
+    }
+
+    long getCreated() {
+
+        return created;
+    }
+
+    String getFingerprint() {
+
+        return fingerprint;
+    }
+
+    /**
+     * Use this method to add the change set of a stack to the plan.
+     *
+     * @param entry is the planned change set.
+     */
+    synchronized void add(Entry entry) {
+
+        entries.add(entry);
+    }
+
+    /**
+     * Use this method to get the planned change set of the next stack to apply.  The stacks must be applied in the
+     * order they were planned and to the regions they were planned in.  A stack named from a prefix matches the
+     * planned stack with the same prefix.
+     *
+     * @param stackName is the name of the stack to apply.
+     * @param region is the region of the stack to apply or null for the default.
+     * @param outputParameters are the output parameters at the stack's turn.
+     * @return the planned change set.
+     * @throws MojoExecutionException when the stack isn't the next stack of the plan or an output parameter its input
+     *                                parameters were resolved with changed.
+     * @throws NoSuchAlgorithmException when the SHA-256 algorithm doesn't exist.
+     */
+    synchronized Entry next(String stackName, String region, Map<String, String> outputParameters)
+            throws MojoExecutionException, NoSuchAlgorithmException {
+
+        if(applied >= entries.size())
+            throw new MojoExecutionException("The plan is stale: it doesn't include the stack " + stackName + ".");
+
+        Entry entry = entries.get(applied);
+        if(!sameStack(entry.stackName, stackName))
+            throw new MojoExecutionException("The plan is stale: expected the stack " + entry.stackName +
+                    " but found " + stackName + ".");
+
+        if(!Objects.equals(entry.region, region))
+            throw new MojoExecutionException("The plan is stale: the stack " + stackName + " was planned in " +
+                    (entry.region != null ? entry.region : "the default region") + ".");
+
+        for (Map.Entry<String, String> assumed : entry.assumedOutputs.entrySet())
+            if(!outputParameters.containsKey(assumed.getKey()) ||
+                    !hashOutput(assumed.getKey(), outputParameters.get(assumed.getKey())).equals(assumed.getValue()))
+                throw new MojoExecutionException("The plan is stale: the output parameter " + assumed.getKey() +
+                        " that the inputs of " + stackName + " were resolved with changed.");
+
+        applied++;
+        return entry;
+    }
+
+    /**
+     * Use this method to check that every planned stack was applied.
+     *
+     * @throws MojoExecutionException when some planned stacks weren't reached.
+     */
+    synchronized void checkApplied() throws MojoExecutionException {
+
+        if(applied < entries.size())
+            throw new MojoExecutionException("The plan is stale: the stack " + entries.get(applied).stackName +
+                    " wasn't applied.");
+    }
+
+    /**
+     * Use this method to get the planned change sets that weren't executed.
+     *
+     * @return the entries with a change set that wasn't executed.
+     */
+    synchronized List<Entry> getUnexecuted() {
+
+        List<Entry> unexecuted = new ArrayList<>();
+        for (Entry entry : entries) if((entry.changeSetId != null) && !entry.executed) unexecuted.add(entry);
+
+        return unexecuted;
+    }
+
+    /**
+     * Use this method to write the plan to a file.
+     *
+     * @param file is the plan file.
+     * @throws IOException when the file can't be written.
+     */
+    synchronized void write(File file) throws IOException {
+
+        List<Map<String, Object>> stacks = new ArrayList<>();
+        for (Entry entry : entries) stacks.add(entry.toMap());
+
+        Map<String, Object> plan = new LinkedHashMap<>();
+        plan.put("created", created);
+        plan.put("fingerprint", fingerprint);
+        plan.put("stacks", stacks);
+
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(file, plan);
+    }
+
+    /**
+     * Use this method to read a plan from a file.
+     *
+     * @param file is the plan file.
+     * @return the plan.
+     * @throws MojoExecutionException when the file doesn't exist or can't be read.
+     */
+    @SuppressWarnings("unchecked")
+    static DeploymentPlan read(File file) throws MojoExecutionException {
+
+        if(!file.exists()) throw new MojoExecutionException("There isn't a plan to apply: " + file.getPath());
+
+        try {
+
+            Map<String, Object> map = new ObjectMapper().readValue(file, LinkedHashMap.class);
+            DeploymentPlan plan = new DeploymentPlan(((Number) map.get("created")).longValue(),
+                    (String) map.get("fingerprint"));
+
+            for (Map<String, Object> stack : (List<Map<String, Object>>) map.get("stacks"))
+                plan.add(new Entry((String) stack.get("stackName"), (String) stack.get("region"),
+                        (String) stack.get("roleArn"), (String) stack.get("changeSetType"),
+                        (String) stack.get("changeSetId"), (List<String>) stack.get("changes"),
+                        stack.get("assumedOutputs") == null ? Collections.emptyMap() :
+                                (Map<String, String>) stack.get("assumedOutputs")));
+
+            return plan;
+
+        } catch (IOException | RuntimeException ex) {
+
+            throw new MojoExecutionException("The plan can't be read: " + file.getPath(), ex);
+        }
+    }
+
+    /**
+     * Use this method to compute the fingerprint of the configuration a plan is made from.  The contents of the files
+     * are hashed along with their names so that an edited template, parameter file or artifact changes it.
+     *
+     * @param names are the names of the stacks.
+     * @param files are the templates, parameter files and artifacts.
+     * @return the Base 64 encoded SHA-256 hash of the configuration.
+     * @throws IOException when a file can't be read.
+     * @throws NoSuchAlgorithmException when the SHA-256 algorithm doesn't exist.
+     */
+    static String fingerprint(List<String> names, List<File> files) throws IOException, NoSuchAlgorithmException {
+
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+
+        for (String name : names) {
+
+            digest.update(String.valueOf(name).getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+        }
+
+        for (File file : files) {
+
+            digest.update(file.getName().getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(Files.readAllBytes(file.toPath()));
+        }
+
+        return Base64.getEncoder().encodeToString(digest.digest());
+    }
+
+    /**
+     * Use this method to hash the value of an output parameter that an input parameter was resolved with, so that the
+     * plan file doesn't hold the value.
+     *
+     * @param name is the name of the output parameter.
+     * @param value is the value of the output parameter.
+     * @return the Base 64 encoded SHA-256 hash of the name and value.
+     * @throws NoSuchAlgorithmException when the SHA-256 algorithm doesn't exist.
+     */
+    static String hashOutput(String name, String value) throws NoSuchAlgorithmException {
+
+        return DeploymentState.hash(Collections.singletonMap(name, value));
+    }
+
+    /**
+     * Use this method to test if a planned stack name and the name of a stack to apply are the same stack.
+     *
+     * @param planned is the name of the planned stack.
+     * @param actual is the name of the stack to apply.
+     * @return a flag indicating if the names are the same or generated from the same prefix.
+     */
+    static boolean sameStack(String planned, String actual) {
+
+        if(planned.equals(actual)) return true;
+
+        Matcher plannedName = GENERATED_NAME.matcher(planned);
+        Matcher actualName = GENERATED_NAME.matcher(actual);
+
+        return plannedName.matches() && actualName.matches() && plannedName.group(1).equals(actualName.group(1));
+    }
+
+    /**
+     * Use this method to test if a stack name is made from a prefix.
+     *
+     * @param stackName is the name of the stack.
+     * @return a flag indicating if the name is made from a prefix and a UUID.
+     */
+    static boolean isGeneratedName(String stackName) {
+
+        return GENERATED_NAME.matcher(stackName).matches();
+    }
+}
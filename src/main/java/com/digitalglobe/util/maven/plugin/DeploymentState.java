@@ -0,0 +1,263 @@
+package com.digitalglobe.util.maven.plugin;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.apache.maven.plugin.MojoExecutionException;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+
+/**
+ * This class holds what the earlier deployments left in each stack.  For each stack it records the hash of the
+ * template, the hash of the resolved input parameters, the digest of the deployment artifact, the time the stack was
+ * last updated and the hash of its outputs.  The outputs are hashed so that the state doesn't hold their values.  The
+ * stacks are kept by region, account and name, since stacks with the same name can be deployed in several regions and
+ * accounts.  The state is kept in a JSON file in the output directory or in S3 so that a later deployment can skip the
+ * stacks whose inputs didn't change.
+ */
+class DeploymentState {
+
+    static final String FILE_NAME = "cloudformation-state.json";
+
+    private final Map<String, Entry> entries = new TreeMap<>();     // The stacks by region, account and name.
+
+    /**
+     * This class holds the state of a stack after its last deployment.
+     */
+    static class Entry {
+
+        private final String stackName;                     // The name of the stack.
+        private final String region;                        // The region of the stack.
+        private final String account;                       // The account of the stack.
+        private final String templateHash;                  // The hash of the template.
+        private final String parametersHash;                // The hash of the resolved input parameters.
+        private final String artifactDigest;                // The digest of the deployment artifact.
+        private final long lastUpdated;                     // The time the stack was last updated in milliseconds.
+        private final String outputsHash;                   // The hash of the outputs of the stack.
+
+        /**
+         * This constructor initializes the entry.
+         *
+         * @param stackName is the name of the stack.
+         * @param region is the region of the stack.
+         * @param account is the account of the stack.
+         * @param templateHash is the hash of the template.
+         * @param parametersHash is the hash of the resolved input parameters.
+         * @param artifactDigest is the digest of the deployment artifact.
+         * @param lastUpdated is the time the stack was last updated.
+         * @param outputsHash is the hash of the outputs of the stack.
+         */
+        Entry(String stackName, String region, String account, String templateHash, String parametersHash,
+              String artifactDigest, long lastUpdated, String outputsHash) {
+
+            this.stackName = stackName;
+            this.region = region;
+            this.account = account;
+            this.templateHash = templateHash;
+            this.parametersHash = parametersHash;
+            this.artifactDigest = artifactDigest;
+            this.lastUpdated = lastUpdated;
+            this.outputsHash = outputsHash;
+        }
+
+        String getStackName() {
+
+            return stackName;
+        }
+
+        long getLastUpdated() {
+
+            return lastUpdated;
+        }
+
+        String getOutputsHash() {
+
+            return outputsHash;
+        }
+
+        /**
+         * Use this method to test if the stack was deployed from the same inputs.
+         *
+         * @param templateHash is the hash of the template.
+         * @param parametersHash is the hash of the resolved input parameters.
+         * @param artifactDigest is the digest of the deployment artifact.
+         * @return a flag indicating that none of the inputs changed.
+         */
+        boolean matches(String templateHash, String parametersHash, String artifactDigest) {
+
+            return (templateHash != null) && templateHash.equals(this.templateHash) &&
+                    Objects.equals(parametersHash, this.parametersHash) &&
+                    Objects.equals(artifactDigest, this.artifactDigest);
+        }
+
+        /**
+         * Use this method to convert the entry to the map written to the state file.
+         *
+         * @return the map.
+         */
+        private Map<String, Object> toMap() {
+
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("stackName", stackName);
+            map.put("region", region);
+            map.put("account", account);
+            map.put("templateHash", templateHash);
+            map.put("parametersHash", parametersHash);
+            map.put("artifactDigest", artifactDigest);
+            map.put("lastUpdated", lastUpdated);
+            map.put("outputsHash", outputsHash);
+
+            return map;
+        }
+    }
+
+    /**
+     * Use this method to get the state of a stack.
+     *
+     * @param region is the region of the stack.
+     * @param account is the account of the stack.
+     * @param stackName is the name of the stack.
+     * @return the state of the stack or null when it wasn't deployed before.
+     */
+    synchronized Entry get(String region, String account, String stackName) {
+
+        return entries.get(key(region, account, stackName));
+    }
+
+    /**
+     * Use this method to record the state of a stack after it is deployed.
+     *
+     * @param entry is the state of the stack.
+     */
+    synchronized void put(Entry entry) {
+
+        entries.put(key(entry.region, entry.account, entry.stackName), entry);
+    }
+
+    /**
+     * Use this method to get the key of a stack.
+     *
+     * @param region is the region of the stack.
+     * @param account is the account of the stack.
+     * @param stackName is the name of the stack.
+     * @return the key.
+     */
+    static private String key(String region, String account, String stackName) {
+
+        return region + "/" + account + "/" + stackName;
+    }
+
+    /**
+     * Use this method to convert the state to its JSON document.
+     *
+     * @return the JSON document.
+     * @throws IOException when the state can't be converted.
+     */
+    synchronized byte[] toBytes() throws IOException {
+
+        Map<String, Object> stacks = new LinkedHashMap<>();
+        for (Map.Entry<String, Entry> entry : entries.entrySet()) stacks.put(entry.getKey(), entry.getValue().toMap());
+
+        Map<String, Object> state = new LinkedHashMap<>();
+        state.put("stacks", stacks);
+
+        return new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValueAsBytes(state);
+    }
+
+    /**
+     * Use this method to read the state from its JSON document.  The stacks recorded without a region and account
+     * are left out, so that they are deployed again.
+     *
+     * @param json is the JSON document.
+     * @return the state.
+     * @throws MojoExecutionException when the document can't be read.
+     */
+    @SuppressWarnings("unchecked")
+    static DeploymentState fromBytes(byte[] json) throws MojoExecutionException {
+
+        try {
+
+            Map<String, Object> map = new ObjectMapper().readValue(json, LinkedHashMap.class);
+            DeploymentState state = new DeploymentState();
+
+            for (Map<String, Object> stack : ((Map<String, Map<String, Object>>) map.get("stacks")).values())
+                if((stack.get("region") != null) && (stack.get("account") != null))
+                    state.put(new Entry((String) stack.get("stackName"), (String) stack.get("region"),
+                            (String) stack.get("account"), (String) stack.get("templateHash"),
+                            (String) stack.get("parametersHash"), (String) stack.get("artifactDigest"),
+                            ((Number) stack.get("lastUpdated")).longValue(), (String) stack.get("outputsHash")));
+
+            return state;
+
+        } catch (IOException | RuntimeException ex) {
+
+            throw new MojoExecutionException("The deployment state can't be read.", ex);
+        }
+    }
+
+    /**
+     * Use this method to read the state from a file.  The state is empty when the file doesn't exist.
+     *
+     * @param file is the state file.
+     * @return the state.
+     * @throws IOException when the file can't be read.
+     * @throws MojoExecutionException when the file isn't a deployment state.
+     */
+    static DeploymentState read(File file) throws IOException, MojoExecutionException {
+
+        return file.exists() ? fromBytes(Files.readAllBytes(file.toPath())) : new DeploymentState();
+    }
+
+    /**
+     * Use this method to write the state to a file.
+     *
+     * @param file is the state file.
+     * @throws IOException when the file can't be written.
+     */
+    void write(File file) throws IOException {
+
+        Files.write(file.toPath(), toBytes());
+    }
+
+    /**
+     * Use this method to hash a set of named values.  The order of the values doesn't change the hash.
+     *
+     * @param values are the named values.
+     * @return the Base 64 encoded SHA-256 hash of the values.
+     * @throws NoSuchAlgorithmException when the SHA-256 algorithm doesn't exist.
+     */
+    static String hash(Map<String, String> values) throws NoSuchAlgorithmException {
+
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        for (Map.Entry<String, String> value : new TreeMap<>(values).entrySet()) {
+
+            digest.update(value.getKey().getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(String.valueOf(value.getValue()).getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+        }
+
+        return Base64.getEncoder().encodeToString(digest.digest());
+    }
+
+    /**
+     * Use this method to hash the contents of a file.
+     *
+     * @param bytes are the contents.
+     * @return the Base 64 encoded SHA-256 hash of the contents.
+     * @throws NoSuchAlgorithmException when the SHA-256 algorithm doesn't exist.
+     */
+    static String hash(byte[] bytes) throws NoSuchAlgorithmException {
+
+        return Base64.getEncoder().encodeToString(MessageDigest.getInstance("SHA-256").digest(bytes));
+    }
+}
@@ -1,21 +1,35 @@
 package com.digitalglobe.util.maven.plugin;
 
+import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Use this to execute a system command.
  */
 public class ExecuteCommand {
 
+    static private final long PUMP_GRACE_PERIOD = 10;  // Seconds to wait for the outputs after the command finished.
+    static private ExecutorService outputPumps = null;  // The threads reading the outputs of the commands.
+
     private String[] commandInformation;        // An array of command segments.
     private Map<String, String> environmentMap; // A map of environment variables.
+    private StreamHandler.StreamProcessor outputProcessor = null; // Consumes the standard output when set.
+    private StreamHandler.LineListener outputListener = null;   // Receives the lines of the standard output.
+    private StreamHandler.LineListener errorListener = null;    // Receives the lines of the standard error.
+    private long maximumOutputSize = StreamHandler.DEFAULT_MAXIMUM_MEMORY_SIZE; // The in memory limit of each output.
     private StreamHandler inputStreamHandler;   // A stream to read the standard output of the execution.
     private StreamHandler errorStreamHandler;   // A stream to read the standard error of the execution.
     private Exception[] executionErrors;        // An array of execution exceptions.
+    private long timeout = 0;                   // Seconds to wait for the command or 0 to wait forever.
+    private volatile Process process = null;    // The running process.
+    private boolean timedOut = false;           // Indicates that the command was killed by the timeout.
 
     /**
      * Set the elements of the command used to execute the command.
@@ -41,20 +55,121 @@ public class ExecuteCommand {
         return this;
     }
 
+    /**
+     * Set a processor that consumes the standard output of the command as it is produced instead of buffering it.
+     *
+     * @param outputProcessor is the processor for the standard output.
+     * @return this instance for initialization chaining.
+     */
+    ExecuteCommand withOutputProcessor(StreamHandler.StreamProcessor outputProcessor) {
+
+        this.outputProcessor = outputProcessor;
+        return this;
+    }
+
+    /**
+     * Set the number of bytes of each output to hold in memory.  Output beyond the limit is spilled to a temporary file.
+     *
+     * @param maximumOutputSize is the maximum number of bytes of each output to hold in memory.
+     * @return this instance for initialization chaining.
+     */
+    ExecuteCommand withMaximumOutputSize(long maximumOutputSize) {
+
+        this.maximumOutputSize = maximumOutputSize;
+        return this;
+    }
+
+    /**
+     * Set a listener that receives the lines of the standard output as the command produces them.  The listener isn't
+     * called when an output processor is set.
+     *
+     * @param outputListener is the listener for the standard output.
+     * @return this instance for initialization chaining.
+     */
+    ExecuteCommand withOutputListener(StreamHandler.LineListener outputListener) {
+
+        this.outputListener = outputListener;
+        return this;
+    }
+
+    /**
+     * Set a listener that receives the lines of the standard error as the command produces them.
+     *
+     * @param errorListener is the listener for the standard error.
+     * @return this instance for initialization chaining.
+     */
+    ExecuteCommand withErrorListener(StreamHandler.LineListener errorListener) {
+
+        this.errorListener = errorListener;
+        return this;
+    }
+
+    /**
+     * Set the number of seconds to wait for the command to finish.  When the timeout expires, the command and the
+     * processes it started are killed.  A value of 0 or less waits forever.
+     *
+     * @param timeout is the number of seconds to wait.
+     * @return this instance for initialization chaining.
+     */
+    ExecuteCommand withTimeout(long timeout) {
+
+        this.timeout = timeout;
+        return this;
+    }
+
+    /**
+     * Test if the command was killed because it didn't finish within the timeout.
+     *
+     * @return a flag indicating that the command timed out.
+     */
+    boolean isTimedOut() {
+
+        return this.timedOut;
+    }
+
+    /**
+     * Get the elements of the command.
+     *
+     * @return the elements to use when executing the command.
+     */
+    String[] getCommandInformation() {
+
+        return this.commandInformation;
+    }
+
+    /**
+     * Get the environment map containing environment variables to set with the execution.
+     *
+     * @return the environment variables.
+     */
+    Map<String, String> getEnvironmentMap() {
+
+        return this.environmentMap;
+    }
+
     /**
      * Get the standard output (stdout) from the command you just executed.
      */
-    StringBuilder getStandardOutputFromCommand()
+    String getStandardOutputFromCommand()
     {
-        return this.inputStreamHandler.getOutputBuffer();
+        return this.inputStreamHandler.getOutput();
     }
 
     /**
      * Get the standard error (stderr) from the command you just executed.
      */
-    StringBuilder getStandardErrorFromCommand()
+    String getStandardErrorFromCommand()
     {
-        return this.errorStreamHandler.getOutputBuffer();
+        return this.errorStreamHandler.getOutput();
+    }
+
+    /**
+     * Release the buffers and temporary files holding the outputs of the command.
+     */
+    void release()
+    {
+        if(this.inputStreamHandler != null) this.inputStreamHandler.release();
+        if(this.errorStreamHandler != null) this.errorStreamHandler.release();
     }
 
     /**
@@ -68,70 +183,83 @@ public class ExecuteCommand {
     }
 
     /**
-     * Use this method to execute the command.
+     * Use this method to execute the command.  The standard output is read on a shared pool of threads.  Unless a
+     * listener is set for it, the standard error is written to a temporary file and read when the command finishes so
+     * that each running command only uses one thread.  When the command doesn't finish within the timeout or the
+     * calling thread is interrupted, the command and the processes it started are killed and the output read so far
+     * is kept.
      */
     void executeCommand()
     {
         List<Exception> errors = new ArrayList<>();
+        File errorFile = null;
 
         try {
 
             ProcessBuilder pb = new ProcessBuilder(this.commandInformation);
             pb.environment().clear();
             pb.environment().putAll(this.environmentMap);
-            Process process = pb.start();
 
-            InputStream inputStream = process.getInputStream();
-            InputStream errorStream = process.getErrorStream();
+            if(this.errorListener == null) {
 
-            // Reading from the process outputs in an asynchronous manner.
-            // Note that the outputs of the process are inputs to this application thus they are input streams.
-            this.inputStreamHandler = new StreamHandler(inputStream);
-            this.errorStreamHandler = new StreamHandler(errorStream);
+                errorFile = File.createTempFile("command-error", ".tmp");
+                pb.redirectError(errorFile);
+            }
 
-            this.inputStreamHandler.start();
-            this.errorStreamHandler.start();
+            this.process = pb.start();
 
-            process.waitFor();
+            // Reading from the process outputs in an asynchronous manner.
+            // Note that the outputs of the process are inputs to this application thus they are input streams.
+            this.inputStreamHandler = new StreamHandler(this.process.getInputStream(), this.outputProcessor)
+                    .withMaximumMemorySize(this.maximumOutputSize)
+                    .withLineListener(this.outputListener);
+            Future<?> inputPump = getOutputPumps().submit(this.inputStreamHandler);
+
+            Future<?> errorPump = null;
+            if(errorFile == null) {
+
+                this.errorStreamHandler = new StreamHandler(this.process.getErrorStream())
+                        .withMaximumMemorySize(this.maximumOutputSize)
+                        .withLineListener(this.errorListener);
+                errorPump = getOutputPumps().submit(this.errorStreamHandler);
+            }
 
-            // Make sure that we have read all the data from the streams.
-            this.inputStreamHandler.join();
-            this.errorStreamHandler.join();
+            if(this.timeout > 0) {
 
-            // Record any exceptions that where thrown.
-            if(this.inputStreamHandler.getException() != null)
-                errors.add(this.inputStreamHandler.getException());
+                if(!this.process.waitFor(this.timeout, TimeUnit.SECONDS)) {
 
-            if(this.inputStreamHandler.getCloseException() != null)
-                errors.add(this.inputStreamHandler.getCloseException());
+                    this.timedOut = true;
+                    cancel();
+                    errors.add(new TimeoutException("The command didn't finish within " + this.timeout + " seconds."));
+                }
 
-            if(this.errorStreamHandler.getException() != null)
-                errors.add(this.errorStreamHandler.getException());
+            } else this.process.waitFor();
 
-            if(this.errorStreamHandler.getCloseException() != null)
-                errors.add(this.errorStreamHandler.getCloseException());
+            // Make sure that we have read all the data from the streams.
+            awaitPump(inputPump, this.process.getInputStream());
+            if(errorPump != null) awaitPump(errorPump, this.process.getErrorStream());
 
-        } catch (Exception ex) {
+            if(errorFile != null) {
 
-            try {
+                this.errorStreamHandler = new StreamHandler(new FileInputStream(errorFile))
+                        .withMaximumMemorySize(this.maximumOutputSize);
+                this.errorStreamHandler.run();
+            }
 
-                if (this.inputStreamHandler != null) {
+            // Record any exceptions that where thrown.
+            addStreamErrors(errors);
 
-                    if (this.inputStreamHandler.getException() != null)
-                        errors.add(this.inputStreamHandler.getException());
+        } catch (Exception ex) {
 
-                    if (this.inputStreamHandler.getCloseException() != null)
-                        errors.add(this.inputStreamHandler.getCloseException());
-                }
+            if(ex instanceof InterruptedException) {
 
-                if(this.errorStreamHandler != null) {
+                cancel();
+                Thread.currentThread().interrupt();
+            }
 
-                    if(this.errorStreamHandler.getException() != null)
-                        errors.add(this.errorStreamHandler.getException());
+            try {
 
-                    if(this.errorStreamHandler.getCloseException() != null)
-                        errors.add(this.errorStreamHandler.getCloseException());
-                }
+                addStreamErrors(errors);
 
             } catch (Exception e) {
                 // Ignore
@@ -140,9 +268,103 @@ public class ExecuteCommand {
 
             errors.add(ex);
             System.out.println(ex.getMessage());
+
+        } finally {
+
+            //noinspection ResultOfMethodCallIgnored
+            if(errorFile != null) errorFile.delete();
         }
 
-        this.executionErrors = errors.size() > 0 ? (Exception[])errors.toArray() : null;
+        this.executionErrors = errors.size() > 0 ? errors.toArray(new Exception[0]) : null;
     }
-}
 
+    /**
+     * Kill the command and the processes it started.  It does nothing when the command isn't running.
+     */
+    void cancel()
+    {
+        Process process = this.process;
+        if(process != null) {
+
+            // The descendants are collected before the command is killed so that they aren't orphaned.
+            process.descendants().forEach(ProcessHandle::destroyForcibly);
+            process.destroyForcibly();
+        }
+    }
+
+    /**
+     * Wait for a stream to be read to its end.  When the stream doesn't end shortly after the command finished (for
+     * example because an orphaned process holds it open), it is closed so that the pump stops.
+     *
+     * @param pump is the task reading the stream.
+     * @param stream is the stream being read.
+     * @throws InterruptedException when the thread is interrupted while waiting.
+     * @throws ExecutionException when the task failed.
+     */
+    private void awaitPump(Future<?> pump, InputStream stream) throws InterruptedException, ExecutionException
+    {
+        try {
+
+            pump.get(PUMP_GRACE_PERIOD, TimeUnit.SECONDS);
+
+        } catch (TimeoutException te) {
+
+            try {
+
+                stream.close();
+                pump.get(PUMP_GRACE_PERIOD, TimeUnit.SECONDS);
+
+            } catch (IOException | TimeoutException ex) {
+
+                pump.cancel(true);
+            }
+        }
+    }
+
+    /**
+     * Add the exceptions of the stream handlers to a list of errors.
+     *
+     * @param errors is the list to add the exceptions to.
+     */
+    private void addStreamErrors(List<Exception> errors)
+    {
+        for (StreamHandler handler : new StreamHandler[] {this.inputStreamHandler, this.errorStreamHandler}) {
+
+            if(handler != null) {
+
+                if(handler.getException() != null) errors.add(handler.getException());
+                if(handler.getCloseException() != null) errors.add(handler.getCloseException());
+            }
+        }
+    }
+
+    /**
+     * Get the pool of threads that read the outputs of the commands.  Virtual threads are used when the Java runtime
+     * provides them.  Otherwise a pool of daemon threads that are reused between commands is created.
+     *
+     * @return the pool of threads.
+     */
+    static private synchronized ExecutorService getOutputPumps()
+    {
+        if(outputPumps == null) {
+
+            try {
+
+                outputPumps = (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor")
+                        .invoke(null);
+
+            } catch (ReflectiveOperationException ex) {
+
+                AtomicInteger count = new AtomicInteger();
+                outputPumps = Executors.newCachedThreadPool(runnable -> {
+
+                    Thread thread = new Thread(runnable, "command-output-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+            }
+        }
+
+        return outputPumps;
+    }
+}
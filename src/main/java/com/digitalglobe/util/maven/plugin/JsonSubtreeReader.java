@@ -0,0 +1,147 @@
+package com.digitalglobe.util.maven.plugin;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.*;
+
+/**
+ * This class reads a JSON document from a stream and keeps only the parts of the document that are reachable by a
+ * set of parameter names (for example /VpnConnections/VgwTelemetry[0]/OutsideIpAddress).  The document is parsed in
+ * a single pass with a streaming parser so that the memory used depends on the size of the selected values instead of
+ * the size of the document.  The result is built from the same types an ObjectMapper produces for an untyped document.
+ */
+class JsonSubtreeReader {
+
+    // The stream is left open so that the caller can drain or close it.
+    static private final JsonFactory factory = new JsonFactory().disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+
+    /**
+     * A node in the tree of field names to keep.  A complete node keeps the whole value.
+     */
+    static private class Selection {
+
+        Map<String, Selection> children = new HashMap<>();
+        boolean complete = false;
+
+        Selection child(String name) {
+
+            return children.computeIfAbsent(name, key -> new Selection());
+        }
+    }
+
+    private final Selection root = new Selection();
+
+    /**
+     * This constructor builds the selection of fields to keep from a set of compiled parameter names.  Array indexes
+     * don't limit the selection.  The fields used in array filters (for example [Key=Value]) are kept so that the
+     * filter can be applied to the result.
+     *
+     * @param parameterPaths are the parameter names to keep.
+     */
+    JsonSubtreeReader(Collection<ParameterPath> parameterPaths) {
+
+        for (ParameterPath parameterPath : parameterPaths) {
+
+            Selection selection = root;
+            for (ParameterPath.Step step : parameterPath.getSteps()) {
+
+                selection = selection.child(step.name);
+
+                // Keep the fields that array filters are applied to.
+                for (ParameterPath.Selector selector : step.selectors)
+                    if(selector.isFilter()) selection.child(selector.field).complete = true;
+            }
+
+            selection.complete = true;
+        }
+    }
+
+    /**
+     * Read the selected parts of the JSON document contained in the stream.
+     *
+     * @param inputStream is the stream containing the document.
+     * @return a map containing the selected parts of the document.
+     * @throws IOException when the stream can't be read or doesn't contain a JSON object.
+     */
+    LinkedHashMap<String, Object> read(InputStream inputStream) throws IOException {
+
+        try (JsonParser parser = factory.createParser(inputStream)) {
+
+            if(parser.nextToken() != JsonToken.START_OBJECT)
+                throw new IOException("Command output is not a JSON object.");
+
+            return readObject(parser, root);
+        }
+    }
+
+    /**
+     * Read the object at the current token of the parser.
+     *
+     * @param parser is the parser positioned on the start of the object.
+     * @param selection is the selection to apply to the object.  A complete selection keeps the whole object.
+     * @return the selected fields of the object.
+     * @throws IOException when the document can't be parsed.
+     */
+    private LinkedHashMap<String, Object> readObject(JsonParser parser, Selection selection) throws IOException {
+
+        LinkedHashMap<String, Object> map = new LinkedHashMap<>();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+
+            String name = parser.getCurrentName();
+            parser.nextToken();
+
+            Selection child = selection.complete ? selection : selection.children.get(name);
+            if(child == null) parser.skipChildren();
+            else map.put(name, readValue(parser, child));
+        }
+
+        return map;
+    }
+
+    /**
+     * Read the value at the current token of the parser.
+     *
+     * @param parser is the parser positioned on the first token of the value.
+     * @param selection is the selection to apply to the value.  A complete selection keeps the whole value.
+     * @return the value that was read.
+     * @throws IOException when the document can't be parsed.
+     */
+    private Object readValue(JsonParser parser, Selection selection) throws IOException {
+
+        switch (parser.currentToken()) {
+
+            case START_OBJECT:
+                return readObject(parser, selection);
+
+            case START_ARRAY:
+                ArrayList<Object> list = new ArrayList<>();
+                while (parser.nextToken() != JsonToken.END_ARRAY) list.add(readValue(parser, selection));
+                return list;
+
+            case VALUE_STRING:
+                return parser.getText();
+
+            case VALUE_NUMBER_INT:
+                return parser.getNumberValue();
+
+            case VALUE_NUMBER_FLOAT:
+                return parser.getDoubleValue();
+
+            case VALUE_TRUE:
+                return Boolean.TRUE;
+
+            case VALUE_FALSE:
+                return Boolean.FALSE;
+
+            case VALUE_EMBEDDED_OBJECT:
+                return parser.getEmbeddedObject();
+
+            default:
+                return null;
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package com.digitalglobe.util.maven.plugin;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * This class limits the number of stack create and update operations that are in flight for each account and region.
+ * The limit adapts to the responses of CloudFormation.  It grows by one for each limit's worth of operations that
+ * are accepted and is halved when a request is throttled or an account limit is exceeded.  Only one decrease is made
+ * per second so that a burst of throttled requests doesn't collapse the limit.
+ */
+class OperationGovernor {
+
+    static private final long DECREASE_INTERVAL = 1000;    // Milliseconds between decreases of a limit.
+
+    private final int initialLimit;                         // The limit of a new account and region.
+    private final int maximumLimit;                         // The largest limit.
+    private final Map<String, Limiter> limiters = new ConcurrentHashMap<>();    // The limiters by account and region.
+
+    /**
+     * This class limits the operations of an account and region.
+     */
+    class Limiter {
+
+        private double limit = initialLimit;                // The current limit.
+        private int inFlight = 0;                           // The number of operations in flight.
+        private long lastDecrease = 0;                      // The time of the last decrease.
+        private final Deque<CompletableFuture<Void>> waiting = new ArrayDeque<>();  // The operations waiting to start.
+
+        /**
+         * Get a future that completes when an operation may start.  Each completed future must be released.
+         *
+         * @return the future.
+         */
+        CompletableFuture<Void> acquire() {
+
+            CompletableFuture<Void> permit = new CompletableFuture<>();
+            synchronized (this) {
+
+                waiting.addLast(permit);
+            }
+
+            drain();
+            return permit;
+        }
+
+        /**
+         * Release the permit of an operation that finished.
+         */
+        void release() {
+
+            synchronized (this) {
+
+                inFlight--;
+            }
+
+            drain();
+        }
+
+        /**
+         * Record that an operation was accepted.  The limit grows by one after a limit's worth of operations.
+         */
+        void accepted() {
+
+            synchronized (this) {
+
+                limit = Math.min(maximumLimit, limit + 1.0 / limit);
+            }
+
+            drain();
+        }
+
+        /**
+         * Record that a request was throttled or exceeded an account limit.  The limit is halved.
+         */
+        synchronized void throttled() {
+
+            long now = System.currentTimeMillis();
+            if(now - lastDecrease >= DECREASE_INTERVAL) {
+
+                limit = Math.max(1, limit / 2);
+                lastDecrease = now;
+            }
+        }
+
+        /**
+         * Get the number of operations that may be in flight.
+         *
+         * @return the current limit.
+         */
+        synchronized int getLimit() {
+
+            return (int) limit;
+        }
+
+        /**
+         * Start the waiting operations while there is room under the limit.  The futures are completed outside of the
+         * lock because their continuations run on this thread.
+         */
+        private void drain() {
+
+            while (true) {
+
+                CompletableFuture<Void> next;
+                synchronized (this) {
+
+                    if(waiting.isEmpty() || (inFlight >= (int) limit)) return;
+
+                    next = waiting.pollFirst();
+                    inFlight++;
+                }
+
+                next.complete(null);
+            }
+        }
+    }
+
+    /**
+     * This constructor initializes the limits.
+     *
+     * @param initialLimit is the limit of an account and region before any responses are observed.
+     * @param maximumLimit is the largest limit.
+     */
+    OperationGovernor(int initialLimit, int maximumLimit) {
+
+        this.maximumLimit = Math.max(1, maximumLimit);
+        this.initialLimit = Math.min(Math.max(1, initialLimit), this.maximumLimit);
+    }
+
+    /**
+     * Get the limiter of an account and region.
+     *
+     * @param account is the account of the operations.
+     * @param region is the region of the operations.
+     * @return the limiter.
+     */
+    Limiter limiter(String account, String region) {
+
+        return limiters.computeIfAbsent(account + "/" + region, key -> new Limiter());
+    }
+}
@@ -0,0 +1,236 @@
+package com.digitalglobe.util.maven.plugin;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.apache.maven.plugin.MojoExecutionException;
+import software.amazon.awssdk.services.cloudformation.model.DescribeStacksResponse;
+import software.amazon.awssdk.services.cloudformation.model.Output;
+import software.amazon.awssdk.services.cloudformation.model.Stack;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * This class holds the outputs of the stacks described by a deployment by stack ID.  Each snapshot keeps the time the
+ * stack was last updated so that readers can tell if it is still current.  The snapshots are written to a JSON file in
+ * the output directory for the modules and tools that run after the deployment.  During the deployment, a stack
+ * that was described and not deployed since is read from its snapshot instead of being described again.  Stacks are
+ * looked up by region, account and name, since stacks with the same name can exist in other regions and accounts.
+ */
+class OutputSnapshot {
+
+    static final String FILE_NAME = "cloudformation-outputs.json";
+
+    private final Map<String, Entry> entries = new TreeMap<>();     // The snapshots by stack ID.
+    private final Map<String, String> stackIds = new TreeMap<>();   // The stack IDs by key.
+    private final Set<String> current = new HashSet<>();            // The keys of the stacks described.
+
+    /**
+     * This class holds the outputs of a stack.
+     */
+    static class Entry {
+
+        private final String stackId;                       // The ID of the stack.
+        private final String region;                        // The region of the stack.
+        private final String account;                       // The account of the stack.
+        private final String stackName;                     // The name of the stack.
+        private final long lastUpdated;                     // The time the stack was last updated in milliseconds.
+        private final Map<String, String> outputs;          // The outputs of the stack in order.
+
+        /**
+         * This constructor initializes the entry.
+         *
+         * @param stackId is the ID of the stack.
+         * @param region is the region of the stack.
+         * @param account is the account of the stack.
+         * @param stackName is the name of the stack.
+         * @param lastUpdated is the time the stack was last updated.
+         * @param outputs are the outputs of the stack.
+         */
+        Entry(String stackId, String region, String account, String stackName, long lastUpdated,
+              Map<String, String> outputs) {
+
+            this.stackId = stackId;
+            this.region = region;
+            this.account = account;
+            this.stackName = stackName;
+            this.lastUpdated = lastUpdated;
+            this.outputs = outputs;
+        }
+
+        long getLastUpdated() {
+
+            return lastUpdated;
+        }
+
+        Map<String, String> getOutputs() {
+
+            return outputs;
+        }
+
+        /**
+         * Use this method to convert the entry to the map written to the snapshot file.
+         *
+         * @return the map.
+         */
+        private Map<String, Object> toMap() {
+
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("region", region);
+            map.put("account", account);
+            map.put("stackName", stackName);
+            map.put("lastUpdated", lastUpdated);
+            map.put("outputs", outputs);
+
+            return map;
+        }
+    }
+
+    /**
+     * Use this method to take the snapshot of a stack that was just described.
+     *
+     * @param region is the region of the stack.
+     * @param account is the account of the stack.
+     * @param stackDescription is the description of the stack.
+     * @param lastUpdated is the time the stack was last updated.
+     */
+    synchronized void put(String region, String account, DescribeStacksResponse stackDescription, long lastUpdated) {
+
+        Stack stack = stackDescription.stacks().get(0);
+        Map<String, String> outputs = new LinkedHashMap<>();
+        for (Output output : stack.outputs()) outputs.put(output.outputKey(), output.outputValue());
+
+        String key = key(region, account, stack.stackName());
+        String stackId = stack.stackId() != null ? stack.stackId() : key;
+        entries.put(stackId, new Entry(stackId, region, account, stack.stackName(), lastUpdated, outputs));
+        stackIds.put(key, stackId);
+        current.add(key);
+    }
+
+    /**
+     * Use this method to get the snapshot of a stack.
+     *
+     * @param region is the region of the stack.
+     * @param account is the account of the stack.
+     * @param stackName is the name of the stack.
+     * @return the snapshot or null when the stack wasn't described.
+     */
+    synchronized Entry get(String region, String account, String stackName) {
+
+        String key = key(region, account, stackName);
+        return stackIds.containsKey(key) ? entries.get(stackIds.get(key)) : null;
+    }
+
+    /**
+     * Use this method to tell that a stack is being deployed, so that its snapshot isn't current anymore.
+     *
+     * @param region is the region of the stack.
+     * @param account is the account of the stack.
+     * @param stackName is the name of the stack.
+     */
+    synchronized void invalidate(String region, String account, String stackName) {
+
+        current.remove(key(region, account, stackName));
+    }
+
+    /**
+     * Use this method to get the description of a stack from its snapshot when the stack was described by the
+     * deployment and wasn't deployed since.
+     *
+     * @param region is the region of the stack.
+     * @param account is the account of the stack.
+     * @param stackName is the name of the stack.
+     * @return the description with the outputs of the stack or null when the snapshot isn't current.
+     */
+    synchronized DescribeStacksResponse describe(String region, String account, String stackName) {
+
+        String key = key(region, account, stackName);
+        if(!current.contains(key)) return null;
+
+        Entry entry = entries.get(stackIds.get(key));
+        List<Output> outputs = new ArrayList<>();
+        for (Map.Entry<String, String> output : entry.outputs.entrySet())
+            outputs.add(Output.builder().outputKey(output.getKey()).outputValue(output.getValue()).build());
+
+        return DescribeStacksResponse.builder().stacks(Stack.builder()
+                .stackId(entry.stackId)
+                .stackName(entry.stackName)
+                .lastUpdatedTime(Instant.ofEpochMilli(entry.lastUpdated))
+                .outputs(outputs)
+                .build()).build();
+    }
+
+    /**
+     * Use this method to write the snapshots to a file.
+     *
+     * @param file is the snapshot file.
+     * @throws IOException when the file can't be written.
+     */
+    synchronized void write(File file) throws IOException {
+
+        Map<String, Object> stacks = new LinkedHashMap<>();
+        for (Entry entry : entries.values()) stacks.put(entry.stackId, entry.toMap());
+
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("stacks", stacks);
+
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(file, snapshot);
+    }
+
+    /**
+     * Use this method to read the snapshots from a file.  The snapshots of an earlier deployment aren't current.
+     *
+     * @param file is the snapshot file.
+     * @return the snapshots or no snapshots when the file doesn't exist.
+     * @throws MojoExecutionException when the file can't be read.
+     */
+    @SuppressWarnings("unchecked")
+    static OutputSnapshot read(File file) throws MojoExecutionException {
+
+        OutputSnapshot snapshot = new OutputSnapshot();
+        if(!file.exists()) return snapshot;
+
+        try {
+
+            Map<String, Object> map = new ObjectMapper().readValue(file, LinkedHashMap.class);
+            for (Map.Entry<String, Map<String, Object>> stack :
+                    ((Map<String, Map<String, Object>>) map.get("stacks")).entrySet()) {
+
+                String region = (String) stack.getValue().get("region");
+                String account = (String) stack.getValue().get("account");
+                String stackName = (String) stack.getValue().get("stackName");
+                snapshot.entries.put(stack.getKey(), new Entry(stack.getKey(), region, account, stackName,
+                        ((Number) stack.getValue().get("lastUpdated")).longValue(),
+                        new LinkedHashMap<>((Map<String, String>) stack.getValue().get("outputs"))));
+                snapshot.stackIds.put(key(region, account, stackName), stack.getKey());
+            }
+
+            return snapshot;
+
+        } catch (IOException | RuntimeException ex) {
+
+            throw new MojoExecutionException("The output snapshots can't be read: " + file.getPath(), ex);
+        }
+    }
+
+    /**
+     * Use this method to build the key a stack is looked up by.
+     *
+     * @param region is the region of the stack.
+     * @param account is the account of the stack.
+     * @param stackName is the name of the stack.
+     * @return the key.
+     */
+    static private String key(String region, String account, String stackName) {
+
+        return region + "/" + account + "/" + stackName;
+    }
+}
@@ -0,0 +1,339 @@
+package com.digitalglobe.util.maven.plugin;
+
+import org.apache.maven.plugin.MojoExecutionException;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * This class is a compiled parameter name used to extract a value from the JSON output of a CLI command.  A parameter
+ * name is a list of steps separated by slashes.  Each step names a field of a dictionary and may be followed by array
+ * selectors.  A selector is either an index ([0]) or a filter ([Key=Value]) that selects the dictionaries in the array
+ * whose field equals the value.  When a filter selects more than one dictionary, the following selector is applied to
+ * the list of selected dictionaries.
+ *
+ * Example: /VpnConnections/VgwTelemetry[0]/OutsideIpAddress
+ * Example: /Reservations[0]/Instances[0]/Tags[Key=Name]/Value
+ *
+ * Compiled parameter names are cached by their expression and can be evaluated together against a document so that
+ * common steps are only resolved once.
+ */
+class ParameterPath {
+
+    static private final Map<String, ParameterPath> cache = new ConcurrentHashMap<>();
+
+    /**
+     * An array selector.  It holds an index or a filter field and value.
+     */
+    static class Selector {
+
+        final int index;        // The index to select or -1 for a filter.
+        final String field;     // The name of the field to filter on.
+        final String value;     // The value the field must contain.
+
+        Selector(int index, String field, String value) {
+
+            this.index = index;
+            this.field = field;
+            this.value = value;
+        }
+
+        boolean isFilter() {
+
+            return this.index < 0;
+        }
+
+        @Override
+        public String toString() {
+
+            return "[" + (isFilter() ? field + "=" + value : String.valueOf(index)) + "]";
+        }
+    }
+
+    /**
+     * A step of the parameter name.  It holds the name of the field and the array selectors to apply to its value.
+     */
+    static class Step {
+
+        final String name;                  // The name of the field.
+        final List<Selector> selectors;     // The selectors to apply to the value of the field.
+        private final String text;          // The text of the step.
+
+        Step(String name, List<Selector> selectors) {
+
+            this.name = name;
+            this.selectors = Collections.unmodifiableList(selectors);
+
+            StringBuilder builder = new StringBuilder(name);
+            selectors.forEach(builder::append);
+            this.text = builder.toString();
+        }
+
+        /**
+         * Apply the step to a value.
+         *
+         * @param value is the value to apply the step to.
+         * @param index holds the filter indexes of the document.
+         * @return the selected value or null if nothing is selected.
+         */
+        Object apply(Object value, FilterIndex index) {
+
+            if(!(value instanceof Map)) return null;
+
+            Object result = ((Map<?, ?>) value).get(name);
+            for (Selector selector : selectors) {
+
+                if(!(result instanceof List)) return null;
+                List<?> list = (List<?>) result;
+
+                if(selector.isFilter()) {
+
+                    List<Object> matches = index.lookup(list, selector.field, selector.value);
+                    result = matches.isEmpty() ? null : (matches.size() == 1 ? matches.get(0) : matches);
+
+                } else result = selector.index < list.size() ? list.get(selector.index) : null;
+            }
+
+            return result;
+        }
+
+        @Override
+        public String toString() {
+
+            return this.text;
+        }
+    }
+
+    /**
+     * Indexes the dictionaries of an array by the value of a field so that filters don't scan the array again for
+     * each parameter name.  An index lives for the evaluation of a single document.
+     */
+    static class FilterIndex {
+
+        private final Map<List<?>, Map<String, Map<String, List<Object>>>> indexes = new IdentityHashMap<>();
+
+        /**
+         * Get the dictionaries of an array whose field contains the value.
+         *
+         * @param list is the array to search.
+         * @param field is the field to compare.
+         * @param value is the value to compare the field with.
+         * @return the matching dictionaries in the order of the array.
+         */
+        List<Object> lookup(List<?> list, String field, String value) {
+
+            Map<String, List<Object>> values = indexes
+                    .computeIfAbsent(list, key -> new HashMap<>())
+                    .computeIfAbsent(field, key -> {
+
+                        Map<String, List<Object>> map = new HashMap<>();
+                        for (Object item : list) {
+
+                            if((item instanceof Map) && (((Map<?, ?>) item).get(field) != null))
+                                map.computeIfAbsent(((Map<?, ?>) item).get(field).toString(), k -> new ArrayList<>()).add(item);
+                        }
+
+                        return map;
+                    });
+
+            return values.getOrDefault(value, Collections.emptyList());
+        }
+    }
+
+    /**
+     * A node in the tree of steps built from the parameter names evaluated together.
+     */
+    static private class Node {
+
+        final Step step;
+        final Map<String, Node> children = new LinkedHashMap<>();
+        final List<String> keys = new ArrayList<>();
+
+        Node(Step step) {
+
+            this.step = step;
+        }
+    }
+
+    private final String expression;    // The text of the parameter name.
+    private final List<Step> steps;     // The compiled steps.
+
+    /**
+     * This constructor initializes the parameter name and its compiled steps.
+     *
+     * @param expression is the text of the parameter name.
+     * @param steps are the compiled steps.
+     */
+    private ParameterPath(String expression, List<Step> steps) {
+
+        this.expression = expression;
+        this.steps = Collections.unmodifiableList(steps);
+    }
+
+    /**
+     * Get the text of the parameter name.
+     *
+     * @return the text of the parameter name.
+     */
+    String getExpression() {
+
+        return this.expression;
+    }
+
+    /**
+     * Get the compiled steps of the parameter name.
+     *
+     * @return the steps.
+     */
+    List<Step> getSteps() {
+
+        return this.steps;
+    }
+
+    /**
+     * Compile a parameter name.  Compiled parameter names are cached by their expression.
+     *
+     * @param expression is the parameter name to compile.
+     * @return the compiled parameter name.
+     * @throws MojoExecutionException when the parameter name has an invalid syntax.
+     */
+    static ParameterPath compile(String expression) throws MojoExecutionException {
+
+        ParameterPath path = cache.get(expression);
+        if(path == null) {
+
+            path = parse(expression);
+            cache.putIfAbsent(expression, path);
+        }
+
+        return path;
+    }
+
+    /**
+     * Evaluate a set of parameter names against a document.  The parameter names are merged into a tree of steps so
+     * that the document is traversed once and common steps are only resolved once.
+     *
+     * @param document is the document to evaluate the parameter names against.
+     * @param paths is a map of keys to the parameter names to evaluate.
+     * @return a map of keys to the selected values.  A key is missing when its parameter name doesn't select a value.
+     */
+    static Map<String, Object> evaluate(Object document, Map<String, ParameterPath> paths) {
+
+        Node root = new Node(null);
+        for (Map.Entry<String, ParameterPath> entry : paths.entrySet()) {
+
+            Node node = root;
+            for (Step step : entry.getValue().steps) node = node.children.computeIfAbsent(step.toString(),
+                    key -> new Node(step));
+
+            node.keys.add(entry.getKey());
+        }
+
+        Map<String, Object> results = new HashMap<>();
+        resolve(root, document, new FilterIndex(), results);
+
+        return results;
+    }
+
+    /**
+     * Resolve the children of a node of the step tree against a value.
+     *
+     * @param node is the node whose children are resolved.
+     * @param value is the value selected by the node.
+     * @param index holds the filter indexes of the document.
+     * @param results is the map to store the selected values of the parameter names in.
+     */
+    static private void resolve(Node node, Object value, FilterIndex index, Map<String, Object> results) {
+
+        for (Node child : node.children.values()) {
+
+            Object result = child.step.apply(value, index);
+            if(result == null) continue;
+
+            for (String key : child.keys) results.put(key, result);
+            resolve(child, result, index, results);
+        }
+    }
+
+    /**
+     * Parse a parameter name into its steps.
+     *
+     * @param expression is the parameter name to parse.
+     * @return the compiled parameter name.
+     * @throws MojoExecutionException when the parameter name has an invalid syntax.
+     */
+    static private ParameterPath parse(String expression) throws MojoExecutionException {
+
+        if((expression == null) || expression.isEmpty())
+            throw new MojoExecutionException("Invalid parameter name syntax.");
+
+        List<Step> steps = new ArrayList<>();
+        int position = 0;
+        int length = expression.length();
+
+        while (position < length) {
+
+            if(expression.charAt(position++) != '/') throw new MojoExecutionException("Invalid parameter name syntax.");
+
+            int start = position;
+            while ((position < length) && isNameCharacter(expression.charAt(position))) position++;
+            if(position == start) throw new MojoExecutionException("Invalid parameter name syntax.");
+
+            String name = expression.substring(start, position);
+            List<Selector> selectors = new ArrayList<>();
+
+            while ((position < length) && (expression.charAt(position) == '[')) {
+
+                int close = expression.indexOf(']', position);
+                if(close < 0) throw new MojoExecutionException("Invalid parameter name syntax.");
+
+                selectors.add(parseSelector(expression.substring(position + 1, close)));
+                position = close + 1;
+            }
+
+            steps.add(new Step(name, selectors));
+        }
+
+        return new ParameterPath(expression, steps);
+    }
+
+    /**
+     * Parse the contents of an array selector.
+     *
+     * @param text is the text between the brackets.
+     * @return the selector.
+     * @throws MojoExecutionException when the selector has an invalid syntax.
+     */
+    static private Selector parseSelector(String text) throws MojoExecutionException {
+
+        int equals = text.indexOf('=');
+        if(equals < 0) {
+
+            if(text.isEmpty() || !text.chars().allMatch(Character::isDigit) || (text.length() > 9))
+                throw new MojoExecutionException("Invalid parameter name syntax.");
+
+            return new Selector(Integer.parseInt(text), null, null);
+        }
+
+        String field = text.substring(0, equals);
+        String value = text.substring(equals + 1);
+
+        if(field.isEmpty() || !field.chars().allMatch(ParameterPath::isNameCharacter) || value.isEmpty() ||
+                !value.chars().allMatch(c -> isNameCharacter(c) || (c == ' ') || (c == '/')))
+            throw new MojoExecutionException("Invalid parameter name syntax.");
+
+        return new Selector(-1, field, value);
+    }
+
+    /**
+     * Test if a character may be used in a field name.
+     *
+     * @param c is the character to test.
+     * @return a flag indicating that the character is valid.
+     */
+    static private boolean isNameCharacter(int c) {
+
+        return ((c >= 'A') && (c <= 'Z')) || ((c >= 'a') && (c <= 'z')) || ((c >= '0') && (c <= '9')) ||
+                (c == '_') || (c == '-');
+    }
+}
@@ -0,0 +1,76 @@
+package com.digitalglobe.util.maven.plugin;
+
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.regions.providers.DefaultAwsRegionProviderChain;
+import software.amazon.awssdk.services.sts.StsClient;
+import software.amazon.awssdk.services.sts.model.GetCallerIdentityRequest;
+import software.amazon.awssdk.services.sts.model.GetCallerIdentityResponse;
+
+import java.util.function.Supplier;
+
+/**
+ * This class holds the values of the AWS session that don't change during an execution of the plugin.  The default
+ * region and the caller identity are looked up the first time they are needed and reused afterwards.  Looking up the
+ * default region may fall through to the instance metadata service, which has to time out outside of EC2.  A failed
+ * lookup is remembered as well so that it isn't repeated.
+ */
+class SessionContext {
+
+    private final Supplier<StsClient> stsClientSupplier;    // Builds the client used to get the caller identity.
+    private Region defaultRegion = null;                    // The region of the default region provider chain.
+    private RuntimeException defaultRegionFailure = null;   // The failure of the default region lookup.
+    private GetCallerIdentityResponse callerIdentity = null;    // The identity of the default credentials.
+
+    /**
+     * This constructor initializes the supplier of the client used to get the caller identity.
+     *
+     * @param stsClientSupplier builds the client used to get the caller identity.
+     */
+    SessionContext(Supplier<StsClient> stsClientSupplier) {
+
+        this.stsClientSupplier = stsClientSupplier;
+    }
+
+    /**
+     * Get the region of the default region provider chain.  When the chain doesn't provide a region, US East 1 is
+     * used.
+     *
+     * @return the default region.
+     */
+    synchronized Region getDefaultRegion() {
+
+        if(defaultRegionFailure != null) throw defaultRegionFailure;
+
+        if(defaultRegion == null) {
+
+            try {
+
+                Region region = new DefaultAwsRegionProviderChain().getRegion();
+                defaultRegion = region == null ? Region.US_EAST_1 : region;
+
+            } catch (RuntimeException ex) {
+
+                defaultRegionFailure = ex;
+                throw ex;
+            }
+        }
+
+        return defaultRegion;
+    }
+
+    /**
+     * Get the identity of the default credentials.
+     *
+     * @return the caller identity.
+     */
+    synchronized GetCallerIdentityResponse getCallerIdentity() {
+
+        if(callerIdentity == null) {
+
+            StsClient stsClient = stsClientSupplier.get();
+            callerIdentity = stsClient.getCallerIdentity(GetCallerIdentityRequest.builder().build());
+        }
+
+        return callerIdentity;
+    }
+}
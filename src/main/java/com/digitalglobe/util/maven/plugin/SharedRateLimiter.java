@@ -0,0 +1,225 @@
+package com.digitalglobe.util.maven.plugin;
+
+import software.amazon.awssdk.core.exception.SdkServiceException;
+import software.amazon.awssdk.core.interceptor.Context;
+import software.amazon.awssdk.core.interceptor.ExecutionAttributes;
+import software.amazon.awssdk.core.interceptor.ExecutionInterceptor;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+
+/**
+ * This class paces the API calls of all plugin processes on a host with token buckets kept in files of a shared
+ * directory.  Each bucket is a small file holding the number of tokens and the time they were counted.  A call takes
+ * a token while holding a lock on the file and is told how long to wait when the bucket is empty, so the lock is never
+ * held while waiting.  The file lock coordinates the processes and a lock object per file coordinates the threads of
+ * this process because the file lock isn't reentrant within a JVM.
+ *
+ * When a call is throttled anyway, the bucket is emptied for a second so that the other processes slow down as well.
+ */
+class SharedRateLimiter {
+
+    static private final int STATE_SIZE = 16;                       // The bytes of a bucket: tokens and time.
+    static private final Map<String, Object> locks = new ConcurrentHashMap<>();    // The lock objects by file path.
+
+    private final File directory;                                   // The directory of the bucket files.
+    private final Map<String, Bucket> buckets = new ConcurrentHashMap<>();         // The buckets by name.
+
+    /**
+     * This class is a token bucket shared by the processes on the host.
+     */
+    class Bucket {
+
+        private final File file;                                    // The file holding the state of the bucket.
+        private final double rate;                                  // The tokens added per second.
+        private final double capacity;                              // The most tokens the bucket holds.
+
+        /**
+         * This constructor initializes the bucket.
+         *
+         * @param name is the name of the bucket file.
+         * @param rate is the number of calls allowed per second.
+         */
+        private Bucket(String name, double rate) {
+
+            this.file = new File(directory, name + ".bucket");
+            this.rate = Math.max(0.1, rate);
+            this.capacity = Math.max(1, this.rate);
+        }
+
+        /**
+         * Take a token from the bucket.  The bucket may go into debt, in which case the caller must wait until the
+         * debt is paid back before making its call.
+         *
+         * @return the number of milliseconds to wait before the call.
+         */
+        long reserve() {
+
+            return update(false);
+        }
+
+        /**
+         * Empty the bucket for a second because a call was throttled.
+         */
+        void throttled() {
+
+            update(true);
+        }
+
+        /**
+         * Wait until a call may be made.
+         *
+         * @throws InterruptedException when the thread is interrupted while waiting.
+         */
+        void acquire() throws InterruptedException {
+
+            long wait = reserve();
+            if(wait > 0) Thread.sleep(wait);
+        }
+
+        /**
+         * Get a future that completes when a call may be made.  The token is taken on the executor because taking the
+         * file lock blocks, and no thread is blocked while waiting.
+         *
+         * @param executor runs the steps that take the file lock.
+         * @return the future.
+         */
+        CompletableFuture<Void> acquireAsync(Executor executor) {
+
+            return CompletableFuture.supplyAsync(this::reserve, executor).thenCompose(wait -> wait > 0 ?
+                    CloudFormationOperations.delay(wait) : CompletableFuture.completedFuture(null));
+        }
+
+        /**
+         * Get an interceptor that paces the attempts of a synchronous client with this bucket.  Retries made by the
+         * client take a token as well.
+         *
+         * @return the interceptor.
+         */
+        ExecutionInterceptor interceptor() {
+
+            return new ExecutionInterceptor() {
+
+                @Override
+                public void beforeTransmission(Context.BeforeTransmission context,
+                                               ExecutionAttributes executionAttributes) {
+
+                    try {
+
+                        acquire();
+
+                    } catch (InterruptedException ex) {
+
+                        Thread.currentThread().interrupt();
+                    }
+                }
+
+                @Override
+                public void onExecutionFailure(Context.FailedExecution context,
+                                               ExecutionAttributes executionAttributes) {
+
+                    Throwable error = context.exception();
+                    if(((error instanceof SdkServiceException) && ((SdkServiceException) error).isThrottlingException())
+                            || CloudFormationOperations.isRateExceeded(error)) throttled();
+                }
+            };
+        }
+
+        /**
+         * Refill the bucket for the time since it was last counted and either take a token or empty it.  When the
+         * file can't be used, the call isn't paced.
+         *
+         * @param empty is a flag to empty the bucket for a second instead of taking a token.
+         * @return the number of milliseconds to wait before the call.
+         */
+        private long update(boolean empty) {
+
+            Object lock = locks.computeIfAbsent(file.getAbsolutePath(), path -> new Object());
+            synchronized (lock) {
+
+                try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                        StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+
+                    FileLock fileLock = channel.lock();
+                    try {
+
+                        return update(channel, empty);
+
+                    } finally {
+
+                        fileLock.release();
+                    }
+
+                } catch (IOException ex) {
+
+                    System.out.println("Couldn't use the rate limit file " + file + ": " + ex.getMessage());
+                    return 0;
+                }
+            }
+        }
+
+        /**
+         * Refill the bucket held by a locked file and either take a token or empty it.
+         *
+         * @param channel is the locked file of the bucket.
+         * @param empty is a flag to empty the bucket for a second instead of taking a token.
+         * @return the number of milliseconds to wait before the call.
+         * @throws IOException when the file can't be read or written.
+         */
+        private long update(FileChannel channel, boolean empty) throws IOException {
+
+            long now = System.currentTimeMillis();
+            double tokens = capacity;
+
+            ByteBuffer state = ByteBuffer.allocate(STATE_SIZE);
+            if(channel.read(state, 0) == STATE_SIZE) {
+
+                state.flip();
+                double counted = state.getDouble();
+                long time = state.getLong();
+                tokens = Math.min(capacity, counted + Math.max(0, now - time) * rate / 1000);
+            }
+
+            tokens = empty ? Math.min(tokens, -rate) : tokens - 1;
+
+            state.clear();
+            state.putDouble(tokens).putLong(now).flip();
+            channel.write(state, 0);
+
+            return tokens >= 0 ? 0 : (long) Math.ceil(-tokens * 1000 / rate);
+        }
+    }
+
+    /**
+     * This constructor initializes the directory of the bucket files.  The directory is created when it is missing.
+     *
+     * @param directory is the directory shared by the plugin processes.
+     */
+    SharedRateLimiter(File directory) {
+
+        this.directory = directory;
+
+        //noinspection ResultOfMethodCallIgnored
+        directory.mkdirs();
+    }
+
+    /**
+     * Get a bucket.  Buckets with the same name share the same rate across the processes using the same directory.
+     *
+     * @param name is the name of the bucket, like the service and region of the calls.
+     * @param rate is the number of calls allowed per second.
+     * @return the bucket.
+     */
+    Bucket bucket(String name, double rate) {
+
+        return buckets.computeIfAbsent(name, key -> new Bucket(key, rate));
+    }
+}
@@ -0,0 +1,105 @@
+package com.digitalglobe.util.maven.plugin;
+
+import software.amazon.awssdk.services.cloudformation.model.DescribeChangeSetResponse;
+import software.amazon.awssdk.services.cloudformation.model.Parameter;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * This class holds the work prepared for a secondary stack before its turn.  The template is uploaded and, when the
+ * input parameters only match output parameters that are already known, the input parameters are read while the
+ * previous stack deploys.  Optionally the change set of an existing stack is created as well.  The futures are joined
+ * when the stack's turn comes.  The output parameters the input parameters were read with and the Parameter Store
+ * fields they read are kept so that the work can be discarded when an earlier stack changed them.
+ */
+class StagedStack {
+
+    private final String stackName;                         // The name of the stack.
+    private final CompletableFuture<String> templateUrl;    // The URL of the uploaded template.
+    private final CompletableFuture<Parameter[]> parameters;    // The input parameters or null when not prefetched.
+    private final Map<String, String> assumedOutputs;       // The output parameters the inputs were read with.
+    private final Set<String> storeNames;                   // The Parameter Store fields the inputs read.
+    private final int storeWriteCount;                      // The Parameter Store writes made before the inputs.
+    private CompletableFuture<DescribeChangeSetResponse> changeSet = CompletableFuture.completedFuture(null);
+
+    /**
+     * This constructor initializes the prepared work.
+     *
+     * @param stackName is the name of the stack.
+     * @param templateUrl is the future of the URL of the uploaded template.
+     * @param parameters is the future of the input parameters or null when they weren't prefetched.
+     * @param assumedOutputs are the output parameters the input parameters were read with.
+     * @param storeNames are the Parameter Store fields the input parameters read.
+     * @param storeWriteCount is the number of Parameter Store writes of the execution before the input parameters
+     *                        were read.
+     */
+    StagedStack(String stackName, CompletableFuture<String> templateUrl, CompletableFuture<Parameter[]> parameters,
+                Map<String, String> assumedOutputs, Set<String> storeNames, int storeWriteCount) {
+
+        this.stackName = stackName;
+        this.templateUrl = templateUrl;
+        this.parameters = parameters;
+        this.assumedOutputs = assumedOutputs;
+        this.storeNames = storeNames;
+        this.storeWriteCount = storeWriteCount;
+    }
+
+    /**
+     * Use this method to set the change set created for the stack before its turn.
+     *
+     * @param changeSet is the future of the description of the change set.  It completes with null when no change
+     *                  set was created.  It must not fail.
+     * @return this object for initialization chaining.
+     */
+    StagedStack withChangeSet(CompletableFuture<DescribeChangeSetResponse> changeSet) {
+
+        this.changeSet = changeSet;
+        return this;
+    }
+
+    String getStackName() {
+
+        return stackName;
+    }
+
+    CompletableFuture<String> getTemplateUrl() {
+
+        return templateUrl;
+    }
+
+    CompletableFuture<Parameter[]> getParameters() {
+
+        return parameters;
+    }
+
+    CompletableFuture<DescribeChangeSetResponse> getChangeSet() {
+
+        return changeSet;
+    }
+
+    /**
+     * Use this method to test if the output parameters the input parameters were read with are still current and if
+     * the Parameter Store fields they read weren't written since.
+     *
+     * @param outputParameters are the output parameters at the stack's turn.
+     * @param storeWrites are the Parameter Store fields written during the execution in order.
+     * @return a flag indicating that the prefetched input parameters and change set may be used.
+     */
+    boolean isCurrent(Map<String, String> outputParameters, List<String> storeWrites) {
+
+        for (Map.Entry<String, String> assumed : assumedOutputs.entrySet())
+            if(!Objects.equals(outputParameters.get(assumed.getKey()), assumed.getValue())) return false;
+
+        synchronized (storeWrites) {
+
+            for (String name : storeWrites.subList(Math.min(storeWriteCount, storeWrites.size()), storeWrites.size()))
+                if(storeNames.contains(name)) return false;
+        }
+
+        return true;
+    }
+}
@@ -1,28 +1,140 @@
 package com.digitalglobe.util.maven.plugin;
 
-import java.io.BufferedReader;
-import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
+import java.io.*;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
 /**
- * This class is reads buffers the output of a stream asynchronously.
+ * This class reads and buffers the output of a stream asynchronously.  It runs on a thread of a pool.  The content is
+ * copied as raw bytes into a list of growing chunks and decoded once when it is requested.  When the content grows
+ * beyond the maximum memory size, it is spilled to a temporary file.
  */
-class StreamHandler extends Thread
+class StreamHandler implements Runnable
 {
+    /**
+     * Use this interface to consume the content of the input stream directly instead of buffering it.
+     */
+    interface StreamProcessor
+    {
+        /**
+         * Process the content of the input stream.
+         *
+         * @param inputStream is the stream to process.
+         * @throws Exception when the content can't be processed.
+         */
+        void process(InputStream inputStream) throws Exception;
+    }
+
+    /**
+     * Use this interface to receive the lines of the input stream as they are read.
+     */
+    interface LineListener
+    {
+        /**
+         * Receive a line of the input stream without its line terminator.
+         *
+         * @param line is the line that was read.
+         */
+        void line(String line);
+    }
+
+    static final long DEFAULT_MAXIMUM_MEMORY_SIZE = 4 * 1024 * 1024;    // The default in memory limit (4 MB).
+    static private final int MINIMUM_CHUNK_SIZE = 4 * 1024;             // The size of the first chunk.
+    static private final int MAXIMUM_CHUNK_SIZE = 64 * 1024;            // The size chunks stop growing at.
+
     private InputStream inputStream;                            // The input stream to read from.
-    private StringBuilder outputBuffer = new StringBuilder();   // A string buffer holding the input stream content.
+    private StreamProcessor processor = null;                   // Consumes the stream instead of the buffer.
+    private LineListener lineListener = null;                   // Receives the lines as they are read.
+    private long maximumMemorySize = DEFAULT_MAXIMUM_MEMORY_SIZE;   // The size to spill to a file at.
+    private Charset charset = StandardCharsets.UTF_8;           // The character set of the stream content.
+    private List<byte[]> chunks = new ArrayList<>();            // The chunks holding the stream content.
+    private int lastChunkLength = 0;                            // The number of bytes used in the last chunk.
+    private long size = 0;                                      // The number of bytes read.
+    private File spillFile = null;                              // The file holding the content beyond the limit.
+    private OutputStream spillStream = null;                    // The stream writing to the spill file.
+    private ByteArrayOutputStream line = null;                  // The partial line sent to the line listener.
     private Exception exception = null;                         // Exceptions that occur while working with the stream.
     private Exception closeException = null;                    // Any stream closing exceptions.
 
     /**
-     * Get a buffer containing the content of the input stream.
+     * Get the content of the input stream decoded as a string.  When the content was spilled to a file, the file is
+     * read back into memory.
      *
-     * @return an output buffer containing the output from the execution.
+     * @return the output from the execution.
      */
-    StringBuilder getOutputBuffer()
+    String getOutput()
     {
-        return this.outputBuffer;
+        try
+        {
+            if(this.spillFile != null) return new String(Files.readAllBytes(this.spillFile.toPath()), this.charset);
+
+            byte[] content = new byte[(int) this.size];
+            int position = 0;
+            for (int i = 0; i < this.chunks.size(); i++)
+            {
+                byte[] chunk = this.chunks.get(i);
+                int length = (i == this.chunks.size() - 1) ? this.lastChunkLength : chunk.length;
+                System.arraycopy(chunk, 0, content, position, length);
+                position += length;
+            }
+
+            return new String(content, this.charset);
+        }
+        catch (IOException ex)
+        {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    /**
+     * Open a stream on the content of the input stream without loading a spilled file into memory.
+     *
+     * @return a stream containing the content.
+     * @throws IOException when the spill file can't be opened.
+     */
+    InputStream openOutput() throws IOException
+    {
+        if(this.spillFile != null) return new BufferedInputStream(new FileInputStream(this.spillFile));
+
+        List<InputStream> streams = new ArrayList<>();
+        for (int i = 0; i < this.chunks.size(); i++)
+        {
+            byte[] chunk = this.chunks.get(i);
+            streams.add(new ByteArrayInputStream(chunk, 0,
+                    (i == this.chunks.size() - 1) ? this.lastChunkLength : chunk.length));
+        }
+
+        return new SequenceInputStream(Collections.enumeration(streams));
+    }
+
+    /**
+     * Get the number of bytes read from the input stream.
+     *
+     * @return the size of the content.
+     */
+    long getSize()
+    {
+        return this.size;
+    }
+
+    /**
+     * Release the memory and the spill file holding the content.
+     */
+    void release()
+    {
+        this.chunks.clear();
+        this.lastChunkLength = 0;
+
+        if(this.spillFile != null)
+        {
+            //noinspection ResultOfMethodCallIgnored
+            this.spillFile.delete();
+            this.spillFile = null;
+        }
     }
 
     /**
@@ -56,20 +168,105 @@ class StreamHandler extends Thread
         this.inputStream = inputStream;
     }
 
+    /**
+     * This constructor initializes the input stream and a processor that consumes the stream.  The output buffer
+     * stays empty when a processor is used.
+     *
+     * @param inputStream is the stream to read from.
+     * @param processor is the processor that consumes the stream.
+     */
+    StreamHandler(InputStream inputStream, StreamProcessor processor)
+    {
+        this.inputStream = inputStream;
+        this.processor = processor;
+    }
+
+    /**
+     * Set the number of bytes to hold in memory before the content is spilled to a temporary file.
+     *
+     * @param maximumMemorySize is the maximum number of bytes to hold in memory.
+     * @return this instance for initialization chaining.
+     */
+    StreamHandler withMaximumMemorySize(long maximumMemorySize)
+    {
+        this.maximumMemorySize = maximumMemorySize;
+        return this;
+    }
+
+    /**
+     * Set a listener that receives each line of the stream as it is read.
+     *
+     * @param lineListener is the listener to send lines to.
+     * @return this instance for initialization chaining.
+     */
+    StreamHandler withLineListener(LineListener lineListener)
+    {
+        this.lineListener = lineListener;
+        return this;
+    }
+
+    /**
+     * Set the character set used to decode the content.  The default is UTF-8.
+     *
+     * @param charset is the character set of the content.
+     * @return this instance for initialization chaining.
+     */
+    StreamHandler withCharset(Charset charset)
+    {
+        this.charset = charset;
+        return this;
+    }
+
     /**
      * Runs a process to read the output an input stream.  Store any exceptions that occur.
      */
     public void run()
     {
-        BufferedReader bufferedReader = null;
         try
         {
-            bufferedReader = new BufferedReader(new InputStreamReader(inputStream));
-            String line = null;
-            while ((line = bufferedReader.readLine()) != null)
+            if(this.processor != null)
             {
-                this.outputBuffer.append(line + "\n");
+                this.processor.process(inputStream);
+
+                // Drain anything the processor didn't read so the process doesn't block on a full pipe.
+                byte[] buffer = new byte[8192];
+                //noinspection StatementWithEmptyBody
+                while (inputStream.read(buffer) != -1);
+                return;
             }
+
+            byte[] chunk = null;
+            int read = 0;
+            while (read != -1)
+            {
+                if((chunk == null) || (this.lastChunkLength == chunk.length))
+                {
+                    chunk = new byte[chunk == null ? MINIMUM_CHUNK_SIZE : Math.min(chunk.length * 2, MAXIMUM_CHUNK_SIZE)];
+                    this.chunks.add(chunk);
+                    this.lastChunkLength = 0;
+                }
+
+                read = inputStream.read(chunk, this.lastChunkLength, chunk.length - this.lastChunkLength);
+                if(read > 0)
+                {
+                    if(this.lineListener != null) sendLines(chunk, this.lastChunkLength, read);
+
+                    this.lastChunkLength += read;
+                    this.size += read;
+
+                    if(this.spillStream != null)
+                    {
+                        // Once spilled, the chunk is only a staging buffer for the file.
+                        this.spillStream.write(chunk, 0, this.lastChunkLength);
+                        this.lastChunkLength = 0;
+                    }
+                    else if(this.size > this.maximumMemorySize) spill();
+                }
+            }
+
+            // The line buffer is only created when the first bytes are read.
+            if((this.lineListener != null) && (this.line != null) && (this.line.size() > 0))
+                this.lineListener.line(decodeLine());
         }
         catch (Exception ex)
         {
@@ -79,7 +276,14 @@ class StreamHandler extends Thread
         {
             try
             {
-                bufferedReader.close();
+                if(this.spillStream != null)
+                {
+                    this.spillStream.close();
+                    this.chunks.clear();
+                    this.lastChunkLength = 0;
+                }
+
+                inputStream.close();
             }
             catch (IOException e)
             {
@@ -87,4 +291,64 @@ class StreamHandler extends Thread
             }
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Move the content held in memory to a temporary file.  The content that is read afterwards is written to the
+     * file.  The last chunk is kept as a staging buffer for the reads.
+     *
+     * @throws IOException when the temporary file can't be written.
+     */
+    private void spill() throws IOException
+    {
+        this.spillFile = File.createTempFile("command-output", ".tmp");
+        this.spillFile.deleteOnExit();
+        this.spillStream = new BufferedOutputStream(new FileOutputStream(this.spillFile), MAXIMUM_CHUNK_SIZE);
+
+        byte[] last = this.chunks.get(this.chunks.size() - 1);
+        for (int i = 0; i < this.chunks.size() - 1; i++) this.spillStream.write(this.chunks.get(i));
+        this.spillStream.write(last, 0, this.lastChunkLength);
+
+        this.chunks.clear();
+        this.chunks.add(last);
+        this.lastChunkLength = 0;
+    }
+
+    /**
+     * Send the complete lines in a range of bytes to the line listener.  A partial line is kept until the rest of it
+     * is read.
+     *
+     * @param buffer contains the bytes that were read.
+     * @param offset is the position of the first byte.
+     * @param length is the number of bytes.
+     */
+    private void sendLines(byte[] buffer, int offset, int length)
+    {
+        if(this.line == null) this.line = new ByteArrayOutputStream();
+
+        int start = offset;
+        for (int i = offset; i < offset + length; i++)
+        {
+            if(buffer[i] == '\n')
+            {
+                this.line.write(buffer, start, i - start);
+                this.lineListener.line(decodeLine());
+                start = i + 1;
+            }
+        }
+
+        this.line.write(buffer, start, offset + length - start);
+    }
+
+    /**
+     * Decode the partial line without its line terminator and reset it.
+     *
+     * @return the decoded line.
+     */
+    private String decodeLine()
+    {
+        String text = new String(this.line.toByteArray(), this.charset);
+        this.line.reset();
+
+        return text.endsWith("\r") ? text.substring(0, text.length() - 1) : text;
+    }
+}
@@ -23,6 +23,7 @@ import software.amazon.awssdk.regions.Region;
 import software.amazon.awssdk.services.cloudformation.CloudFormationAsyncClient;
 import software.amazon.awssdk.services.cloudformation.model.*;
 import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.ssm.SsmClient;
 import software.amazon.awssdk.services.sts.StsClient;
 import software.amazon.awssdk.services.sts.model.*;
 import org.apache.maven.plugin.MojoExecutionException;
@@ -38,17 +39,59 @@ import software.amazon.awssdk.services.s3.model.*;
  */
 public class TestCloudFormationDeploy {
 
+    /**
+     * Use to create the mocked clients.  The plugin is configured to use this factory in place of the default factory.
+     * The Systems Manager clients aren't mocked, so they are created by the default factory.
+     */
+    static public class MockClientFactory implements AwsClientFactory {
+
+        private final DefaultAwsClientFactory defaultFactory = new DefaultAwsClientFactory();
+
+        @Override
+        public StsClient createStsClient(String region, AwsCredentialsProvider credentials) {
+
+            return OverridePlugin.create();
+        }
+
+        @Override
+        public S3Client createS3Client(String region, AwsCredentialsProvider credentials) {
+
+            s3Client builder = s3Client.builder();
+            if(region != null) builder.region(Region.of(region));
+            if(credentials != null) builder.credentialsProvider(credentials);
+
+            return builder.build();
+        }
+
+        @Override
+        public CloudFormationAsyncClient createCloudFormationClient(String region, AwsCredentialsProvider credentials) {
+
+            cfClient builder = cfClient.builder();
+            if(credentials != null) builder.credentialsProvider(credentials);
+
+            return builder.build();
+        }
+
+        @Override
+        public SsmClient createSsmClient(String region, AwsCredentialsProvider credentials) {
+
+            return defaultFactory.createSsmClient(region, credentials);
+        }
+
+        @Override
+        public void close() {
+
+            defaultFactory.close();
+        }
+    }
+
     /**
      * Use to override some plugin methods for mocking purposes and to mock the Amazon Security Token Service.  In
-     * this mocking scenario, this method overrides the S3 and STS Client Builders as well as initialize the test
-     * of the execute function.  Then it invokes the execute function of the plugin for unit testing.
+     * this mocking scenario, the plugin is configured with the mock client factory and the test of the execute
+     * function is initialized.  Then it invokes the execute function of the plugin for unit testing.
      */
     static public class OverridePlugin extends CloudFormationDeployMavenPlugin implements StsClient {
 
-        static {s3Builder = s3Client.class;}
-        static {cfAsyncBuilder = cfClient.class;}
-        static {stsBuilder = OverridePlugin.class;}
-
         static public StsClient create() {
 
             return new OverridePlugin();
@@ -76,6 +119,22 @@ public class TestCloudFormationDeploy {
                     .build();
         }
 
+        /**
+         * Use this method to mock getting the identity of the default credentials.
+         *
+         * @param getCallerIdentityRequest is the request for the identity.
+         * @return a result that contains the account of the mock.
+         */
+        @Override
+        public GetCallerIdentityResponse getCallerIdentity(GetCallerIdentityRequest getCallerIdentityRequest) {
+
+            return GetCallerIdentityResponse.builder()
+                    .account("123456789012")
+                    .arn("arn:aws:iam::123456789012:user/test")
+                    .userId("AIDTEST")
+                    .build();
+        }
+
         /**
          * Use this method to begin the test against the mocked class.
          */
@@ -90,6 +149,7 @@ public class TestCloudFormationDeploy {
 
             try {
 
+                setField("clientFactory", MockClientFactory.class.getName());
                 setField("templateS3Bucket", templateS3Bucket);
                 setField("outputDirectory", new File("target"));
                 if(roleArn != null) setField("roleArn", roleArn);
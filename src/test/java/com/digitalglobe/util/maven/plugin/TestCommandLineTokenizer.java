@@ -0,0 +1,101 @@
+package com.digitalglobe.util.maven.plugin;
+
+import java.util.Arrays;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Use this class to test the splitting of CLI commands into their arguments.
+ */
+public class TestCommandLineTokenizer {
+
+    // The expression the commands were split with before the tokenizer.  It keeps the quotes in the arguments.
+    static private final String legacySplit =
+            "\\s+(?=(?:[^\'\"`]*(?:(\')[^\']*\\1|(\")[^\"]*\\2|(`)[^`]*\\3))*[^\'\"`]*$)";
+
+    static private final String[] commands = {
+            "aws ec2 describe-vpn-connections --region us-east-1",
+            "aws  ec2\tdescribe-vpcs   --output json ",
+            "aws ec2 describe-vpcs --filters \"Name=tag:Name,Values=Main VPC\" --output json",
+            "aws ec2 describe-instances --query 'Reservations[0].Instances[0]' --filters Name=a,Values=b",
+            "aws ssm get-parameter --name `my parameter` --with-decryption",
+            "aws ec2 describe-vpcs --filters Name=tag:Name,Values=\"Main VPC\",\"Other VPC\""
+    };
+
+    /**
+     * Use this method to test that the tokenizer splits commands where the legacy expression did.  The legacy
+     * expression kept the quotes, so they are removed from its arguments before comparing.
+     */
+    @Test(groups = {"unit"})
+    public void TestLegacySplitting() throws Exception {
+
+        for (String command : commands) {
+
+            String[] legacy = Arrays.stream(command.trim().split(legacySplit))
+                    .map(argument -> argument.replaceAll("[\'\"`]", ""))
+                    .toArray(String[]::new);
+
+            Assert.assertEquals(CommandLineTokenizer.tokenize(command), legacy, command);
+        }
+    }
+
+    /**
+     * Use this method to test escapes, empty arguments and invalid commands.
+     */
+    @Test(groups = {"unit"})
+    public void TestEscapes() throws Exception {
+
+        Assert.assertEquals(CommandLineTokenizer.tokenize("echo a\\ b \\\"c"), new String[] {"echo", "a b", "\"c"});
+        Assert.assertEquals(CommandLineTokenizer.tokenize("echo \"a \\\"b\\\" \\c\""), new String[] {"echo", "a \"b\" \\c"});
+        Assert.assertEquals(CommandLineTokenizer.tokenize("echo 'a \\ b'"), new String[] {"echo", "a \\ b"});
+        Assert.assertEquals(CommandLineTokenizer.tokenize("echo \"\" x"), new String[] {"echo", "", "x"});
+        Assert.assertEquals(CommandLineTokenizer.tokenize("   "), new String[0]);
+
+        for (String invalid : new String[] {"echo \"a", "echo 'a", "echo `a", "echo a\\"}) {
+
+            try {
+
+                CommandLineTokenizer.tokenize(invalid);
+                Assert.fail("Expected an error for: " + invalid);
+
+            } catch (MojoExecutionException ex) { /* Expected */ }
+        }
+    }
+
+    /**
+     * Use this method to compare the tokenizer with the legacy expression on commands with long filter arguments.  It
+     * is in the performance group and doesn't run with the unit tests.
+     */
+    @Test(groups = {"performance"})
+    public void TestTokenizePerformance() throws Exception {
+
+        for (int filters : new int[] {50, 200, 800}) {
+
+            StringBuilder command = new StringBuilder("aws ec2 describe-instances --filters");
+            for (int i = 0; i < filters; i++)
+                command.append(" \"Name=tag:Name,Values=Server ").append(i).append("\" 'Name=instance-state-name,Values=running'");
+
+            String text = command.toString();
+
+            long start = System.nanoTime();
+            String[] legacy = null;
+            try {
+
+                legacy = text.split(legacySplit);
+
+            } catch (StackOverflowError error) { /* The backtracking of the expression overflows the stack. */ }
+            long regex = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            String[] tokens = CommandLineTokenizer.tokenize(text);
+            long tokenizer = System.nanoTime() - start;
+
+            Assert.assertEquals(tokens.length, 4 + 2 * filters);
+            if(legacy != null) Assert.assertEquals(tokens.length, legacy.length);
+            System.out.format("Filters: %d, Regex: %s, Tokenizer: %d ms\n", filters,
+                    legacy != null ? (regex / 1000000) + " ms" : "stack overflow", tokenizer / 1000000);
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.digitalglobe.util.maven.plugin;
+
+import java.io.File;
+import java.nio.file.Files;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Use this class to test when the output of a CLI command is taken from the cache.
+ */
+public class TestCommandOutputCache {
+
+    static private final String KEY = CommandOutputCache.key(new String[] { "aws", "s3api", "list-buckets" },
+            "account:123456789012", "us-east-1");
+
+    /**
+     * Use this method to test that the memory tier lasts for the execution and the disk tier for its time to live.
+     */
+    @Test(groups = {"unit"})
+    public void TestTiers() throws Exception {
+
+        File directory = Files.createTempDirectory("cli-cache").toFile();
+        directory.deleteOnExit();
+
+        CommandOutputCache cache = new CommandOutputCache(directory);
+        cache.put(KEY, "memory", null);
+        cache.put(CommandOutputCache.key(new String[] { "aws" }, "account:123456789012", "us-east-1"), "disk", 60);
+
+        Assert.assertEquals(cache.get(KEY, null), "memory");
+        Assert.assertNull(cache.get(CommandOutputCache.key(new String[] { "aws", "s3api", "list-buckets" },
+                "account:123456789012", "us-west-2"), null));
+
+        // A later execution only finds the entries written to the disk tier, and only with a time to live.
+        CommandOutputCache later = new CommandOutputCache(directory);
+        Assert.assertNull(later.get(KEY, 60));
+        Assert.assertNull(later.get(CommandOutputCache.key(new String[] { "aws" }, "account:123456789012",
+                "us-east-1"), null));
+        Assert.assertEquals(later.get(CommandOutputCache.key(new String[] { "aws" }, "account:123456789012",
+                "us-east-1"), 60), "disk");
+    }
+
+    /**
+     * Use this method to test that a disk entry expires with its time to live.
+     */
+    @Test(groups = {"unit"})
+    public void TestTimeToLive() throws Exception {
+
+        File directory = Files.createTempDirectory("cli-cache").toFile();
+        directory.deleteOnExit();
+
+        new CommandOutputCache(directory).put(KEY, "output", 1);
+        Assert.assertEquals(new CommandOutputCache(directory).get(KEY, 1), "output");
+
+        Thread.sleep(1100);
+        Assert.assertNull(new CommandOutputCache(directory).get(KEY, 1));
+        Assert.assertEquals(new CommandOutputCache(directory).get(KEY, 60), "output");
+    }
+
+    /**
+     * Use this method to test that an invalidation drops both tiers, so a stack operation isn't followed by output
+     * read before it.
+     */
+    @Test(groups = {"unit"})
+    public void TestInvalidate() throws Exception {
+
+        File directory = Files.createTempDirectory("cli-cache").toFile();
+        directory.deleteOnExit();
+
+        CommandOutputCache cache = new CommandOutputCache(directory);
+        cache.put(KEY, "before", 60);
+        Assert.assertEquals(cache.get(KEY, 60), "before");
+
+        cache.invalidate();
+        Assert.assertNull(cache.get(KEY, 60));
+        Assert.assertNull(new CommandOutputCache(directory).get(KEY, 60));
+
+        cache.put(KEY, "after", 60);
+        Assert.assertEquals(cache.get(KEY, 60), "after");
+        Assert.assertEquals(new CommandOutputCache(directory).get(KEY, 60), "after");
+    }
+}
@@ -0,0 +1,70 @@
+package com.digitalglobe.util.maven.plugin;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Use this class to test where a failed deployment continues from.
+ */
+public class TestDeploymentCheckpoint {
+
+    /**
+     * Use this method to test that the deployment continues after the last stack that finished.
+     */
+    @Test(groups = {"unit"})
+    public void TestResumePosition() throws Exception {
+
+        DeploymentCheckpoint checkpoint = new DeploymentCheckpoint("fingerprint");
+        Assert.assertFalse(checkpoint.isCompleted(0, 0));
+
+        // The primary stack of the first group finished.
+        checkpoint.advance(new DeploymentCheckpoint.Entry(0, 0, "master", "arn:master", "us-east-1", null, 1000L));
+        Assert.assertTrue(checkpoint.isCompleted(0, 0));
+        Assert.assertFalse(checkpoint.isCompleted(0, 1));
+
+        // The first group and the first three stacks of the second group finished.
+        checkpoint.advance(new DeploymentCheckpoint.Entry(1, 0, "master", "arn:master", "us-east-1", null, 2000L))
+                .advance(new DeploymentCheckpoint.Entry(1, 1, "network", "arn:network", null, null, 3000L))
+                .advance(new DeploymentCheckpoint.Entry(1, 2, "version", null, null, "aws:iam::1111:role/test",
+                        null));
+
+        Assert.assertTrue(checkpoint.isCompleted(0, Integer.MAX_VALUE));
+        Assert.assertTrue(checkpoint.isCompleted(1, 2));
+        Assert.assertFalse(checkpoint.isCompleted(1, 3));
+        Assert.assertFalse(checkpoint.isCompleted(2, 0));
+
+        // The outputs of the group being resumed are read again from its finished stacks.
+        Assert.assertEquals(checkpoint.getStack(1, 0).getLastUpdated(), Long.valueOf(2000L));
+        Assert.assertEquals(checkpoint.getStack(1, 1).getStackId(), "arn:network");
+        Assert.assertNull(checkpoint.getStack(1, 2).getStackId());
+        Assert.assertNull(checkpoint.getStack(1, 3));
+    }
+
+    /**
+     * Use this method to test that the checkpoint file doesn't keep the outputs of the stacks.
+     */
+    @Test(groups = {"unit"})
+    public void TestNoOutputs() throws Exception {
+
+        File file = File.createTempFile("checkpoint", ".json");
+        file.deleteOnExit();
+
+        new DeploymentCheckpoint("fingerprint")
+                .advance(new DeploymentCheckpoint.Entry(0, 1, "network", "arn:network", null, null, 1000L))
+                .write(file);
+
+        Assert.assertFalse(new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8)
+                .contains("outputs"));
+
+        DeploymentCheckpoint read = DeploymentCheckpoint.read(file);
+        Assert.assertTrue(read.isCompleted(0, 1));
+        Assert.assertFalse(read.isCompleted(0, 2));
+        Assert.assertEquals(read.getStack(0, 1).getStackId(), "arn:network");
+
+        Assert.assertNull(DeploymentCheckpoint.read(new File(file.getPath() + ".missing")));
+    }
+}
@@ -0,0 +1,152 @@
+package com.digitalglobe.util.maven.plugin;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Use this class to test the decisions the apply goal makes from a plan.
+ */
+public class TestDeploymentPlan {
+
+    /**
+     * Use this method to test that editing a template or rebuilding an artifact changes the fingerprint.
+     */
+    @Test(groups = {"unit"})
+    public void TestFingerprintMismatch() throws Exception {
+
+        File template = File.createTempFile("template", ".yml");
+        File artifact = File.createTempFile("artifact", ".jar");
+        template.deleteOnExit();
+        artifact.deleteOnExit();
+
+        Files.write(template.toPath(), "Resources: {}".getBytes(StandardCharsets.UTF_8));
+        Files.write(artifact.toPath(), new byte[] { 1, 2, 3 });
+
+        List<String> names = Collections.singletonList("master");
+        List<File> files = Arrays.asList(template, artifact);
+        String planned = DeploymentPlan.fingerprint(names, files);
+
+        Assert.assertEquals(DeploymentPlan.fingerprint(names, files), planned);
+        Assert.assertNotEquals(DeploymentPlan.fingerprint(Collections.singletonList("other"), files), planned);
+
+        // The file names and paths are the same but the contents differ.
+        Files.write(artifact.toPath(), new byte[] { 1, 2, 4 });
+        Assert.assertNotEquals(DeploymentPlan.fingerprint(names, files), planned);
+
+        Files.write(artifact.toPath(), new byte[] { 1, 2, 3 });
+        Files.write(template.toPath(), "Resources: {Bucket: {}}".getBytes(StandardCharsets.UTF_8));
+        Assert.assertNotEquals(DeploymentPlan.fingerprint(names, files), planned);
+    }
+
+    /**
+     * Use this method to test that the stacks are applied in the order they were planned.
+     */
+    @Test(groups = {"unit"})
+    public void TestApplyOrder() throws Exception {
+
+        DeploymentPlan plan = new DeploymentPlan("fingerprint");
+        plan.add(new DeploymentPlan.Entry("first", "us-east-1", null, "UPDATE", null, Collections.emptyList(),
+                Collections.emptyMap()));
+        plan.add(new DeploymentPlan.Entry("version-0f8fad5b-d9cb-469f-a165-70867728950eStack", null, null,
+                "CREATE", null, Collections.emptyList(), Collections.emptyMap()));
+
+        Assert.assertThrows(MojoExecutionException.class,
+                () -> plan.next("version-7c9e6679-7425-40de-944b-e07fc1f90ae7Stack", null, Collections.emptyMap()));
+        Assert.assertThrows(MojoExecutionException.class, plan::checkApplied);
+
+        Assert.assertEquals(plan.next("first", "us-east-1", Collections.emptyMap()).getStackName(), "first");
+        Assert.assertThrows(MojoExecutionException.class, plan::checkApplied);
+
+        // A stack named from a prefix matches the planned stack with the same prefix.
+        Assert.assertEquals(plan.next("version-7c9e6679-7425-40de-944b-e07fc1f90ae7Stack", null,
+                Collections.emptyMap()).getChangeSetType(), "CREATE");
+        plan.checkApplied();
+
+        Assert.assertThrows(MojoExecutionException.class, () -> plan.next("third", null, Collections.emptyMap()));
+        Assert.assertFalse(DeploymentPlan.sameStack("version-0f8fad5b-d9cb-469f-a165-70867728950eStack",
+                "alias-0f8fad5b-d9cb-469f-a165-70867728950eStack"));
+    }
+
+    /**
+     * Use this method to test that a stack planned in one region isn't applied in another.
+     */
+    @Test(groups = {"unit"})
+    public void TestRegionMismatch() throws Exception {
+
+        DeploymentPlan plan = new DeploymentPlan("fingerprint");
+        plan.add(new DeploymentPlan.Entry("master", "us-east-1", null, "UPDATE", null, Collections.emptyList(),
+                Collections.emptyMap()));
+
+        Assert.assertThrows(MojoExecutionException.class,
+                () -> plan.next("master", "us-west-2", Collections.emptyMap()));
+        Assert.assertThrows(MojoExecutionException.class, () -> plan.next("master", null, Collections.emptyMap()));
+
+        plan.next("master", "us-east-1", Collections.emptyMap());
+        plan.checkApplied();
+    }
+
+    /**
+     * Use this method to test that a stack isn't applied when an output parameter its inputs were resolved with
+     * changed, and that the plan file doesn't hold the values.
+     */
+    @Test(groups = {"unit"})
+    public void TestStaleOutputs() throws Exception {
+
+        File file = File.createTempFile("plan", ".json");
+        file.deleteOnExit();
+
+        DeploymentPlan planned = new DeploymentPlan("fingerprint");
+        planned.add(new DeploymentPlan.Entry("network", null, "aws:iam::1111:role/test", "UPDATE",
+                "arn:aws:cloudformation:us-east-1:1111:changeSet/P-1/1", Collections.singletonList("Modify Vpc"),
+                Collections.singletonMap("VpcCidr", DeploymentPlan.hashOutput("VpcCidr", "10.0.0.0/16"))));
+        planned.write(file);
+
+        Assert.assertFalse(new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8)
+                .contains("10.0.0.0/16"));
+
+        Map<String, String> outputs = new HashMap<>();
+        outputs.put("VpcCidr", "10.1.0.0/16");
+
+        DeploymentPlan plan = DeploymentPlan.read(file);
+        Assert.assertThrows(MojoExecutionException.class, () -> plan.next("network", null, outputs));
+        Assert.assertThrows(MojoExecutionException.class, () -> plan.next("network", null, Collections.emptyMap()));
+
+        outputs.put("VpcCidr", "10.0.0.0/16");
+        DeploymentPlan.Entry entry = plan.next("network", null, outputs);
+        Assert.assertEquals(entry.getRoleArn(), "aws:iam::1111:role/test");
+        plan.checkApplied();
+    }
+
+    /**
+     * Use this method to test that only the change sets that weren't executed are deleted with the plan.
+     */
+    @Test(groups = {"unit"})
+    public void TestUnexecuted() throws Exception {
+
+        DeploymentPlan plan = new DeploymentPlan("fingerprint");
+        plan.add(new DeploymentPlan.Entry("master", null, null, "UPDATE",
+                "arn:aws:cloudformation:us-east-1:1111:changeSet/P-1/1", Collections.emptyList(),
+                Collections.emptyMap()));
+        plan.add(new DeploymentPlan.Entry("version", null, null, "UPDATE", null, Collections.emptyList(),
+                Collections.emptyMap()));
+        plan.add(new DeploymentPlan.Entry("network", null, null, "CREATE",
+                "arn:aws:cloudformation:us-east-1:1111:changeSet/P-2/2", Collections.emptyList(),
+                Collections.emptyMap()));
+
+        Assert.assertEquals(plan.getUnexecuted().size(), 2);
+
+        plan.next("master", null, Collections.emptyMap()).executed();
+        Assert.assertEquals(plan.getUnexecuted().size(), 1);
+        Assert.assertEquals(plan.getUnexecuted().get(0).getStackName(), "network");
+    }
+}
@@ -0,0 +1,107 @@
+package com.digitalglobe.util.maven.plugin;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Use this class to test the decisions an incremental deployment makes from the state of the stacks.
+ */
+public class TestDeploymentState {
+
+    /**
+     * Use this method to test that a stack is only skipped when none of its inputs changed.
+     */
+    @Test(groups = {"unit"})
+    public void TestMatches() throws Exception {
+
+        Map<String, String> parameters = new LinkedHashMap<>();
+        parameters.put("VpcId", "vpc-1");
+        parameters.put("Stage", "test");
+        String parametersHash = DeploymentState.hash(parameters);
+
+        Map<String, String> artifact = new HashMap<>();
+        artifact.put("ArtifactS3Key", "lambda.jar");
+        artifact.put("CodeSHA256", "abc=");
+        String artifactDigest = DeploymentState.hash(artifact);
+
+        DeploymentState.Entry master = new DeploymentState.Entry("master", "us-east-1", "123456789012", "template",
+                parametersHash, artifactDigest, 1000L, DeploymentState.hash(new HashMap<>()));
+
+        // The order of the parameters doesn't change their hash.
+        Map<String, String> reordered = new HashMap<>();
+        reordered.put("Stage", "test");
+        reordered.put("VpcId", "vpc-1");
+        Assert.assertTrue(master.matches("template", DeploymentState.hash(reordered), artifactDigest));
+
+        // A rebuilt artifact under the same key changes the digest.
+        artifact.put("CodeSHA256", "abd=");
+        Assert.assertFalse(master.matches("template", parametersHash, DeploymentState.hash(artifact)));
+        Assert.assertFalse(master.matches("template", parametersHash, null));
+
+        reordered.put("Stage", "prod");
+        Assert.assertFalse(master.matches("template", DeploymentState.hash(reordered), artifactDigest));
+        Assert.assertFalse(master.matches("other", parametersHash, artifactDigest));
+        Assert.assertFalse(master.matches(null, parametersHash, artifactDigest));
+    }
+
+    /**
+     * Use this method to test that the outputs are recorded as a hash, so that the state file doesn't hold their
+     * values.
+     */
+    @Test(groups = {"unit"})
+    public void TestOutputsHash() throws Exception {
+
+        File file = File.createTempFile("state", ".json");
+        file.deleteOnExit();
+
+        Map<String, String> outputs = new HashMap<>();
+        outputs.put("BucketName", "secret-bucket");
+        outputs.put("Empty", null);
+
+        DeploymentState state = new DeploymentState();
+        state.put(new DeploymentState.Entry("master", "us-east-1", "123456789012", "template", "parameters", null,
+                1000L, DeploymentState.hash(outputs)));
+        state.write(file);
+
+        Assert.assertFalse(new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8)
+                .contains("secret-bucket"));
+
+        DeploymentState.Entry master = DeploymentState.read(file).get("us-east-1", "123456789012", "master");
+        Assert.assertEquals(master.getOutputsHash(), DeploymentState.hash(outputs));
+
+        outputs.put("BucketName", "other-bucket");
+        Assert.assertNotEquals(master.getOutputsHash(), DeploymentState.hash(outputs));
+    }
+
+    /**
+     * Use this method to test that stacks with the same name in other regions and accounts have their own state.
+     */
+    @Test(groups = {"unit"})
+    public void TestSameNameStacks() throws Exception {
+
+        File file = File.createTempFile("state", ".json");
+        file.deleteOnExit();
+
+        DeploymentState state = new DeploymentState();
+        state.put(new DeploymentState.Entry("network", "us-east-1", "123456789012", "east", "parameters", null,
+                1000L, "outputs"));
+        state.put(new DeploymentState.Entry("network", "us-west-2", "123456789012", "west", "parameters", null,
+                2000L, "outputs"));
+        state.put(new DeploymentState.Entry("network", "us-east-1", "1111", "other", "parameters", null,
+                3000L, "outputs"));
+        state.write(file);
+
+        DeploymentState read = DeploymentState.read(file);
+        Assert.assertTrue(read.get("us-east-1", "123456789012", "network").matches("east", "parameters", null));
+        Assert.assertTrue(read.get("us-west-2", "123456789012", "network").matches("west", "parameters", null));
+        Assert.assertEquals(read.get("us-east-1", "1111", "network").getLastUpdated(), 3000L);
+        Assert.assertNull(read.get("us-west-2", "1111", "network"));
+    }
+}
@@ -0,0 +1,59 @@
+package com.digitalglobe.util.maven.plugin;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeoutException;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Use this class to test how a system command that doesn't finish is stopped.
+ */
+public class TestExecuteCommand {
+
+    /**
+     * Use this method to test that a command is killed with the processes it started when the timeout expires and
+     * that the output it wrote before is kept.
+     */
+    @Test(groups = {"unit"})
+    public void TestTimeout() throws Exception {
+
+        Map<String, String> environment = new HashMap<>();
+        environment.put("PATH", System.getenv().getOrDefault("PATH", "/bin:/usr/bin"));
+
+        // The shell prints the process id of the child it started so that the child can be checked afterwards.
+        ExecuteCommand command = new ExecuteCommand()
+                .withCommandInformation(new String[] { "sh", "-c", "echo partial; sleep 30 & echo $!; wait" })
+                .withEnvironmentMap(environment)
+                .withTimeout(1);
+
+        long started = System.currentTimeMillis();
+        command.executeCommand();
+
+        Assert.assertTrue(System.currentTimeMillis() - started < 20000);
+        Assert.assertTrue(command.isTimedOut());
+        Assert.assertNotNull(command.getExecutionErrors());
+        Assert.assertTrue(command.getExecutionErrors()[0] instanceof TimeoutException);
+
+        String[] lines = command.getStandardOutputFromCommand().trim().split("\\s+");
+        Assert.assertEquals(lines[0], "partial");
+
+        // The child is killed with the shell instead of being left to run.
+        long child = Long.parseLong(lines[1]);
+        for (int i = 0; i < 50 && isAlive(child); i++) Thread.sleep(100);
+        Assert.assertFalse(isAlive(child));
+
+        command.release();
+    }
+
+    /**
+     * Use this method to test if a process is still running.
+     */
+    private static boolean isAlive(long pid) {
+
+        Optional<ProcessHandle> handle = ProcessHandle.of(pid);
+        return handle.isPresent() && handle.get().isAlive();
+    }
+}
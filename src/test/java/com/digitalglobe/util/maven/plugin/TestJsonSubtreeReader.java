@@ -0,0 +1,104 @@
+package com.digitalglobe.util.maven.plugin;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Use this class to test that the parts of a document kept by the subtree reader resolve the parameter names the same
+ * way the whole document does.
+ */
+public class TestJsonSubtreeReader {
+
+    static private final String DOCUMENT = "{\"VpnConnections\":[{\"VpnConnectionId\":\"vpn-1\"," +
+            "\"Tags\":[{\"Key\":\"Name\",\"Value\":\"primary\"},{\"Key\":\"Stage\",\"Value\":\"test\"}]," +
+            "\"VgwTelemetry\":[{\"OutsideIpAddress\":\"1.1.1.1\",\"Status\":\"UP\"}," +
+            "{\"OutsideIpAddress\":\"2.2.2.2\",\"Status\":\"DOWN\"}]}," +
+            "{\"VpnConnectionId\":\"vpn-2\",\"Tags\":[{\"Key\":\"Name\",\"Value\":\"backup\"}]," +
+            "\"VgwTelemetry\":[{\"OutsideIpAddress\":\"3.3.3.3\",\"Status\":\"UP\"}]}]," +
+            "\"Large\":{\"Nested\":[1,2,3,{\"Deep\":true}]},\"Count\":2,\"Empty\":null}";
+
+    /**
+     * Use this method to read the selected parts of the document.
+     */
+    private static Map<String, Object> read(List<ParameterPath> paths, String document) throws IOException {
+
+        return new JsonSubtreeReader(paths).read(new ByteArrayInputStream(document.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * Use this method to map the parameter names to their compiled paths.
+     */
+    private static Map<String, ParameterPath> keys(List<ParameterPath> paths) {
+
+        Map<String, ParameterPath> keys = new LinkedHashMap<>();
+        for (ParameterPath path : paths) keys.put(path.getExpression(), path);
+
+        return keys;
+    }
+
+    /**
+     * Use this method to test that the fields that aren't selected are pruned.
+     */
+    @Test(groups = {"unit"})
+    public void TestPruning() throws Exception {
+
+        List<ParameterPath> paths = Arrays.asList(ParameterPath.compile("/VpnConnections[0]/VpnConnectionId"),
+                ParameterPath.compile("/Count"));
+
+        Assert.assertEquals(new ObjectMapper().writeValueAsString(read(paths, DOCUMENT)),
+                "{\"VpnConnections\":[{\"VpnConnectionId\":\"vpn-1\"},{\"VpnConnectionId\":\"vpn-2\"}],\"Count\":2}");
+
+        // A selected object or array is kept whole.
+        Assert.assertEquals(new ObjectMapper().writeValueAsString(read(
+                Arrays.asList(ParameterPath.compile("/Large")), DOCUMENT)),
+                "{\"Large\":{\"Nested\":[1,2,3,{\"Deep\":true}]}}");
+    }
+
+    /**
+     * Use this method to test that index and filter selectors resolve the same values from the pruned document as
+     * from the whole document.
+     */
+    @Test(groups = {"unit"})
+    public void TestSelectors() throws Exception {
+
+        List<ParameterPath> paths = Arrays.asList(
+                ParameterPath.compile("/VpnConnections[1]/VgwTelemetry[0]/OutsideIpAddress"),
+                ParameterPath.compile("/VpnConnections[0]/VgwTelemetry[Status=DOWN]/OutsideIpAddress"),
+                ParameterPath.compile("/VpnConnections[VpnConnectionId=vpn-2]/Tags[Key=Name]/Value"),
+                ParameterPath.compile("/VpnConnections[0]/VgwTelemetry[Status=UP][0]/OutsideIpAddress"),
+                ParameterPath.compile("/VpnConnections[0]/Tags[Key=Stage]/Value"),
+                ParameterPath.compile("/Large/Nested[3]/Deep"),
+                ParameterPath.compile("/Empty"));
+
+        Map<String, Object> whole = new ObjectMapper().readValue(DOCUMENT,
+                new TypeReference<LinkedHashMap<String, Object>>() {});
+        Map<String, Object> expected = ParameterPath.evaluate(whole, keys(paths));
+        Map<String, Object> actual = ParameterPath.evaluate(read(paths, DOCUMENT), keys(paths));
+
+        Assert.assertEquals(actual, expected);
+        Assert.assertEquals(actual.get("/VpnConnections[1]/VgwTelemetry[0]/OutsideIpAddress"), "3.3.3.3");
+        Assert.assertEquals(actual.get("/VpnConnections[0]/VgwTelemetry[Status=DOWN]/OutsideIpAddress"), "2.2.2.2");
+        Assert.assertEquals(actual.get("/VpnConnections[0]/Tags[Key=Stage]/Value"), "test");
+        Assert.assertEquals(actual.get("/VpnConnections[VpnConnectionId=vpn-2]/Tags[Key=Name]/Value"), "backup");
+        Assert.assertFalse(actual.containsKey("/Empty"));
+    }
+
+    /**
+     * Use this method to test that a document that isn't a JSON object is refused.
+     */
+    @Test(groups = {"unit"})
+    public void TestNotAnObject() throws Exception {
+
+        Assert.assertThrows(IOException.class, () -> read(Arrays.asList(ParameterPath.compile("/A")), "[1,2]"));
+    }
+}
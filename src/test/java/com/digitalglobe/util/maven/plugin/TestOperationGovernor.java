@@ -0,0 +1,56 @@
+package com.digitalglobe.util.maven.plugin;
+
+import java.util.concurrent.CompletableFuture;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Use this class to test the limits of stack operations in flight.
+ */
+public class TestOperationGovernor {
+
+    /**
+     * Use this method to test that operations over the limit wait until a permit is released.
+     */
+    @Test(groups = {"unit"})
+    public void TestQueueing() {
+
+        OperationGovernor.Limiter limiter = new OperationGovernor(2, 10).limiter("123456789012", "us-east-1");
+
+        CompletableFuture<Void> first = limiter.acquire();
+        CompletableFuture<Void> second = limiter.acquire();
+        CompletableFuture<Void> third = limiter.acquire();
+
+        Assert.assertTrue(first.isDone());
+        Assert.assertTrue(second.isDone());
+        Assert.assertFalse(third.isDone());
+
+        limiter.release();
+        Assert.assertTrue(third.isDone());
+    }
+
+    /**
+     * Use this method to test that the limit grows with accepted operations and is halved once per interval when
+     * throttled.
+     */
+    @Test(groups = {"unit"})
+    public void TestAdaptiveLimit() {
+
+        OperationGovernor governor = new OperationGovernor(4, 6);
+        OperationGovernor.Limiter limiter = governor.limiter("123456789012", "us-east-1");
+
+        for (int count = 0; count < 5; count++) limiter.accepted();
+        Assert.assertEquals(limiter.getLimit(), 5);
+
+        for (int count = 0; count < 100; count++) limiter.accepted();
+        Assert.assertEquals(limiter.getLimit(), 6);
+
+        limiter.throttled();
+        limiter.throttled();
+        Assert.assertEquals(limiter.getLimit(), 3);
+
+        Assert.assertSame(governor.limiter("123456789012", "us-east-1"), limiter);
+        Assert.assertEquals(governor.limiter("123456789012", "us-west-2").getLimit(), 4);
+    }
+}
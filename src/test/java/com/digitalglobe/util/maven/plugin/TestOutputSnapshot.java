@@ -0,0 +1,102 @@
+package com.digitalglobe.util.maven.plugin;
+
+import java.io.File;
+import java.time.Instant;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import software.amazon.awssdk.services.cloudformation.model.DescribeStacksResponse;
+import software.amazon.awssdk.services.cloudformation.model.Output;
+import software.amazon.awssdk.services.cloudformation.model.Stack;
+
+/**
+ * Use this class to test when the outputs of a described stack are reused.
+ */
+public class TestOutputSnapshot {
+
+    /**
+     * Use this method to build the description of a stack with one output.
+     */
+    private static DescribeStacksResponse description(String stackId, String stackName, String bucketName) {
+
+        return DescribeStacksResponse.builder().stacks(Stack.builder()
+                .stackId(stackId)
+                .stackName(stackName)
+                .lastUpdatedTime(Instant.ofEpochMilli(1000L))
+                .outputs(Output.builder().outputKey("BucketName").outputValue(bucketName).build())
+                .build()).build();
+    }
+
+    /**
+     * Use this method to test that a snapshot is current until its stack is deployed.
+     */
+    @Test(groups = {"unit"})
+    public void TestInvalidate() throws Exception {
+
+        OutputSnapshot snapshot = new OutputSnapshot();
+        snapshot.put("us-east-1", "default",
+                description("arn:aws:cloudformation:us-east-1:123456789012:stack/master/1", "master", "bucket"),
+                1000L);
+
+        DescribeStacksResponse read = snapshot.describe("us-east-1", "default", "master");
+        Assert.assertEquals(read.stacks().get(0).outputs().get(0).outputValue(), "bucket");
+        Assert.assertNull(snapshot.describe("us-east-1", "default", "version"));
+
+        snapshot.invalidate("us-east-1", "default", "master");
+        Assert.assertNull(snapshot.describe("us-east-1", "default", "master"));
+
+        // The snapshot is kept, it just isn't current.
+        Assert.assertEquals(snapshot.get("us-east-1", "default", "master").getLastUpdated(), 1000L);
+    }
+
+    /**
+     * Use this method to test that stacks with the same name in other regions and accounts don't share a snapshot.
+     */
+    @Test(groups = {"unit"})
+    public void TestSameNameStacks() throws Exception {
+
+        OutputSnapshot snapshot = new OutputSnapshot();
+        snapshot.put("us-east-1", "default",
+                description("arn:aws:cloudformation:us-east-1:123456789012:stack/network/1", "network", "east"),
+                1000L);
+        snapshot.put("us-west-2", "default",
+                description("arn:aws:cloudformation:us-west-2:123456789012:stack/network/2", "network", "west"),
+                1000L);
+        snapshot.put("us-east-1", "1111",
+                description("arn:aws:cloudformation:us-east-1:1111:stack/network/3", "network", "other"), 1000L);
+
+        Assert.assertEquals(snapshot.describe("us-east-1", "default", "network").stacks().get(0).outputs().get(0)
+                .outputValue(), "east");
+        Assert.assertEquals(snapshot.describe("us-west-2", "default", "network").stacks().get(0).outputs().get(0)
+                .outputValue(), "west");
+        Assert.assertEquals(snapshot.describe("us-east-1", "1111", "network").stacks().get(0).outputs().get(0)
+                .outputValue(), "other");
+
+        // Deploying the stack in one region leaves the others current.
+        snapshot.invalidate("us-west-2", "default", "network");
+        Assert.assertNull(snapshot.describe("us-west-2", "default", "network"));
+        Assert.assertNotNull(snapshot.describe("us-east-1", "default", "network"));
+        Assert.assertNotNull(snapshot.describe("us-east-1", "1111", "network"));
+    }
+
+    /**
+     * Use this method to test that the snapshots of an earlier execution are kept but aren't current.
+     */
+    @Test(groups = {"unit"})
+    public void TestEarlierExecution() throws Exception {
+
+        File file = File.createTempFile("outputs", ".json");
+        file.deleteOnExit();
+
+        OutputSnapshot snapshot = new OutputSnapshot();
+        snapshot.put("us-west-2", "default",
+                description("arn:aws:cloudformation:us-west-2:123456789012:stack/master/1", "master", "bucket"),
+                1000L);
+        snapshot.write(file);
+
+        OutputSnapshot earlier = OutputSnapshot.read(file);
+        Assert.assertNull(earlier.describe("us-west-2", "default", "master"));
+        Assert.assertEquals(earlier.get("us-west-2", "default", "master").getOutputs().get("BucketName"), "bucket");
+        Assert.assertNull(earlier.get("us-east-1", "default", "master"));
+    }
+}
@@ -0,0 +1,142 @@
+package com.digitalglobe.util.maven.plugin;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Use this class to test the compilation and evaluation of CLI command output parameter names.
+ */
+public class TestParameterPath {
+
+    static private final String document = "{\"hello\": {\"world\": {" +
+            "\"tags\": [{\"Key\": \"Description\", \"Value\": \"Hello World of People.\"}]," +
+            "\"people\": [" +
+            "{\"name\": \"Michael Leedahl\", \"gender\": \"male\", \"phones\": [\"111\", \"222\"]}," +
+            "{\"name\": \"Jane Smith\", \"gender\": \"female\", \"phones\": [\"333\"]}," +
+            "{\"name\": \"John Smith\", \"gender\": \"male\", \"age\": 42}]}}}";
+
+    /**
+     * Use this method to test that indexes, filters and nested arrays select the expected values.
+     */
+    @Test(groups = {"unit"})
+    public void TestEvaluate() throws Exception {
+
+        Map<String, ParameterPath> paths = new LinkedHashMap<>();
+        paths.put("First", ParameterPath.compile("/hello/world/people[0]/name"));
+        paths.put("Second", ParameterPath.compile("/hello/world/people[1]/name"));
+        paths.put("Gender", ParameterPath.compile("/hello/world/people[name=Michael Leedahl]/gender"));
+        paths.put("Tag", ParameterPath.compile("/hello/world/tags[Key=Description]/Value"));
+        paths.put("Phone", ParameterPath.compile("/hello/world/people[name=Michael Leedahl]/phones[1]"));
+        paths.put("Male", ParameterPath.compile("/hello/world/people[gender=male][1]/name"));
+        paths.put("Males", ParameterPath.compile("/hello/world/people[gender=male]/name"));
+        paths.put("Missing", ParameterPath.compile("/hello/world/people[5]/name"));
+        paths.put("Age", ParameterPath.compile("/hello/world/people[age=42]/name"));
+
+        Map<String, Object> values = ParameterPath.evaluate(new ObjectMapper().readValue(document, LinkedHashMap.class),
+                paths);
+
+        Assert.assertEquals(values.get("First"), "Michael Leedahl");
+        Assert.assertEquals(values.get("Second"), "Jane Smith");
+        Assert.assertEquals(values.get("Gender"), "male");
+        Assert.assertEquals(values.get("Tag"), "Hello World of People.");
+        Assert.assertEquals(values.get("Phone"), "222");
+        Assert.assertEquals(values.get("Male"), "John Smith");
+        Assert.assertFalse(values.get("Males") instanceof String);
+        Assert.assertFalse(values.containsKey("Missing"));
+        Assert.assertEquals(values.get("Age"), "John Smith");
+    }
+
+    /**
+     * Use this method to test that the streaming reader keeps the values the parameter names select.
+     */
+    @Test(groups = {"unit"})
+    public void TestSubtreeReader() throws Exception {
+
+        List<ParameterPath> paths = Arrays.asList(
+                ParameterPath.compile("/hello/world/people[name=Jane Smith]/phones[0]"));
+
+        LinkedHashMap<String, Object> pruned = new JsonSubtreeReader(paths)
+                .read(new ByteArrayInputStream(document.getBytes(StandardCharsets.UTF_8)));
+
+        Assert.assertEquals(new ObjectMapper().writeValueAsString(pruned), "{\"hello\":{\"world\":{\"people\":[" +
+                "{\"name\":\"Michael Leedahl\",\"phones\":[\"111\",\"222\"]}," +
+                "{\"name\":\"Jane Smith\",\"phones\":[\"333\"]}," +
+                "{\"name\":\"John Smith\"}]}}}");
+
+        Map<String, ParameterPath> keys = Collections.singletonMap("Phone", paths.get(0));
+        Assert.assertEquals(ParameterPath.evaluate(pruned, keys).get("Phone"), "333");
+    }
+
+    /**
+     * Use this method to test that compiled parameter names are cached and invalid syntax is rejected.
+     */
+    @Test(groups = {"unit"})
+    public void TestCompile() throws Exception {
+
+        Assert.assertSame(ParameterPath.compile("/A/B[0]/C[Key=Value]"), ParameterPath.compile("/A/B[0]/C[Key=Value]"));
+        Assert.assertEquals(ParameterPath.compile("/A/B[0]/C[Key=Value]").getSteps().size(), 3);
+
+        for (String invalid : new String[] {"", "A/B", "/A//B", "/A[", "/A[]", "/A[x]", "/A[=1]", "/A[k=v*]", "/A*"}) {
+
+            try {
+
+                ParameterPath.compile(invalid);
+                Assert.fail("Expected a syntax error for: " + invalid);
+
+            } catch (MojoExecutionException ex) {
+
+                Assert.assertEquals(ex.getMessage(), "Invalid parameter name syntax.");
+            }
+        }
+    }
+
+    /**
+     * Use this method to compare resolving the parameter names of a mapping one at a time with resolving them in one
+     * traversal on a large document.  It is in the performance group and doesn't run with the unit tests.
+     */
+    @Test(groups = {"performance"})
+    public void TestEvaluatePerformance() throws Exception {
+
+        List<Object> connections = new ArrayList<>();
+        for (int i = 0; i < 20000; i++) {
+
+            Map<String, Object> connection = new LinkedHashMap<>();
+            connection.put("VpnConnectionId", "vpn-" + i);
+            connection.put("VgwTelemetry", Arrays.asList(
+                    Collections.singletonMap("OutsideIpAddress", "10.0." + (i % 250) + ".1"),
+                    Collections.singletonMap("OutsideIpAddress", "10.0." + (i % 250) + ".2")));
+            connections.add(connection);
+        }
+
+        Map<String, Object> root = Collections.singletonMap("VpnConnections", connections);
+
+        Map<String, ParameterPath> paths = new LinkedHashMap<>();
+        for (int i = 0; i < 10; i++) {
+
+            paths.put("TunnelOne" + i, ParameterPath.compile(
+                    "/VpnConnections[VpnConnectionId=vpn-" + (i * 1000) + "]/VgwTelemetry[0]/OutsideIpAddress"));
+            paths.put("TunnelTwo" + i, ParameterPath.compile(
+                    "/VpnConnections[VpnConnectionId=vpn-" + (i * 1000) + "]/VgwTelemetry[1]/OutsideIpAddress"));
+        }
+
+        long start = System.nanoTime();
+        for (int run = 0; run < 20; run++)
+            for (Map.Entry<String, ParameterPath> entry : paths.entrySet())
+                ParameterPath.evaluate(root, Collections.singletonMap(entry.getKey(), entry.getValue()));
+        long separate = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        Map<String, Object> values = null;
+        for (int run = 0; run < 20; run++) values = ParameterPath.evaluate(root, paths);
+        long together = System.nanoTime() - start;
+
+        Assert.assertEquals(values.get("TunnelTwo3"), "10.0.0.2");
+        System.out.format("Separate: %d ms, Together: %d ms\n", separate / 1000000, together / 1000000);
+    }
+}
@@ -0,0 +1,38 @@
+package com.digitalglobe.util.maven.plugin;
+
+import java.io.File;
+import java.nio.file.Files;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Use this class to test the token buckets shared through a directory.
+ */
+public class TestSharedRateLimiter {
+
+    /**
+     * Use this method to test that limiters using the same directory take tokens from the same bucket.
+     */
+    @Test(groups = {"unit"})
+    public void TestSharedBucket() throws Exception {
+
+        File directory = Files.createTempDirectory("rate-limit").toFile();
+        directory.deleteOnExit();
+
+        SharedRateLimiter.Bucket first = new SharedRateLimiter(directory).bucket("cloudformation-us-east-1", 2);
+        SharedRateLimiter.Bucket second = new SharedRateLimiter(directory).bucket("cloudformation-us-east-1", 2);
+
+        Assert.assertEquals(first.reserve(), 0);
+        Assert.assertEquals(second.reserve(), 0);
+
+        long wait = first.reserve();
+        Assert.assertTrue((wait > 0) && (wait <= 500), "Wait was " + wait);
+
+        second.throttled();
+        wait = first.reserve();
+        Assert.assertTrue((wait > 1000) && (wait <= 1500), "Wait was " + wait);
+
+        for (File file : directory.listFiles()) file.deleteOnExit();
+    }
+}
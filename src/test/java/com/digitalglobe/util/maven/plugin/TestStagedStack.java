@@ -0,0 +1,48 @@
+package com.digitalglobe.util.maven.plugin;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Use this class to test that the work prepared for a stack is discarded when its output parameters change.
+ */
+public class TestStagedStack {
+
+    /**
+     * Use this method to test that only the output parameters the input parameters were read with are compared and
+     * that a later write of a Parameter Store field they read makes them stale.
+     */
+    @Test(groups = {"unit"})
+    public void TestIsCurrent() {
+
+        Map<String, String> assumed = new HashMap<>();
+        assumed.put("VpcId", "vpc-1");
+        List<String> storeWrites = new ArrayList<>(Collections.singletonList("/app/subnet"));
+        StagedStack staged = new StagedStack("stack", CompletableFuture.completedFuture("url"),
+                CompletableFuture.completedFuture(null), assumed, Collections.singleton("/app/subnet"), 1);
+
+        Map<String, String> outputs = new HashMap<>(assumed);
+        outputs.put("SubnetId", "subnet-1");
+        Assert.assertTrue(staged.isCurrent(outputs, storeWrites));
+
+        // Only the fields written after the input parameters were read make them stale.
+        storeWrites.add("/app/other");
+        Assert.assertTrue(staged.isCurrent(outputs, storeWrites));
+        storeWrites.add("/app/subnet");
+        Assert.assertFalse(staged.isCurrent(outputs, storeWrites));
+
+        storeWrites.remove(2);
+        outputs.put("VpcId", "vpc-2");
+        Assert.assertFalse(staged.isCurrent(outputs, storeWrites));
+
+        outputs.remove("VpcId");
+        Assert.assertFalse(staged.isCurrent(outputs, storeWrites));
+    }
+}